@@ -1,14 +1,19 @@
 # vim:ts=4:sts=4:sw=4:expandtab
 import logging
+import re
+import zlib
 from django.db import models
 from django.http import HttpResponse, HttpResponseForbidden, HttpResponseNotFound, HttpResponseServerError, HttpResponseNotAllowed
 import urllib
 from satori.core.sec.token import Token
 import satori.core.models
-from satori.core.models import AttributeGroup, Blob, OpenAttribute, Privilege
+from satori.core.models import AttributeGroup, Blob, BlobPartialWriter, OpenAttribute, Privilege
 from satori.core.export import token_container
 from satori.ars.server import server_info
 
+hash_re = re.compile(r'^[-_a-zA-Z0-9]+=*$')
+range_re = re.compile(r'^bytes=(\d+)-$')
+
 def server(request, model, id, name, group):
     if request.method not in ['GET', 'PUT']:
         return HttpResponseNotAllowed(['GET', 'PUT'])
@@ -132,16 +137,31 @@ def download(request, hash):
 
         blob = Blob.open(hash)
 
+        start = 0
+        match = range_re.match(request.environ.get('HTTP_RANGE', ''))
+        if match:
+            start = int(match.group(1))
+            if start > 0 and start >= blob.length:
+                blob.close()
+                res = HttpResponse(status=416)
+                res['content-range'] = 'bytes */{0}'.format(blob.length)
+                return res
+            blob.seek(start)
+
         def reader():
             while True:
-                data = blob.read(1024)
+                data = blob.read(65536)
                 if len(data) == 0:
                     break
                 yield data
             blob.close()
 
         res = HttpResponse(reader())
-        res['content-length'] = str(blob.length)
+        res['content-length'] = str(blob.length - start)
+        res['accept-ranges'] = 'bytes'
+        if match and start > 0:
+            res.status_code = 206
+            res['content-range'] = 'bytes {0}-{1}/{2}'.format(start, blob.length - 1, blob.length)
         return res
     except:
         logging.exception('BLOB server: error in download')
@@ -179,3 +199,74 @@ def upload(request):
         logging.exception('BLOB server: error in upload')
         return HttpResponseServerError()
 
+
+def upload_chunk(request, hash):
+    """
+    Resumable upload of a blob with a known hash.
+
+    GET returns the number of bytes already received. PUT appends a chunk
+    at the offset given in the Offset header, checked against the CRC32 in
+    the Chunk-Crc32 header. When the Blob-Length bytes are complete, the
+    blob is stored and its hash is returned, otherwise the new offset is.
+    A mismatched offset or checksum results in 409 and the current offset.
+    Concurrent requests for the same hash are served one at a time.
+    """
+    if request.method not in ['GET', 'PUT']:
+        return HttpResponseNotAllowed(['GET', 'PUT'])
+
+    server_info.client_ip = request.META['REMOTE_ADDR']
+    server_info.client_port = 0
+
+    if isinstance(hash, unicode):
+        hash = hash.encode('utf-8')
+
+    try:
+        token_container.check_set_token_str(request.COOKIES.get('satori_token', ''))
+
+        if not Privilege.global_demand('RAW_BLOB'):
+            return HttpResponseForbidden()
+
+        if not hash_re.match(hash):
+            return HttpResponseNotFound()
+
+        partial = BlobPartialWriter(hash)
+        try:
+            if request.method == 'GET':
+                return HttpResponse(str(partial.length))
+
+            offset = int(request.environ.get('HTTP_OFFSET', -1))
+            total = int(request.environ.get('HTTP_BLOB_LENGTH', -1))
+            checksum = int(request.environ.get('HTTP_CHUNK_CRC32', -1))
+            length = int(request.environ.get('CONTENT_LENGTH', 0))
+
+            if offset != partial.length or offset + length > total:
+                return HttpResponse(str(partial.length), status=409)
+
+            crc = 0
+            while length > 0:
+                data = request.environ['wsgi.input'].read(min(length, 65536))
+                if len(data) == 0:
+                    break
+                crc = zlib.crc32(data, crc)
+                partial.write(data)
+                length -= len(data)
+
+            if length > 0 or (crc & 0xffffffff) != checksum:
+                partial.truncate(offset)
+                return HttpResponse(str(offset), status=409)
+
+            if partial.length < total:
+                return HttpResponse(str(partial.length))
+
+            hash = partial.commit()
+            if hash is None:
+                return HttpResponse('0', status=409)
+
+            res = HttpResponse(hash)
+            res['content-length'] = str(len(hash))
+            return res
+        finally:
+            partial.close()
+    except:
+        logging.exception('BLOB server: error in chunked upload')
+        return HttpResponseServerError()
@@ -1,6 +1,8 @@
 # vim:ts=4:sts=4:sw=4:expandtab
 
+import fcntl
 import os
+import time
 from base64   import urlsafe_b64encode
 from hashlib  import sha384
 from tempfile import NamedTemporaryFile
@@ -16,6 +18,31 @@ from satori.core.utils  import ensuredirs
 def blob_filename(hash):
     return os.path.join(settings.BLOB_DIR, hash[0], hash[1], hash[2], hash)
 
+def blob_partial_filename(hash):
+    return os.path.join(settings.BLOB_DIR, 'partial', hash)
+
+def blob_store(tempname, hash):
+    filename = blob_filename(hash)
+    dirname = os.path.dirname(filename)
+    if os.path.exists(filename):
+        origfile = open(filename, 'rb')
+        newfile = open(tempname, 'rb')
+        origlen = os.fstat(origfile.fileno()).st_size
+        newlen = os.fstat(newfile.fileno()).st_size
+        if origlen != newlen:
+            raise Exception('HASH COLLISION! {0} {1}'.format(filename, tempname))
+        while origlen > 0:
+            origdata = origfile.read(min(origlen, 1024))
+            newdata = newfile.read(min(origlen, 1024))
+            if origdata != newdata:
+                raise Exception('HASH COLLISION! {0} {1}'.format(filename, tempname))
+            origlen -= 1024
+        origfile.close()
+        newfile.close()
+    ensuredirs(dirname, 0700)
+    os.rename(tempname, filename)
+    os.utime(filename, None)
+
 class BlobReader(object):
     def __init__(self, hash, filename='', on_close=None):
         self.file = open(blob_filename(hash), 'rb')
@@ -27,6 +54,9 @@ class BlobReader(object):
     def read(self, size=-1):
         return self.file.read(size)
 
+    def seek(self, offset):
+        self.file.seek(offset)
+
     def close(self):
         self.file.close()
         if self.on_close:
@@ -49,30 +79,89 @@ class BlobWriter(object):
     def close(self):
         self.file.close()
         hash = urlsafe_b64encode(self.hash.digest())
-        filename = blob_filename(hash)
-        dirname = os.path.dirname(filename)
-        if os.path.exists(filename):
-            origfile = open(filename, 'rb')
-            newfile = open(self.file.name, 'rb')
-            origlen = os.fstat(origfile.fileno()).st_size
-            newlen = os.fstat(newfile.fileno()).st_size
-            if origlen != newlen:
-                raise Exception('HASH COLLISION! {0} {1}'.format(filename, self.file.name))
-            while origlen > 0:
-                origdata = origfile.read(min(origlen, 1024))
-                newdata = newfile.read(min(origlen, 1024))
-                if origdata != newdata:
-                    raise Exception('HASH COLLISION! {0} {1}'.format(filename, self.file.name))
-                origlen -= 1024
-            origfile.close()
-            newfile.close()
-        ensuredirs(dirname, 0700)
-        os.rename(self.file.name, filename)
-        os.utime(filename, None)
+        blob_store(self.file.name, hash)
         if self.on_close:
             self.on_close(hash)
         return hash
 
+class BlobPartialWriter(object):
+    """
+    Blob uploaded in chunks, kept between requests until it is complete.
+    The partial file is locked from the creation of the writer until it is
+    closed, so concurrent uploads of the same blob wait for each other.
+    """
+    # abandoned uploads are removed after this many seconds
+    MAX_AGE = 24 * 60 * 60
+
+    def __init__(self, hash):
+        dirname = os.path.join(settings.BLOB_DIR, 'partial')
+        ensuredirs(dirname, 0700)
+        self.expire(dirname)
+        self.hash = hash
+        filename = blob_partial_filename(hash)
+        while True:
+            self.file = open(filename, 'ab')
+            fcntl.flock(self.file.fileno(), fcntl.LOCK_EX)
+            # the file could be committed or expired while waiting for the lock
+            try:
+                if os.stat(filename).st_ino == os.fstat(self.file.fileno()).st_ino:
+                    break
+            except OSError:
+                pass
+            self.file.close()
+        self.length = os.fstat(self.file.fileno()).st_size
+
+    @classmethod
+    def expire(cls, dirname):
+        deadline = time.time() - cls.MAX_AGE
+        for name in os.listdir(dirname):
+            filename = os.path.join(dirname, name)
+            try:
+                if os.stat(filename).st_mtime >= deadline:
+                    continue
+                partial = open(filename, 'ab')
+            except (OSError, IOError):
+                continue
+            try:
+                fcntl.flock(partial.fileno(), fcntl.LOCK_EX | fcntl.LOCK_NB)
+                os.remove(filename)
+            except (OSError, IOError):
+                pass
+            finally:
+                partial.close()
+
+    def write(self, data):
+        self.file.write(data)
+        self.length += len(data)
+
+    def truncate(self, length):
+        self.file.flush()
+        self.file.truncate(length)
+        self.length = length
+
+    def close(self):
+        self.file.close()
+
+    def commit(self):
+        self.file.flush()
+        hash = sha384()
+        partial = open(self.file.name, 'rb')
+        while True:
+            data = partial.read(1048576)
+            if len(data) == 0:
+                break
+            hash.update(data)
+        partial.close()
+        hash = urlsafe_b64encode(hash.digest())
+        # removed or stored before the lock is released by close
+        if hash != self.hash:
+            os.remove(self.file.name)
+            self.file.close()
+            return None
+        blob_store(self.file.name, hash)
+        self.file.close()
+        return hash
+
 @ExportClass
 class Blob(object):
     """
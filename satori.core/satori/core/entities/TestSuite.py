@@ -78,6 +78,7 @@ class TestSuite(Entity):
     def modify(self, fields):
         self.forbid_fields(fields, ['id', 'problem', 'dispatcher', 'reporter', 'accumulators'])
         self.update_fields(fields, ['name', 'description'])
+        self.save()
         return self
 
     @ExportMethod(DjangoStruct('TestSuite'), [DjangoId('TestSuite'), DjangoStruct('TestSuite'), 
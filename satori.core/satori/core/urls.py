@@ -15,6 +15,7 @@ urlpatterns = patterns('',
     # (r'^blob/(?P<model>[^/]+)/(?P<id>\d+)/(?P<name>[^/]+)$','satori.core.blob.server'),
     (r'^blob/(?P<model>[^/]+)/(?P<id>\d+)/(?P<group>[^/]+)/(?P<name>[^/]+)$','satori.core.blob.server'),
     (r'^blob/upload$','satori.core.blob.upload'),
+    (r'^blob/upload/(?P<hash>[^/]+)$','satori.core.blob.upload_chunk'),
     (r'^blob/download/(?P<hash>[^/]+)$','satori.core.blob.download'),
     (r'^thrift$','satori.core.thrift_server.http_handler'),
     # (r'^admin/doc/', include('django.contrib.admindocs.urls')),
@@ -0,0 +1,63 @@
+package satori.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import satori.metadata.SInputMetadata;
+import satori.thrift.gen.AnonymousAttribute;
+import satori.type.SBlobType;
+import satori.type.STextType;
+
+//conversions between the local attribute maps and the Thrift ones, every second attribute is a blob
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SAttributeDataBench {
+	@Param({ "8", "64", "1024" })
+	public int attrs;
+	
+	private Map<String, Object> local;
+	private Map<String, AnonymousAttribute> remote;
+	private List<SInputMetadata> meta;
+	
+	@Setup public void setup() {
+		local = new HashMap<String, Object>();
+		meta = new ArrayList<SInputMetadata>();
+		for (int i = 0; i < attrs; ++i) {
+			String name = "attr" + i;
+			if (i % 2 == 0) {
+				local.put(name, "value" + i);
+				meta.add(new SInputMetadata(name, name, STextType.INSTANCE, false, null));
+			} else {
+				local.put(name, SBlob.createRemote(name + ".in", "hash" + i));
+				meta.add(new SInputMetadata(name, name, SBlobType.INSTANCE, false, null));
+			}
+		}
+		remote = SAttributeData.convertAttrMap(local);
+	}
+	
+	@Benchmark public Map<String, AnonymousAttribute> convertAttrMap() {
+		return SAttributeData.convertAttrMap(local);
+	}
+	@Benchmark public Map<SInputMetadata, Object> createLocalAttrMap() {
+		return SAttributeData.createLocalAttrMap(meta, remote);
+	}
+}
@@ -0,0 +1,67 @@
+package satori.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import satori.task.SConsoleHandler;
+import satori.task.STaskHandler;
+
+//SHA-384 of local files, as done before every upload
+//cold: the file looks freshly modified, so the hash index is never used
+//indexed: the hash comes from the hash index
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SBlobBench {
+	@Param({ "1024", "1048576", "67108864" })
+	public int size;
+	@Param({ "cold", "indexed" })
+	public String mode;
+	
+	private final STaskHandler handler = new SConsoleHandler(false);
+	private File file;
+	
+	@Setup public void setup() throws Exception {
+		file = File.createTempFile("satori-bench", ".bin");
+		byte[] buffer = new byte[65536];
+		Random random = new Random(size);
+		OutputStream out = new FileOutputStream(file);
+		try {
+			for (int done = 0; done < size; done += buffer.length) {
+				random.nextBytes(buffer);
+				out.write(buffer, 0, Math.min(buffer.length, size - done));
+			}
+		}
+		finally { out.close(); }
+		long now = System.currentTimeMillis();
+		if (mode.equals("cold")) file.setLastModified(now + TimeUnit.DAYS.toMillis(1));
+		else {
+			file.setLastModified(now - TimeUnit.HOURS.toMillis(1));
+			SBlob.createLocalTask(handler, file);
+		}
+	}
+	@TearDown public void tearDown() { file.delete(); }
+	
+	@Benchmark public String hash() throws Exception {
+		return SBlob.createLocalTask(handler, file).getHash();
+	}
+}
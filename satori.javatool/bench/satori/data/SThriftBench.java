@@ -0,0 +1,104 @@
+package satori.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMap;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import satori.thrift.gen.AnonymousAttribute;
+import satori.thrift.gen.TestStruct;
+
+//binary protocol encoding of the test structures and attribute maps, the bulk of every test request
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SThriftBench {
+	@Param({ "8", "64", "1024" })
+	public int attrs;
+	
+	private TestStruct struct;
+	private Map<String, AnonymousAttribute> attr_map;
+	private byte[] struct_bytes;
+	private byte[] attr_map_bytes;
+	
+	@Setup public void setup() throws Exception {
+		struct = new TestStruct();
+		struct.setId(1234);
+		struct.setProblem(56);
+		struct.setName("test01");
+		struct.setDescription("Maximal test with a long description");
+		Map<String, Object> local = new HashMap<String, Object>();
+		for (int i = 0; i < attrs; ++i) {
+			if (i % 2 == 0) local.put("attr" + i, "value" + i);
+			else local.put("attr" + i, SBlob.createRemote("attr" + i + ".in", "hash" + i));
+		}
+		attr_map = SAttributeData.convertAttrMap(local);
+		struct_bytes = writeStruct();
+		attr_map_bytes = writeAttrMap();
+	}
+	
+	private static byte[] getBytes(TMemoryBuffer buffer) {
+		byte[] result = new byte[buffer.length()];
+		System.arraycopy(buffer.getArray(), 0, result, 0, result.length);
+		return result;
+	}
+	private static TProtocol createReader(byte[] data) throws Exception {
+		TMemoryBuffer buffer = new TMemoryBuffer(data.length);
+		buffer.write(data);
+		return new TBinaryProtocol(buffer);
+	}
+	
+	@Benchmark public byte[] writeStruct() throws Exception {
+		TMemoryBuffer buffer = new TMemoryBuffer(256);
+		struct.write(new TBinaryProtocol(buffer));
+		return getBytes(buffer);
+	}
+	@Benchmark public TestStruct readStruct() throws Exception {
+		TestStruct result = new TestStruct();
+		result.read(createReader(struct_bytes));
+		return result;
+	}
+	@Benchmark public byte[] writeAttrMap() throws Exception {
+		TMemoryBuffer buffer = new TMemoryBuffer(256);
+		TProtocol protocol = new TBinaryProtocol(buffer);
+		protocol.writeMapBegin(new TMap(TType.STRING, TType.STRUCT, attr_map.size()));
+		for (Map.Entry<String, AnonymousAttribute> entry : attr_map.entrySet()) {
+			protocol.writeString(entry.getKey());
+			entry.getValue().write(protocol);
+		}
+		protocol.writeMapEnd();
+		return getBytes(buffer);
+	}
+	@Benchmark public Map<String, AnonymousAttribute> readAttrMap() throws Exception {
+		TProtocol protocol = createReader(attr_map_bytes);
+		TMap header = protocol.readMapBegin();
+		Map<String, AnonymousAttribute> result = new HashMap<String, AnonymousAttribute>(2*header.size);
+		for (int i = 0; i < header.size; ++i) {
+			String key = protocol.readString();
+			AnonymousAttribute value = new AnonymousAttribute();
+			value.read(protocol);
+			result.put(key, value);
+		}
+		protocol.readMapEnd();
+		return result;
+	}
+}
@@ -0,0 +1,87 @@
+package satori.metadata;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import satori.task.SConsoleHandler;
+import satori.task.STaskHandler;
+
+//parsing of the #@ metadata headers of judges and dispatchers, the scripts are followed by a body of the given length
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SHeaderBench {
+	@Param({ "0", "1000" })
+	public int body_lines;
+	
+	private static final String JUDGE_HEADER =
+		"#!/usr/bin/python\n" +
+		"# vim:ts=4:sts=4:sw=4:expandtab\n" +
+		"#@<checker name=\"Simple judge\">\n" +
+		"#@      <input>\n" +
+		"#@              <param type=\"time\" name=\"time\" description=\"Time limit\" required=\"true\" default=\"10s\"/>\n" +
+		"#@              <param type=\"size\" name=\"memory\" description=\"Memory limit\" required=\"true\" default=\"256MB\"/>\n" +
+		"#@              <param type=\"blob\" name=\"input\" description=\"Input file\" required=\"true\"/>\n" +
+		"#@              <param type=\"blob\" name=\"hint\" description=\"Output/hint file\" required=\"false\"/>\n" +
+		"#@              <param type=\"blob\" name=\"checker\" description=\"Checker\" required=\"false\"/>\n" +
+		"#@              <param type=\"text\" name=\"languages\" description=\"Accepted languages\" required=\"false\"/>\n" +
+		"#@      </input>\n" +
+		"#@      <output>\n" +
+		"#@              <param type=\"text\" name=\"status\" description=\"Status\"/>\n" +
+		"#@              <param type=\"blob\" name=\"compile_log\" description=\"Compilation log\"/>\n" +
+		"#@              <param type=\"time\" name=\"execute_time_real\" description=\"Execution time\"/>\n" +
+		"#@              <param type=\"size\" name=\"execute_memory\" description=\"Memory usage\"/>\n" +
+		"#@      </output>\n" +
+		"#@</checker>\n";
+	private static final String PARAMETERS_HEADER =
+		"#!/usr/bin/python\n" +
+		"#@<dispatcher name=\"Serial dispatcher\">\n" +
+		"#@      <general>\n" +
+		"#@              <param type=\"bool\" name=\"stop_on_fail\" description=\"Stop after the first failed test\" default=\"false\"/>\n" +
+		"#@              <param type=\"text\" name=\"groups\" description=\"Test groups\"/>\n" +
+		"#@              <param type=\"time\" name=\"time_total\" description=\"Total time limit\" default=\"60s\"/>\n" +
+		"#@      </general>\n" +
+		"#@</dispatcher>\n";
+	
+	private final STaskHandler handler = new SConsoleHandler(false);
+	private String judge;
+	private String parameters;
+	private String judge_xml;
+	
+	private String addBody(String header) {
+		StringBuilder result = new StringBuilder(header);
+		for (int i = 0; i < body_lines; ++i) result.append("    result['line").append(i).append("'] = run(submit, test)\n");
+		return result.toString();
+	}
+	
+	@Setup public void setup() {
+		judge = addBody(JUDGE_HEADER);
+		parameters = addBody(PARAMETERS_HEADER);
+		judge_xml = SHeaderReader.read(new StringReader(judge));
+	}
+	
+	@Benchmark public String readJudgeHeader() {
+		return SHeaderReader.read(new StringReader(judge));
+	}
+	@Benchmark public Object parseJudgeHeader() throws Exception {
+		return SJudgeParser.parse(judge_xml);
+	}
+	@Benchmark public SParametersMetadata parseParameters() throws Exception {
+		return SParametersParser.parseParametersAux(handler, "dispatcher.py", parameters);
+	}
+}
@@ -0,0 +1,110 @@
+package satori.problem.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import satori.common.SPair;
+import satori.metadata.SInputMetadata;
+import satori.metadata.SJudge;
+import satori.metadata.SParametersMetadata;
+import satori.problem.SParentProblem;
+import satori.problem.STestList;
+import satori.problem.STestSuiteList;
+import satori.problem.STestSuiteReader;
+import satori.test.STestBasicReader;
+import satori.test.STestReader;
+import satori.test.STestSnap;
+import satori.test.impl.STestImpl;
+import satori.test.impl.STestSuiteBase;
+import satori.type.STextType;
+
+//comparison of a test suite with an unchanged snapshot, done whenever the snapshot is refreshed
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class STestSuiteImplBench {
+	@Param({ "100", "1000", "10000" })
+	public int tests;
+	@Param({ "4" })
+	public int params;
+	
+	private static final SParentProblem problem = new SParentProblem() {
+		@Override public boolean hasId() { return false; }
+		@Override public long getId() { return -1; }
+		@Override public STestList getTestList() { return null; }
+		@Override public STestSuiteList getTestSuiteList() { return null; }
+	};
+	
+	private static STestReader createTestReader(final long id) {
+		return new STestReader() {
+			@Override public boolean hasId() { return true; }
+			@Override public long getId() { return id; }
+			@Override public long getProblemId() { return problem.getId(); }
+			@Override public String getName() { return "test" + id; }
+			@Override public String getDescription() { return ""; }
+			@Override public SJudge getJudge() { return null; }
+			@Override public Map<SInputMetadata, Object> getInput() { return Collections.emptyMap(); }
+		};
+	}
+	
+	private STestSuiteImpl suite;
+	private STestSuiteReader source;
+	
+	@Setup public void setup() {
+		List<STestImpl> test_list = new ArrayList<STestImpl>();
+		for (long id = 1; id <= tests; ++id) {
+			STestReader reader = createTestReader(id);
+			test_list.add(STestImpl.createRemote(problem, STestSnap.create(reader), reader));
+		}
+		suite = STestSuiteImpl.createNew(problem, STestSuiteBase.createNew(test_list));
+		suite.setName("suite");
+		final Map<SPair<SInputMetadata, Long>, Object> test_params = new HashMap<SPair<SInputMetadata, Long>, Object>();
+		for (int i = 0; i < params; ++i) {
+			SInputMetadata meta = new SInputMetadata("param" + i, "Parameter " + i, STextType.INSTANCE, false, null);
+			for (STestImpl test : test_list) {
+				suite.setTestParameter(meta, test.getId(), "value" + test.getId());
+				test_params.put(new SPair<SInputMetadata, Long>(meta, test.getId()), "value" + test.getId());
+			}
+		}
+		final List<STestBasicReader> source_tests = new ArrayList<STestBasicReader>();
+		for (STestImpl test : test_list) source_tests.add(createTestReader(test.getId()));
+		source = new STestSuiteReader() {
+			@Override public boolean hasId() { return false; }
+			@Override public long getId() { return -1; }
+			@Override public long getProblemId() { return problem.getId(); }
+			@Override public String getName() { return "suite"; }
+			@Override public String getDescription() { return ""; }
+			@Override public List<? extends STestBasicReader> getTests() { return source_tests; }
+			@Override public SParametersMetadata getDispatcher() { return null; }
+			@Override public List<SParametersMetadata> getAccumulators() { return Collections.emptyList(); }
+			@Override public SParametersMetadata getReporter() { return null; }
+			@Override public Map<SInputMetadata, Object> getGeneralParameters() { return Collections.emptyMap(); }
+			@Override public Map<SPair<SInputMetadata, Long>, Object> getTestParameters() { return test_params; }
+		};
+		if (suite.check(source)) throw new IllegalStateException("The suite differs from its source");
+	}
+	
+	//walks the whole suite, as nothing differs
+	@Benchmark public boolean check() {
+		return suite.check(source);
+	}
+}
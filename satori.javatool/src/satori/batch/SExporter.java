@@ -0,0 +1,151 @@
+package satori.batch;
+
+import static satori.batch.SManifest.INPUT_PREFIX;
+import static satori.batch.SManifest.JUDGES_DIR;
+import static satori.batch.SManifest.PARAM_PREFIX;
+import static satori.batch.SManifest.SUITES_DIR;
+import static satori.batch.SManifest.TESTS_DIR;
+import static satori.batch.SManifest.TEST_FILE;
+import static satori.batch.SManifest.getFileName;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import satori.config.SConfig;
+import satori.data.SBlob;
+import satori.data.STestData;
+import satori.data.STestSuiteData;
+import satori.metadata.SInputMetadata;
+import satori.metadata.SParametersMetadata;
+import satori.problem.STestSuiteBasicReader;
+import satori.problem.STestSuiteReader;
+import satori.task.SBackgroundTask;
+import satori.task.SConsoleHandler;
+import satori.task.STaskHandler;
+import satori.test.STestBasicReader;
+import satori.test.STestReader;
+
+public class SExporter {
+	private final File root;
+	private final List<SBackgroundTask<Void>> jobs = new ArrayList<SBackgroundTask<Void>>();
+	private final Set<String> judges = new HashSet<String>();
+	private final Map<Long, String> test_dirs = new HashMap<Long, String>();
+	
+	private SExporter(File root) { this.root = root; }
+	
+	private void addDownload(final SBlob blob, final File file) {
+		jobs.add(new SBackgroundTask<Void>() {
+			@Override public Void run(STaskHandler handler) throws Exception {
+				file.getParentFile().mkdirs();
+				blob.saveLocalTask(handler, file);
+				return null;
+			}
+		});
+	}
+	private static String getUniqueName(Set<String> used, String name, long id) {
+		String result = getFileName(name);
+		if (!used.add(result)) used.add(result = result + "-" + id);
+		return result;
+	}
+	
+	private void exportTest(String dir_name, STestReader test) throws Exception {
+		File dir = new File(new File(root, TESTS_DIR), dir_name);
+		Properties props = new Properties();
+		props.setProperty("name", test.getName());
+		props.setProperty("description", test.getDescription());
+		if (test.getJudge() != null) {
+			SBlob judge = test.getJudge().getBlob();
+			String path = JUDGES_DIR + "/" + judge.getHash() + "/" + getFileName(judge.getName());
+			props.setProperty("judge", "../../" + path);
+			if (judges.add(judge.getHash())) addDownload(judge, new File(root, path));
+		}
+		for (Map.Entry<SInputMetadata, Object> entry : test.getInput().entrySet()) {
+			String key = INPUT_PREFIX + entry.getKey().getName();
+			if (entry.getValue() instanceof SBlob) {
+				SBlob blob = (SBlob)entry.getValue();
+				String path = getFileName(entry.getKey().getName()) + "/" + getFileName(blob.getName());
+				props.setProperty(key, path);
+				addDownload(blob, new File(dir, path));
+			}
+			else props.setProperty(key, (String)entry.getValue());
+		}
+		SManifest.write(new File(dir, TEST_FILE), props);
+	}
+	
+	private void exportParameters(STaskHandler handler, String suite_name, SParametersMetadata group, Map<SInputMetadata, Object> values, Properties props) throws Exception {
+		if (group == null) return;
+		for (SInputMetadata meta : group.getGeneralParameters()) {
+			Object value = values.get(meta);
+			if (value == null) continue;
+			String key = group.getName() + "." + meta.getName();
+			if (value instanceof SBlob) {
+				SBlob blob = (SBlob)value;
+				String path = suite_name + "/" + getFileName(key) + "/" + getFileName(blob.getName());
+				props.setProperty(PARAM_PREFIX + key, path);
+				File file = new File(new File(root, SUITES_DIR), path);
+				file.getParentFile().mkdirs();
+				blob.saveLocalTask(handler, file);
+			}
+			else props.setProperty(PARAM_PREFIX + key, (String)value);
+		}
+	}
+	private void exportSuite(STaskHandler handler, String file_name, long id) throws Exception {
+		STestSuiteReader suite = STestSuiteData.load(handler, id);
+		Properties props = new Properties();
+		props.setProperty("name", suite.getName());
+		props.setProperty("description", suite.getDescription());
+		props.setProperty("dispatcher", suite.getDispatcher() != null ? suite.getDispatcher().getName() : "");
+		StringBuilder accumulators = new StringBuilder();
+		for (SParametersMetadata accumulator : suite.getAccumulators()) {
+			if (accumulators.length() > 0) accumulators.append(",");
+			accumulators.append(accumulator.getName());
+		}
+		props.setProperty("accumulators", accumulators.toString());
+		props.setProperty("reporter", suite.getReporter() != null ? suite.getReporter().getName() : "");
+		StringBuilder tests = new StringBuilder();
+		for (STestBasicReader test : suite.getTests()) {
+			if (tests.length() > 0) tests.append(",");
+			tests.append(test_dirs.get(test.getId()));
+		}
+		props.setProperty("tests", tests.toString());
+		exportParameters(handler, file_name, suite.getDispatcher(), suite.getGeneralParameters(), props);
+		for (SParametersMetadata accumulator : suite.getAccumulators()) exportParameters(handler, file_name, accumulator, suite.getGeneralParameters(), props);
+		exportParameters(handler, file_name, suite.getReporter(), suite.getGeneralParameters(), props);
+		SManifest.write(new File(new File(root, SUITES_DIR), file_name + ".properties"), props);
+	}
+	
+	//writes all tests and suites of the problem in the layout read by SImporter
+	public static void run(STaskHandler handler, long problem_id, File root) throws Exception {
+		final SExporter self = new SExporter(root);
+		List<Long> ids = new ArrayList<Long>();
+		for (STestBasicReader test : STestData.list(handler, problem_id)) ids.add(test.getId());
+		List<STestReader> tests = STestData.load(handler, ids);
+		Set<String> used = new HashSet<String>();
+		for (STestReader test : tests) {
+			String dir_name = getUniqueName(used, test.getName(), test.getId());
+			self.test_dirs.put(test.getId(), dir_name);
+			self.exportTest(dir_name, test);
+		}
+		used.clear();
+		List<STestSuiteBasicReader> suites = STestSuiteData.list(handler, problem_id);
+		for (STestSuiteBasicReader suite : suites) {
+			final String file_name = getUniqueName(used, suite.getName(), suite.getId());
+			final long id = suite.getId();
+			self.jobs.add(new SBackgroundTask<Void>() {
+				@Override public Void run(STaskHandler handler) throws Exception {
+					self.exportSuite(handler, file_name, id);
+					return null;
+				}
+			});
+		}
+		handler.log("Downloading " + self.jobs.size() + " files and suites...");
+		SManifest.runAll("Export", SConfig.getConnections(), self.jobs);
+		SConsoleHandler.print("Exported " + tests.size() + " tests and " + suites.size() + " suites");
+	}
+}
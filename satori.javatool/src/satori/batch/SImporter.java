@@ -0,0 +1,114 @@
+package satori.batch;
+
+import static satori.batch.SManifest.INPUT_PREFIX;
+import static satori.batch.SManifest.TEST_FILE;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import satori.data.SBlob;
+import satori.data.STestData;
+import satori.metadata.SInputMetadata;
+import satori.metadata.SJudge;
+import satori.metadata.SJudgeParser;
+import satori.task.SBackgroundTask;
+import satori.task.SConsoleHandler;
+import satori.task.STaskHandler;
+import satori.test.STestBasicReader;
+import satori.test.STestReader;
+import satori.type.SBlobType;
+
+public class SImporter {
+	private static class ImportedTest implements STestReader {
+		private final Long id;
+		private final long problem_id;
+		private final String name;
+		private final String description;
+		private final SJudge judge;
+		private final Map<SInputMetadata, Object> input;
+		public ImportedTest(Long id, long problem_id, String name, String description, SJudge judge, Map<SInputMetadata, Object> input) {
+			this.id = id;
+			this.problem_id = problem_id;
+			this.name = name;
+			this.description = description;
+			this.judge = judge;
+			this.input = input;
+		}
+		@Override public boolean hasId() { return id != null; }
+		@Override public long getId() { return id; }
+		@Override public long getProblemId() { return problem_id; }
+		@Override public String getName() { return name; }
+		@Override public String getDescription() { return description; }
+		@Override public SJudge getJudge() { return judge; }
+		@Override public Map<SInputMetadata, Object> getInput() { return input; }
+	}
+	
+	private static void findTests(File dir, List<File> result) {
+		if (new File(dir, TEST_FILE).isFile()) result.add(dir);
+		File[] files = dir.listFiles();
+		if (files == null) return;
+		Arrays.sort(files);
+		for (File file : files) if (file.isDirectory()) findTests(file, result);
+	}
+	
+	private static Map<SInputMetadata, Object> readInput(STaskHandler handler, File dir, Properties props, SJudge judge) throws Exception {
+		Map<SInputMetadata, Object> result = new HashMap<SInputMetadata, Object>();
+		Set<String> names = new HashSet<String>();
+		for (SInputMetadata meta : judge.getInputMetadata()) {
+			names.add(INPUT_PREFIX + meta.getName());
+			String value = props.getProperty(INPUT_PREFIX + meta.getName());
+			if (value == null && meta.isRequired()) throw new Exception("Missing input: " + meta.getName());
+			if (value == null) continue;
+			if (meta.getType() == SBlobType.INSTANCE) result.put(meta, SBlob.createLocalTask(handler, new File(dir, value)));
+			else result.put(meta, value);
+		}
+		for (String key : props.stringPropertyNames())
+			if (key.startsWith(INPUT_PREFIX) && !names.contains(key)) throw new Exception("Unknown input: " + key.substring(INPUT_PREFIX.length()));
+		return Collections.unmodifiableMap(result);
+	}
+	private static STestReader readTest(STaskHandler handler, long problem_id, Map<String, Long> existing, File dir) throws Exception {
+		try {
+			Properties props = SManifest.read(new File(dir, TEST_FILE));
+			String name = props.getProperty("name", dir.getName());
+			String description = props.getProperty("description", "");
+			String judge_path = props.getProperty("judge");
+			if (judge_path == null) return new ImportedTest(existing.get(name), problem_id, name, description, null, Collections.<SInputMetadata, Object>emptyMap());
+			SJudge judge = SJudgeParser.parseJudgeTask(handler, SBlob.createLocalTask(handler, new File(dir, judge_path)));
+			return new ImportedTest(existing.get(name), problem_id, name, description, judge, readInput(handler, dir, props, judge));
+		}
+		catch(Exception ex) { throw new Exception(dir + ": " + ex.getMessage(), ex); }
+	}
+	
+	//reads the tests found in the directory tree, tests with the same name as existing ones get their ids
+	static List<STestReader> readTests(STaskHandler handler, final long problem_id, File root, final Map<String, Long> existing) throws Exception {
+		List<File> dirs = new ArrayList<File>();
+		findTests(root, dirs);
+		if (dirs.isEmpty()) throw new Exception("No " + TEST_FILE + " files found in " + root);
+		handler.log("Reading " + dirs.size() + " tests...");
+		List<SBackgroundTask<STestReader>> jobs = new ArrayList<SBackgroundTask<STestReader>>();
+		for (final File dir : dirs) jobs.add(new SBackgroundTask<STestReader>() {
+			@Override public STestReader run(STaskHandler handler) throws Exception { return readTest(handler, problem_id, existing, dir); }
+		});
+		List<STestReader> tests = SManifest.runAll("Import", Runtime.getRuntime().availableProcessors(), jobs);
+		Set<String> names = new HashSet<String>();
+		for (STestReader test : tests) if (!names.add(test.getName())) throw new Exception("Duplicate test name: " + test.getName());
+		return tests;
+	}
+	
+	//creates the tests found in the directory tree, tests with the same name as existing ones replace them
+	public static void run(STaskHandler handler, long problem_id, File root) throws Exception {
+		Map<String, Long> existing = new HashMap<String, Long>();
+		for (STestBasicReader test : STestData.list(handler, problem_id)) existing.put(test.getName(), test.getId());
+		List<STestReader> tests = readTests(handler, problem_id, root, existing);
+		STestData.saveAll(handler, tests);
+		SConsoleHandler.print("Imported " + tests.size() + " tests");
+	}
+}
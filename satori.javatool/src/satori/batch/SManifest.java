@@ -0,0 +1,80 @@
+package satori.batch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+
+import satori.task.SBackgroundTask;
+import satori.task.SConsoleHandler;
+import satori.task.STaskExecutor;
+import satori.task.STaskHandler;
+
+//the files describing tests and suites on disk:
+//  <test dir>/test.properties: name, description, judge (path) and input.<name> (value or path of a blob)
+//  suites/<suite>.properties: name, description, dispatcher, accumulators, reporter, tests (directory names)
+//  and param.<group>.<name> (value or path of a blob)
+class SManifest {
+	static final String TEST_FILE = "test.properties";
+	static final String TESTS_DIR = "tests";
+	static final String SUITES_DIR = "suites";
+	static final String JUDGES_DIR = "judges";
+	static final String INPUT_PREFIX = "input.";
+	static final String PARAM_PREFIX = "param.";
+	
+	static Properties read(File file) throws Exception {
+		Properties result = new Properties();
+		Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		try { result.load(reader); }
+		finally { IOUtils.closeQuietly(reader); }
+		return result;
+	}
+	static void write(File file, Properties props) throws Exception {
+		file.getParentFile().mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try { props.store(writer, null); }
+		finally { IOUtils.closeQuietly(writer); }
+	}
+	
+	static String getFileName(String name) {
+		String result = name.replaceAll("[^A-Za-z0-9._-]", "_");
+		if (result.isEmpty() || result.startsWith(".")) result = "_" + result;
+		return result;
+	}
+	
+	//runs the jobs on a few threads and prints all failures before reporting them
+	static <T> List<T> runAll(String name, int threads, List<? extends SBackgroundTask<T>> jobs) throws Exception {
+		ExecutorService executor = STaskExecutor.createBounded(name, threads);
+		try {
+			List<Future<T>> futures = new ArrayList<Future<T>>();
+			for (final SBackgroundTask<T> job : jobs) futures.add(executor.submit(new Callable<T>() {
+				@Override public T call() throws Exception {
+					STaskHandler handler = new SConsoleHandler(false);
+					try { return job.run(handler); }
+					finally { handler.close(); }
+				}
+			}));
+			List<T> result = new ArrayList<T>();
+			int failures = 0;
+			for (Future<T> future : futures) {
+				try { result.add(future.get()); }
+				catch(ExecutionException ex) { SConsoleHandler.print(ex.getCause().toString()); ++failures; }
+			}
+			if (failures > 0) throw new Exception(failures + " of " + jobs.size() + " operations failed");
+			return result;
+		}
+		finally { executor.shutdownNow(); }
+	}
+}
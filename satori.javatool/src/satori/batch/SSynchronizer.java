@@ -0,0 +1,82 @@
+package satori.batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import satori.data.SBlob;
+import satori.data.STestData;
+import satori.metadata.SInputMetadata;
+import satori.metadata.SJudge;
+import satori.task.SConsoleHandler;
+import satori.task.STaskHandler;
+import satori.test.STestBasicReader;
+import satori.test.STestReader;
+
+//brings the tests of a problem in line with a directory tree, blobs are compared by their hash codes
+public class SSynchronizer {
+	private static boolean sameBlob(SBlob blob1, SBlob blob2) {
+		return blob1.getHash().equals(blob2.getHash()) && blob1.getName().equals(blob2.getName());
+	}
+	private static boolean sameJudge(SJudge judge1, SJudge judge2) {
+		if (judge1 == null || judge2 == null) return judge1 == judge2;
+		return sameBlob(judge1.getBlob(), judge2.getBlob());
+	}
+	private static Map<String, Object> getInput(STestReader test) {
+		Map<String, Object> result = new HashMap<String, Object>();
+		for (Map.Entry<SInputMetadata, Object> entry : test.getInput().entrySet()) result.put(entry.getKey().getName(), entry.getValue());
+		return result;
+	}
+	private static boolean sameInput(STestReader test1, STestReader test2) {
+		Map<String, Object> input1 = getInput(test1);
+		Map<String, Object> input2 = getInput(test2);
+		if (!input1.keySet().equals(input2.keySet())) return false;
+		for (Map.Entry<String, Object> entry : input1.entrySet()) {
+			Object value1 = entry.getValue();
+			Object value2 = input2.get(entry.getKey());
+			if (value1 instanceof SBlob && value2 instanceof SBlob) { if (!sameBlob((SBlob)value1, (SBlob)value2)) return false; }
+			else if (!value1.equals(value2)) return false;
+		}
+		return true;
+	}
+	private static boolean sameTest(STestReader local, STestReader remote) {
+		return local.getDescription().equals(remote.getDescription()) && sameJudge(local.getJudge(), remote.getJudge()) && sameInput(local, remote);
+	}
+	
+	//with dry_run only the change set is printed, with keep remote tests missing locally are not deleted
+	public static void run(STaskHandler handler, long problem_id, File root, boolean dry_run, boolean keep) throws Exception {
+		Map<String, Long> existing = new HashMap<String, Long>();
+		List<Long> ids = new ArrayList<Long>();
+		for (STestBasicReader test : STestData.list(handler, problem_id)) {
+			existing.put(test.getName(), test.getId());
+			ids.add(test.getId());
+		}
+		List<STestReader> local = SImporter.readTests(handler, problem_id, root, existing);
+		Map<Long, STestReader> remote = new HashMap<Long, STestReader>();
+		for (STestReader test : STestData.load(handler, ids)) remote.put(test.getId(), test);
+		List<STestReader> created = new ArrayList<STestReader>();
+		List<STestReader> changed = new ArrayList<STestReader>();
+		Set<Long> kept = new HashSet<Long>();
+		for (STestReader test : local) {
+			if (!test.hasId()) { created.add(test); continue; }
+			kept.add(test.getId());
+			if (!sameTest(test, remote.get(test.getId()))) changed.add(test);
+		}
+		List<Long> deleted = new ArrayList<Long>();
+		if (!keep) for (Long id : ids) if (!kept.contains(id)) deleted.add(id);
+		STaskHandler output = dry_run ? new SConsoleHandler(true) : handler;
+		for (STestReader test : created) output.log("New: " + test.getName());
+		for (STestReader test : changed) output.log("Changed: " + test.getName());
+		for (Long id : deleted) output.log("Deleted: " + remote.get(id).getName());
+		SConsoleHandler.print(created.size() + " new, " + changed.size() + " changed, " + deleted.size() + " deleted, " + (kept.size() - changed.size()) + " unchanged tests");
+		if (dry_run) return;
+		List<STestReader> modified = new ArrayList<STestReader>(created);
+		modified.addAll(changed);
+		if (!modified.isEmpty()) STestData.saveAll(handler, modified);
+		if (!deleted.isEmpty()) STestData.deleteAll(handler, deleted);
+	}
+}
@@ -1,19 +1,31 @@
 package satori.common;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 public class SDataStatus {
 	private boolean modified = false;
 	private boolean outdated = false;
+	private final Set<String> modified_fields = new HashSet<String>(); //changed since the last sync
 
 	public boolean isModified() { return modified; }
+	public boolean isModified(String field) { return modified_fields.contains(field); }
 	public boolean isOutdated() { return outdated; }
+	public Set<String> getModifiedFields() { return Collections.unmodifiableSet(new HashSet<String>(modified_fields)); }
 
 	public void markUpToDate() {
 		modified = false;
 		outdated = false;
+		modified_fields.clear();
 	}
 	public void markModified() {
 		modified = true;
 	}
+	public void markModified(String field) {
+		modified = true;
+		modified_fields.add(field);
+	}
 	public void markOutdated() {
 		outdated = true;
 	}
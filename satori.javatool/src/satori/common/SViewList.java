@@ -0,0 +1,64 @@
+package satori.common;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.swing.SwingUtilities;
+
+//views of a model, held weakly so that views of closed panes do not leak
+//update() only marks the list as dirty, all dirty lists are delivered together on the event dispatch thread
+//and every view is updated at most once per delivery, no matter how many of its models changed
+public class SViewList {
+	private static final Set<SViewList> dirty = new LinkedHashSet<SViewList>();
+	private static boolean scheduled = false;
+	
+	private static final Runnable deliver_task = new Runnable() {
+		@Override public void run() { deliver(); }
+	};
+	
+	private final List<WeakReference<SView>> views = new ArrayList<WeakReference<SView>>();
+	
+	public synchronized void add(SView view) {
+		views.add(new WeakReference<SView>(view));
+	}
+	public synchronized void remove(SView view) {
+		Iterator<WeakReference<SView>> iter = views.iterator();
+		while (iter.hasNext()) {
+			SView current = iter.next().get();
+			if (current == null || current == view) iter.remove();
+		}
+	}
+	private synchronized void collect(Set<SView> result) {
+		Iterator<WeakReference<SView>> iter = views.iterator();
+		while (iter.hasNext()) {
+			SView current = iter.next().get();
+			if (current == null) iter.remove();
+			else result.add(current);
+		}
+	}
+	
+	public void update() {
+		synchronized (dirty) {
+			dirty.add(this);
+			if (scheduled) return;
+			scheduled = true;
+		}
+		SwingUtilities.invokeLater(deliver_task);
+	}
+	
+	private static void deliver() {
+		List<SViewList> lists;
+		synchronized (dirty) {
+			lists = new ArrayList<SViewList>(dirty);
+			dirty.clear();
+			scheduled = false;
+		}
+		Set<SView> targets = new LinkedHashSet<SView>();
+		for (SViewList list : lists) list.collect(targets);
+		for (SView view : targets) view.update();
+	}
+}
@@ -7,18 +7,27 @@ public class SConfig {
 	private static volatile int thrift_port = 2889;
 	private static volatile int blobs_port = 2887;
 	private static volatile boolean use_ssl = true;
+	private static volatile int connections = 4;
+	private static volatile int uploads = 2;
+	private static volatile long cache_size = 1024;
 	private static volatile boolean has_config = false;
 	
 	public static String getHost() { return host; }
 	public static int getThriftPort() { return thrift_port; }
 	public static int getBlobsPort() { return blobs_port; }
 	public static boolean getUseSSL() { return use_ssl; }
+	public static int getConnections() { return connections; }
+	public static int getUploads() { return uploads; }
+	public static long getCacheSize() { return cache_size; }
 	public static boolean hasConfig() { return has_config; }
 	
 	public static void setHost(String host) { SConfig.host = host; }
 	public static void setThriftPort(int port) { thrift_port = port; }
 	public static void setBlobsPort(int port) { blobs_port = port; }
 	public static void setUseSSL(boolean use_ssl) { SConfig.use_ssl = use_ssl; }
+	public static void setConnections(int connections) { SConfig.connections = Math.max(connections, 1); }
+	public static void setUploads(int uploads) { SConfig.uploads = Math.max(uploads, 1); }
+	public static void setCacheSize(long cache_size) { SConfig.cache_size = Math.max(cache_size, 0); }
 	
 	public static void load() {
 		Preferences prefs = Preferences.userNodeForPackage(SConfig.class);
@@ -26,6 +35,9 @@ public class SConfig {
 		thrift_port = Integer.valueOf(prefs.get("thrift port", String.valueOf(thrift_port)));
 		blobs_port = Integer.valueOf(prefs.get("blobs port", String.valueOf(blobs_port)));
 		use_ssl = Boolean.valueOf(prefs.get("use ssl", String.valueOf(use_ssl)));
+		connections = Integer.valueOf(prefs.get("connections", String.valueOf(connections)));
+		uploads = Integer.valueOf(prefs.get("uploads", String.valueOf(uploads)));
+		cache_size = Long.valueOf(prefs.get("cache size", String.valueOf(cache_size)));
 		has_config = Boolean.valueOf(prefs.get("has config", "false"));
 	}
 	public static void save() {
@@ -34,6 +46,9 @@ public class SConfig {
 		prefs.put("thrift port", String.valueOf(thrift_port));
 		prefs.put("blobs port", String.valueOf(blobs_port));
 		prefs.put("use ssl", String.valueOf(use_ssl));
+		prefs.put("connections", String.valueOf(connections));
+		prefs.put("uploads", String.valueOf(uploads));
+		prefs.put("cache size", String.valueOf(cache_size));
 		prefs.put("has config", "true");
 		has_config = true;
 	}
@@ -15,13 +15,14 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 
+import satori.data.SGlobal;
 import satori.main.SFrame;
 import satori.session.SSession;
 
 public class SConfigDialog {
 	private JDialog dialog;
 	private JPanel field_pane, button_pane;
-	private JTextField host, thrift_port, blobs_port;
+	private JTextField host, thrift_port, blobs_port, connections, uploads, cache_size;
 	private JCheckBox use_ssl;
 	private JButton confirm, cancel;
 	private boolean confirmed = false;
@@ -40,6 +41,9 @@ public class SConfigDialog {
 		field_pane.add(new JLabel("Server: "), c);
 		field_pane.add(new JLabel("Thrift port: "), c);
 		field_pane.add(new JLabel("Blobs port: "), c);
+		field_pane.add(new JLabel("Connections: "), c);
+		field_pane.add(new JLabel("Parallel uploads: "), c);
+		field_pane.add(new JLabel("Blob cache (MB): "), c);
 		c.gridx = 1; c.gridy = GridBagConstraints.RELATIVE; c.fill = GridBagConstraints.HORIZONTAL; c.weightx = 1.0; c.weighty = 0.0;
 		ActionListener confirm_listener = new ActionListener() {
 			@Override public void actionPerformed(ActionEvent e) {
@@ -59,6 +63,18 @@ public class SConfigDialog {
 		blobs_port.setPreferredSize(new Dimension(75, blobs_port.getPreferredSize().height));
 		blobs_port.addActionListener(confirm_listener);
 		field_pane.add(blobs_port, c);
+		connections = new JTextField(String.valueOf(SConfig.getConnections()));
+		connections.setPreferredSize(new Dimension(75, connections.getPreferredSize().height));
+		connections.addActionListener(confirm_listener);
+		field_pane.add(connections, c);
+		uploads = new JTextField(String.valueOf(SConfig.getUploads()));
+		uploads.setPreferredSize(new Dimension(75, uploads.getPreferredSize().height));
+		uploads.addActionListener(confirm_listener);
+		field_pane.add(uploads, c);
+		cache_size = new JTextField(String.valueOf(SConfig.getCacheSize()));
+		cache_size.setPreferredSize(new Dimension(75, cache_size.getPreferredSize().height));
+		cache_size.addActionListener(confirm_listener);
+		field_pane.add(cache_size, c);
 		use_ssl = new JCheckBox("Use SSL", SConfig.getUseSSL());
 		use_ssl.setPreferredSize(new Dimension(75, use_ssl.getPreferredSize().height));
 		field_pane.add(use_ssl, c);
@@ -87,7 +103,11 @@ public class SConfigDialog {
 		SConfig.setThriftPort(Integer.valueOf(thrift_port.getText()));
 		SConfig.setBlobsPort(Integer.valueOf(blobs_port.getText()));
 		SConfig.setUseSSL(use_ssl.isSelected());
+		SConfig.setConnections(Integer.valueOf(connections.getText()));
+		SConfig.setUploads(Integer.valueOf(uploads.getText()));
+		SConfig.setCacheSize(Long.valueOf(cache_size.getText()));
 		SSession.logout();
+		SGlobal.invalidate();
 		SConfig.save();
 	}
 	
@@ -0,0 +1,41 @@
+package satori.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+//composition of the futures of SSession.callAsync, the steps may throw checked exceptions, which fail the resulting future
+class SAsync {
+	interface Step<S, T> {
+		T run(S value) throws Exception;
+	}
+	
+	private static <S, T> Function<S, T> wrap(final Step<S, T> step) {
+		return new Function<S, T>() {
+			@Override public T apply(S value) {
+				try { return step.run(value); }
+				catch(RuntimeException ex) { throw ex; }
+				catch(Exception ex) { throw new CompletionException(ex); }
+			}
+		};
+	}
+	
+	static <S, T> CompletableFuture<T> then(CompletableFuture<S> future, Step<S, T> step) {
+		return future.thenApply(wrap(step));
+	}
+	static <S, T> CompletableFuture<T> compose(CompletableFuture<S> future, Step<S, CompletableFuture<T>> step) {
+		return future.thenCompose(wrap(step));
+	}
+	//the results in the order of the futures, fails if any of them fails
+	static <T> CompletableFuture<List<T>> all(final List<CompletableFuture<T>> futures) {
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).thenApply(new Function<Void, List<T>>() {
+			@Override public List<T> apply(Void value) {
+				List<T> result = new ArrayList<T>();
+				for (CompletableFuture<T> future : futures) result.add(future.join());
+				return result;
+			}
+		});
+	}
+}
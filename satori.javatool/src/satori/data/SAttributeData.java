@@ -6,10 +6,8 @@ import java.util.Map;
 
 import satori.common.SAssertException;
 import satori.metadata.SMetadata;
-import satori.session.SSession;
 import satori.task.STaskHandler;
 import satori.thrift.gen.AnonymousAttribute;
-import satori.thrift.gen.Blob;
 
 class SAttributeData {
 	static AnonymousAttribute createAnonymousAttribute(Object value) {
@@ -61,12 +59,6 @@ class SAttributeData {
 		return result;
 	}
 	
-	private static boolean checkBlobExists(STaskHandler handler, SBlob blob) throws Exception {
-		handler.log("Checking blob existence...");
-		Blob.Iface iface = new Blob.Client(handler.getProtocol());
-		return iface.Blob_exists(SSession.getToken(), blob.getHash());
-	}
-	
 	static Map<String, Object> createRemoteAttrMap(Map<? extends SMetadata, Object> attrs) {
 		Map<String, Object> result = new HashMap<String, Object>();
 		for (Map.Entry<? extends SMetadata, Object> entry : attrs.entrySet()) {
@@ -88,10 +80,8 @@ class SAttributeData {
 	}
 	
 	static void createBlobs(STaskHandler handler, Map<String, Object> attrs) throws Exception {
-		for (Object value : attrs.values()) {
-			if (!(value instanceof SBlob)) continue;
-			SBlob blob = (SBlob)value;
-			if (!checkBlobExists(handler, blob)) blob.saveRemoteTask(handler);
-		}
+		SBlobSync sync = new SBlobSync();
+		sync.add(attrs);
+		sync.run(handler);
 	}
 }
@@ -4,10 +4,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
 
 import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 
 import satori.task.SResultTask;
@@ -16,6 +16,8 @@ import satori.task.STaskException;
 import satori.task.STaskHandler;
 
 public class SBlob {
+	private static final long MAP_SIZE = 64 * 1024 * 1024;
+	
 	private String name;
 	private String hash;
 	private File file;
@@ -55,10 +57,23 @@ public class SBlob {
 		return self;
 	}
 	
+	static String encodeHash(byte[] bin_hash) { return Base64.encodeBase64URLSafeString(bin_hash); }
 	private static String computeHashTask(STaskHandler handler, File file) throws Exception {
+		SHashIndex.Stamp stamp = SHashIndex.getStamp(file);
+		String hash = SHashIndex.get(stamp);
+		if (hash != null) return hash;
 		handler.log("Computing hash code...");
-		byte[] bin_hash = DigestUtils.sha384(new FileInputStream(file));
-		return Base64.encodeBase64URLSafeString(bin_hash);
+		MessageDigest digest = MessageDigest.getInstance("SHA-384");
+		FileChannel in = new FileInputStream(file).getChannel();
+		try {
+			long size = in.size();
+			for (long pos = 0; pos < size; pos += MAP_SIZE)
+				digest.update(in.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_SIZE, size - pos)));
+		}
+		finally { IOUtils.closeQuietly(in); }
+		hash = encodeHash(digest.digest());
+		SHashIndex.put(file, stamp, hash);
+		return hash;
 	}
 	public static SBlob createLocalTask(STaskHandler handler, File file) throws Exception {
 		SBlob self = new SBlob();
@@ -75,7 +90,16 @@ public class SBlob {
 	
 	public InputStream getStreamTask() throws Exception {
 		if (file != null) return new FileInputStream(file);
-		else return SBlobClient.getBlobStream(hash);
+		File cached = SBlobCache.get(hash);
+		if (cached != null) return new FileInputStream(cached);
+		return SBlobClient.getBlobStream(hash);
+	}
+	//for reading only the beginning of the blob, doesn't download it into the cache
+	public InputStream getPartialStreamTask() throws Exception {
+		if (file != null) return new FileInputStream(file);
+		File cached = SBlobCache.find(hash);
+		if (cached != null) return new FileInputStream(cached);
+		return SBlobClient.getBlobStream(hash);
 	}
 	
 	public SBlob rename(String name) {
@@ -89,22 +113,30 @@ public class SBlob {
 	
 	private static void copyTask(STaskHandler handler, File src, File dst) throws Exception {
 		handler.log("Copying local file...");
-		InputStream in = new FileInputStream(src);
+		FileChannel in = new FileInputStream(src).getChannel();
 		try {
-			OutputStream out = new FileOutputStream(dst);
-			try { IOUtils.copy(in, out); }
+			FileChannel out = new FileOutputStream(dst).getChannel();
+			try {
+				long size = in.size(), pos = 0, count;
+				while (pos < size && (count = in.transferTo(pos, size - pos, out)) > 0) pos += count;
+			}
 			finally { IOUtils.closeQuietly(out); }
 		} finally { IOUtils.closeQuietly(in); }
 	}
 	
 	public void saveLocalTask(STaskHandler handler, File dst) throws Exception {
 		if (dst.equals(file)) return;
-		if (file != null) copyTask(handler, file, dst);
+		if (file != null) { copyTask(handler, file, dst); return; }
+		handler.log("Loading blob...");
+		File cached = SBlobCache.get(hash);
+		if (cached != null) copyTask(handler, cached, dst);
 		else SBlobClient.getBlob(handler, hash, dst);
 	}
 	public void saveRemoteTask(STaskHandler handler) throws Exception {
-		String remote_hash = SBlobClient.putBlob(handler, file);
-		if (!remote_hash.equals(hash)) throw new Exception("Hash codes don't match. Load the local file again");
+		SHashIndex.Stamp stamp = SHashIndex.getStamp(file);
+		String sent_hash = SBlobClient.putBlob(handler, file, hash);
+		SHashIndex.put(file, stamp, sent_hash);
+		if (!sent_hash.equals(hash)) throw new Exception("Hash codes don't match. Load the local file again");
 	}
 	
 	public void saveLocal(final STaskHandler handler, final File dst) throws STaskException {
@@ -0,0 +1,112 @@
+package satori.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+import satori.config.SConfig;
+
+class SBlobCache {
+	private static File root = null;
+	private static Map<String, Long> entries = null; //in LRU order
+	private static long total_size = 0;
+	
+	private static File getRoot() {
+		return new File(new File(System.getProperty("user.home"), ".satori"), "blobs");
+	}
+	private static File getFile(File root, String hash) {
+		return new File(new File(root, hash.substring(0, 2)), hash);
+	}
+	
+	private static synchronized boolean initialize() {
+		if (entries != null) return root != null;
+		entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+		File dir = getRoot();
+		if (!dir.isDirectory() && !dir.mkdirs()) return false;
+		root = dir;
+		List<File> files = new ArrayList<File>();
+		File[] subdirs = root.listFiles();
+		if (subdirs != null) for (File subdir : subdirs) {
+			File[] list = subdir.listFiles();
+			if (list != null) files.addAll(Arrays.asList(list));
+		}
+		Collections.sort(files, new Comparator<File>() {
+			@Override public int compare(File f1, File f2) { return Long.valueOf(f1.lastModified()).compareTo(f2.lastModified()); }
+		});
+		for (File file : files) {
+			if (file.getName().endsWith(".part")) { file.delete(); continue; }
+			entries.put(file.getName(), file.length());
+			total_size += file.length();
+		}
+		return true;
+	}
+	
+	private static synchronized File lookup(String hash) {
+		if (entries.get(hash) == null) return null; //get(), unlike containsKey(), moves the hit to the most recently used end
+		File file = getFile(root, hash);
+		if (!file.isFile()) {
+			total_size -= entries.remove(hash);
+			return null;
+		}
+		file.setLastModified(System.currentTimeMillis());
+		return file;
+	}
+	private static synchronized void insert(String hash, long size) {
+		Long old_size = entries.put(hash, size);
+		if (old_size != null) total_size -= old_size;
+		total_size += size;
+		long budget = SConfig.getCacheSize() * 1024 * 1024;
+		Iterator<Map.Entry<String, Long>> iter = entries.entrySet().iterator();
+		while (total_size > budget && iter.hasNext()) {
+			Map.Entry<String, Long> entry = iter.next();
+			if (entry.getKey().equals(hash)) continue;
+			getFile(root, entry.getKey()).delete();
+			total_size -= entry.getValue();
+			iter.remove();
+		}
+	}
+	
+	private static File download(String hash) throws Exception {
+		File file = getFile(root, hash);
+		file.getParentFile().mkdirs();
+		File temp = File.createTempFile(hash.substring(0, 8), ".part", file.getParentFile());
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-384");
+			InputStream in = new DigestInputStream(SBlobClient.getBlobStream(hash), digest);
+			try {
+				OutputStream out = new FileOutputStream(temp);
+				try { IOUtils.copy(in, out); }
+				finally { IOUtils.closeQuietly(out); }
+			} finally { IOUtils.closeQuietly(in); }
+			if (!SBlob.encodeHash(digest.digest()).equals(hash)) throw new Exception("Downloaded blob doesn't match its hash code");
+			if (!temp.renameTo(file) && !file.isFile()) throw new Exception("Cannot store blob in the local cache");
+		} finally { temp.delete(); }
+		insert(hash, file.length());
+		return file;
+	}
+	
+	//returns null if the blob is not cached
+	static File find(String hash) {
+		if (!hash.matches("[A-Za-z0-9_-]{8,}") || !initialize()) return null;
+		return lookup(hash);
+	}
+	//returns null if the cache cannot be used
+	static File get(String hash) throws Exception {
+		if (!hash.matches("[A-Za-z0-9_-]{8,}") || !initialize()) return null;
+		File file = lookup(hash);
+		return file != null ? file : download(hash);
+	}
+}
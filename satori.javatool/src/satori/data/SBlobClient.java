@@ -3,14 +3,22 @@ package satori.data;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
+import java.util.zip.CRC32;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
@@ -23,10 +31,18 @@ import javax.net.ssl.X509TrustManager;
 import org.apache.commons.io.IOUtils;
 
 import satori.config.SConfig;
+import satori.metrics.SMetrics;
 import satori.session.SSession;
 import satori.task.STaskHandler;
 
 public class SBlobClient {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long CHUNK_SIZE = 16 * 1024 * 1024;
+	private static final int MAX_RETRIES = 3;
+	private static final ThreadLocal<ByteBuffer> buffer = new ThreadLocal<ByteBuffer>() {
+		@Override protected ByteBuffer initialValue() { return ByteBuffer.allocate(BUFFER_SIZE); }
+	};
+	
 	private static HttpURLConnection createUnsecureConnection(String address) throws Exception {
 		URL url = new URL("http://" + address);
 		return (HttpURLConnection)url.openConnection();
@@ -53,6 +69,7 @@ public class SBlobClient {
 		else return createUnsecureConnection(address);
 	}
 	private static String getUploadPath() { return "/blob/upload"; }
+	private static String getChunkPath(String hash) { return "/blob/upload/" + hash; }
 	private static String getDownloadPath(String hash) { return "/blob/download/" + hash; }
 	
 	private static HttpURLConnection putBlobSetup(File file) throws Exception {
@@ -62,62 +79,271 @@ public class SBlobClient {
 		connection.setRequestMethod("PUT");
 		connection.setRequestProperty("Cookie", "satori_token=" + SSession.getToken());
 		connection.setRequestProperty("Filename", file.getName());
-		if (file.length() > Integer.MAX_VALUE) throw new Exception("Cannot handle blobs bigger than " + Integer.MAX_VALUE + "B");
-		connection.setFixedLengthStreamingMode((int)file.length());
+		connection.setFixedLengthStreamingMode(file.length());
 		return connection;
 	}
-	private static HttpURLConnection getBlobSetup(String hash) throws Exception {
+	private static HttpURLConnection getOffsetSetup(String hash) throws Exception {
+		HttpURLConnection connection = createConnection(getChunkPath(hash));
+		connection.setUseCaches(false);
+		connection.setRequestMethod("GET");
+		connection.setRequestProperty("Cookie", "satori_token=" + SSession.getToken());
+		return connection;
+	}
+	private static HttpURLConnection putChunkSetup(String hash, long offset, long length, long total, long crc) throws Exception {
+		HttpURLConnection connection = createConnection(getChunkPath(hash));
+		connection.setDoOutput(true);
+		connection.setUseCaches(false);
+		connection.setRequestMethod("PUT");
+		connection.setRequestProperty("Cookie", "satori_token=" + SSession.getToken());
+		connection.setRequestProperty("Offset", String.valueOf(offset));
+		connection.setRequestProperty("Blob-Length", String.valueOf(total));
+		connection.setRequestProperty("Chunk-Crc32", String.valueOf(crc));
+		connection.setFixedLengthStreamingMode(length);
+		return connection;
+	}
+	private static HttpURLConnection getBlobSetup(String hash, long offset) throws Exception {
 		HttpURLConnection connection = createConnection(getDownloadPath(hash));
 		connection.setUseCaches(false);
 		connection.setRequestMethod("GET");
 		connection.setRequestProperty("Cookie", "satori_token=" + SSession.getToken());
+		if (offset > 0) connection.setRequestProperty("Range", "bytes=" + offset + "-");
 		return connection;
 	}
 	private static void checkResponse(HttpURLConnection connection) throws Exception {
 		int response = connection.getResponseCode();
 		if (response != HttpURLConnection.HTTP_OK) throw new Exception("Error saving blob: " + response + " " + connection.getResponseMessage());
 	}
-	private static void putBlob(HttpURLConnection connection, File file) throws Exception {
-		InputStream in = new FileInputStream(file);
+	//returns the hash code of the data sent
+	private static String putBlob(HttpURLConnection connection, File file) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-384");
+		ByteBuffer buf = buffer.get();
+		FileChannel in = new FileInputStream(file).getChannel();
 		try {
 			OutputStream out = connection.getOutputStream();
-			try { IOUtils.copy(in, out); }
+			try {
+				buf.clear();
+				while (in.read(buf) != -1) {
+					digest.update(buf.array(), 0, buf.position());
+					out.write(buf.array(), 0, buf.position());
+					buf.clear();
+				}
+			}
 			finally { IOUtils.closeQuietly(out); }
 		} finally { IOUtils.closeQuietly(in); }
+		return SBlob.encodeHash(digest.digest());
 	}
 	private static String readResponse(HttpURLConnection connection) throws Exception {
-		InputStream in = connection.getInputStream();
+		InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+		if (in == null) return "";
 		Writer result = new StringWriter();
 		try { IOUtils.copy(in, result); }
 		finally { IOUtils.closeQuietly(in); }
-		return result.toString();
+		return result.toString().trim();
+	}
+	
+	//returns -1 if the server doesn't support chunked uploads
+	private static long getUploadOffset(String hash) throws Exception {
+		SMetrics.Call call = SMetrics.start("blob:offset");
+		boolean success = false;
+		try {
+			HttpURLConnection connection = getOffsetSetup(hash);
+			call.markSent();
+			int response = connection.getResponseCode();
+			call.markReceived();
+			if (response == HttpURLConnection.HTTP_NOT_FOUND || response == HttpURLConnection.HTTP_BAD_METHOD) { success = true; return -1; }
+			checkResponse(connection);
+			long offset = Long.parseLong(readResponse(connection));
+			success = true;
+			return offset;
+		}
+		finally { call.finish(success); }
 	}
-	private static void getBlob(HttpURLConnection connection, File file) throws Exception {
-		InputStream in = connection.getInputStream();
+	private static HttpURLConnection putChunk(FileChannel in, String hash, long offset, long length, long total) throws Exception {
+		MappedByteBuffer chunk = in.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		CRC32 crc = new CRC32();
+		crc.update(chunk.duplicate());
+		HttpURLConnection connection = putChunkSetup(hash, offset, length, total, crc.getValue());
+		byte[] buf = buffer.get().array();
+		OutputStream out = connection.getOutputStream();
 		try {
-			OutputStream out = new FileOutputStream(file);
-			try { IOUtils.copy(in, out); }
+			while (chunk.hasRemaining()) {
+				int count = Math.min(chunk.remaining(), buf.length);
+				chunk.get(buf, 0, count);
+				out.write(buf, 0, count);
+			}
+		}
+		finally { IOUtils.closeQuietly(out); }
+		return connection;
+	}
+	private static void updateDigest(MessageDigest digest, FileChannel in, long start, long end) throws Exception {
+		for (long pos = start; pos < end; pos += CHUNK_SIZE)
+			digest.update(in.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(CHUNK_SIZE, end - pos)));
+	}
+	//returns the hash code of the data sent or null if the server doesn't support chunked uploads
+	private static String putBlobChunked(STaskHandler handler, File file, String hash) throws Exception {
+		long offset = getUploadOffset(hash);
+		if (offset < 0) return null;
+		MessageDigest digest = MessageDigest.getInstance("SHA-384");
+		long digested = 0;
+		String remote_hash = null;
+		FileChannel in = new FileInputStream(file).getChannel();
+		try {
+			long total = in.size();
+			int failures = 0;
+			int restarts = 0; //the whole upload rejected, never reset by the accepted chunks
+			boolean verified = false;
+			while (remote_hash == null) {
+				if (offset > total) throw new Exception("Server has more data than the local file. Load the local file again");
+				if (offset < digested) { digest.reset(); digested = 0; }
+				updateDigest(digest, in, digested, offset);
+				digested = offset;
+				long length = Math.min(CHUNK_SIZE, total - offset);
+				//the server rejects the last chunk of a file that has changed since its hash code was computed
+				if (offset + length == total && !verified) {
+					MessageDigest local = (MessageDigest)digest.clone();
+					updateDigest(local, in, offset, total);
+					if (!SBlob.encodeHash(local.digest()).equals(hash)) throw new Exception("Hash codes don't match. Load the local file again");
+					verified = true;
+				}
+				SMetrics.Call call = SMetrics.start("blob:upload-chunk");
+				boolean success = false;
+				try {
+					HttpURLConnection connection = putChunk(in, hash, offset, length, total);
+					call.addBytesOut(length);
+					call.markSent();
+					int response = connection.getResponseCode();
+					call.markReceived();
+					if (response == HttpURLConnection.HTTP_CONFLICT) {
+						long next = Long.parseLong(readResponse(connection));
+						if (++failures > MAX_RETRIES || (next == 0 && offset + length == total && ++restarts > MAX_RETRIES)) throw new Exception("Error saving blob: chunk rejected by the server");
+						offset = next;
+						continue;
+					}
+					checkResponse(connection);
+					if (offset + length == total) remote_hash = readResponse(connection);
+					else offset = Long.parseLong(readResponse(connection));
+					failures = 0;
+					success = true;
+				}
+				catch(IOException ex) {
+					if (++failures > MAX_RETRIES) throw ex;
+					handler.log("Resuming upload...");
+					offset = getUploadOffset(hash);
+				}
+				finally { call.finish(success); }
+			}
+			updateDigest(digest, in, digested, total);
+		} finally { IOUtils.closeQuietly(in); }
+		String sent_hash = SBlob.encodeHash(digest.digest());
+		if (!remote_hash.equals(sent_hash)) throw new Exception("Blob was corrupted during transfer");
+		return sent_hash;
+	}
+	
+	//reconnects and continues from the current position if the transfer breaks
+	private static class ResumingInputStream extends InputStream {
+		private final String hash;
+		private InputStream in = null;
+		private long length = -1;
+		private long pos = 0;
+		private int failures = 0;
+		private final SMetrics.Call call = SMetrics.start("blob:download");
+		private boolean failed = false;
+		
+		public ResumingInputStream(String hash) throws Exception {
+			this.hash = hash;
+			try { open(); }
+			catch(Exception ex) { call.finish(false); throw ex; }
+		}
+		
+		private void open() throws Exception {
+			HttpURLConnection connection = getBlobSetup(hash, pos);
+			call.markSent();
+			int response = connection.getResponseCode();
+			call.markReceived();
+			if (pos > 0 && response == HttpURLConnection.HTTP_PARTIAL) {
+				String range = connection.getHeaderField("Content-Range");
+				if (range != null && range.lastIndexOf('/') != -1) length = Long.parseLong(range.substring(range.lastIndexOf('/') + 1));
+				in = connection.getInputStream();
+				return;
+			}
+			checkResponse(connection);
+			length = connection.getContentLengthLong();
+			in = connection.getInputStream();
+			if (pos > 0) { //the server ignored the range
+				IOUtils.skipFully(in, pos);
+				if (length != -1) length += pos;
+			}
+		}
+		private void resume(IOException ex) throws IOException {
+			if (++failures > MAX_RETRIES) { failed = true; throw ex; }
+			IOUtils.closeQuietly(in);
+			try { open(); }
+			catch(IOException e) { failed = true; throw e; }
+			catch(Exception e) { failed = true; throw new IOException(e); }
+		}
+		
+		@Override public int read() throws IOException {
+			byte[] b = new byte[1];
+			int count;
+			while ((count = read(b, 0, 1)) == 0);
+			return count < 0 ? -1 : (b[0] & 0xff);
+		}
+		@Override public int read(byte[] b, int off, int len) throws IOException {
+			while (true) {
+				try {
+					int count = in.read(b, off, len);
+					if (count > 0) { pos += count; failures = 0; call.addBytesIn(count); }
+					if (count < 0 && length != -1 && pos < length) throw new IOException("Unexpected end of blob");
+					return count;
+				}
+				catch(IOException ex) { resume(ex); }
+			}
+		}
+		@Override public int available() throws IOException { return in.available(); }
+		@Override public void close() throws IOException {
+			call.finish(!failed && (length == -1 || pos >= length));
+			in.close();
+		}
+	}
+	
+	private static void getBlob(InputStream stream, File file) throws Exception {
+		ReadableByteChannel in = Channels.newChannel(stream);
+		try {
+			FileChannel out = new FileOutputStream(file).getChannel();
+			try {
+				long pos = 0, count;
+				while ((count = out.transferFrom(in, pos, BUFFER_SIZE)) > 0) pos += count;
+			}
 			finally { IOUtils.closeQuietly(out); }
 		} finally { IOUtils.closeQuietly(in); }
 	}
 	
-	public static String putBlob(STaskHandler handler, File file) throws Exception {
+	public static String putBlob(STaskHandler handler, File file, String hash) throws Exception {
 		handler.log("Saving blob...");
-		HttpURLConnection connection = putBlobSetup(file);
-		putBlob(connection, file);
-		checkResponse(connection);
-		return readResponse(connection);
+		String sent_hash = file.length() > CHUNK_SIZE ? putBlobChunked(handler, file, hash) : null;
+		if (sent_hash != null) return sent_hash;
+		SMetrics.Call call = SMetrics.start("blob:upload");
+		boolean success = false;
+		try {
+			HttpURLConnection connection = putBlobSetup(file);
+			sent_hash = putBlob(connection, file);
+			call.addBytesOut(file.length());
+			call.markSent();
+			checkResponse(connection);
+			call.markReceived();
+			String remote_hash = readResponse(connection);
+			if (!remote_hash.equals(sent_hash)) throw new Exception("Blob was corrupted during transfer");
+			success = true;
+			return sent_hash;
+		}
+		finally { call.finish(success); }
 	}
 	
 	public static InputStream getBlobStream(String hash) throws Exception {
-		HttpURLConnection connection = getBlobSetup(hash);
-		checkResponse(connection);
-		return connection.getInputStream();
+		return new ResumingInputStream(hash);
 	}
 	public static void getBlob(STaskHandler handler, String hash, File file) throws Exception {
 		handler.log("Loading blob...");
-		HttpURLConnection connection = getBlobSetup(hash);
-		checkResponse(connection);
-		getBlob(connection, file);
+		getBlob(getBlobStream(hash), file);
 	}
 }
@@ -0,0 +1,82 @@
+package satori.data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import satori.config.SConfig;
+import satori.session.SSession;
+import satori.task.STaskHandler;
+import satori.thrift.gen.Blob;
+
+class SBlobSync {
+	//blobs known to exist on the server, with the time they were last confirmed
+	//the server may remove unreferenced blobs, so they are asked about again after TTL
+	private static final long TTL = 10 * 60 * 1000;
+	private static final int MAX_KNOWN = 4096;
+	private static String known_server = null;
+	private static final Map<String, Long> known = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) { return size() > MAX_KNOWN; }
+	};
+	
+	private static String getServer() { return SConfig.getHost() + ":" + SConfig.getThriftPort(); }
+	private static synchronized boolean isKnown(String hash) {
+		if (!getServer().equals(known_server)) {
+			known.clear();
+			known_server = getServer();
+		}
+		Long confirmed = known.get(hash);
+		if (confirmed == null) return false;
+		if (System.currentTimeMillis() - confirmed <= TTL) return true;
+		known.remove(hash);
+		return false;
+	}
+	private static synchronized void addKnown(String hash) {
+		if (getServer().equals(known_server)) known.put(hash, System.currentTimeMillis());
+	}
+	static synchronized void clearKnown() { known.clear(); }
+	
+	private final Map<String, SBlob> blobs = new LinkedHashMap<String, SBlob>();
+	
+	public void add(SBlob blob) {
+		if (blob.getFile() == null) return; //remote blobs come from the server
+		if (!blobs.containsKey(blob.getHash())) blobs.put(blob.getHash(), blob);
+	}
+	public void add(Map<String, Object> attrs) {
+		for (Object value : attrs.values()) if (value instanceof SBlob) add((SBlob)value);
+	}
+	
+	private static List<SBlob> findMissing(STaskHandler handler, List<SBlob> blobs) throws Exception {
+		handler.log("Checking blob existence...");
+		List<Boolean> exists = SParallel.map(handler, blobs, new SParallel.Job<SBlob, Boolean>() {
+			@Override public Boolean run(STaskHandler handler, SBlob blob) throws Exception {
+				Blob.Iface iface = new Blob.Client(handler.getProtocol());
+				return iface.Blob_exists(SSession.getToken(), blob.getHash());
+			}
+		});
+		List<SBlob> missing = new ArrayList<SBlob>();
+		for (int i = 0; i < blobs.size(); ++i) {
+			if (exists.get(i)) addKnown(blobs.get(i).getHash());
+			else missing.add(blobs.get(i));
+		}
+		return missing;
+	}
+	private static void upload(STaskHandler handler, List<SBlob> blobs) throws Exception {
+		SParallel.map(handler, SConfig.getUploads(), blobs, new SParallel.Job<SBlob, Void>() {
+			@Override public Void run(STaskHandler handler, SBlob blob) throws Exception {
+				blob.saveRemoteTask(handler);
+				addKnown(blob.getHash());
+				return null;
+			}
+		});
+	}
+	
+	public void run(STaskHandler handler) throws Exception {
+		List<SBlob> unknown = new ArrayList<SBlob>();
+		for (SBlob blob : blobs.values()) if (!isKnown(blob.getHash())) unknown.add(blob);
+		if (unknown.isEmpty()) return;
+		List<SBlob> missing = findMissing(handler, unknown);
+		if (!missing.isEmpty()) upload(handler, missing);
+	}
+}
@@ -38,4 +38,10 @@ public class SGlobal {
 			}
 		});
 	}
+	
+	//the next request loads everything from the server again and checks the blobs for existence
+	public static void invalidate() {
+		SGlobalCache.invalidateAll();
+		SBlobSync.clearKnown();
+	}
 }
@@ -0,0 +1,129 @@
+package satori.data;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+import satori.config.SConfig;
+import satori.session.SSession;
+import satori.task.STaskExecutor;
+import satori.task.STaskHandler;
+import satori.task.STaskManager;
+
+//global metadata shared by all callers of one session
+abstract class SGlobalCache<T> {
+	private static final long TTL = 10 * 60 * 1000;
+	private static final ExecutorService executor = STaskExecutor.createBounded("Global refresh", 1);
+	
+	private final Object load_lock = new Object();
+	private T value = null;
+	private String key = null;
+	private long loaded = 0;
+	private boolean refreshing = false;
+	private CompletableFuture<T> loading = null;
+	private String loading_key = null;
+	
+	protected abstract T load(STaskHandler handler) throws Exception;
+	protected abstract CompletableFuture<T> loadAsync(STaskHandler handler);
+	
+	private static String getKey() { return SConfig.getHost() + ":" + SConfig.getThriftPort() + "/" + SSession.getToken(); }
+	
+	private synchronized T getCurrent(String key) {
+		if (value == null || !key.equals(this.key)) return null;
+		if (!refreshing && System.currentTimeMillis() - loaded > TTL) {
+			refreshing = true;
+			executor.execute(new Runnable() {
+				@Override public void run() { refresh(); }
+			});
+		}
+		return value;
+	}
+	private synchronized void setCurrent(String key, T value) {
+		this.key = key;
+		this.value = value;
+		loaded = System.currentTimeMillis();
+	}
+	
+	private void refresh() {
+		String key = getKey();
+		STaskHandler handler = STaskManager.getSilentHandler();
+		try {
+			T value = load(handler);
+			synchronized (this) { if (key.equals(this.key)) setCurrent(key, value); }
+		}
+		catch(Exception ex) {} //the old value is served until the next attempt
+		finally {
+			handler.close();
+			synchronized (this) { refreshing = false; }
+		}
+	}
+	
+	public T get(STaskHandler handler) throws Exception {
+		String key = getKey();
+		T current = getCurrent(key);
+		if (current != null) return current;
+		synchronized (load_lock) { //one load at a time, the others wait for its result
+			current = getCurrent(key);
+			if (current != null) return current;
+			current = load(handler);
+			setCurrent(key, current);
+			return current;
+		}
+	}
+	//concurrent misses share one load
+	public CompletableFuture<T> getAsync(STaskHandler handler) {
+		final String key = getKey();
+		T current = getCurrent(key);
+		if (current != null) return CompletableFuture.completedFuture(current);
+		synchronized (this) {
+			if (loading != null && key.equals(loading_key)) return loading;
+			loading_key = key;
+			loading = SAsync.then(loadAsync(handler), new SAsync.Step<T, T>() {
+				@Override public T run(T value) {
+					synchronized (SGlobalCache.this) {
+						setCurrent(key, value);
+						loading = null;
+					}
+					return value;
+				}
+			});
+			final CompletableFuture<T> result = loading;
+			result.exceptionally(new Function<Throwable, T>() {
+				@Override public T apply(Throwable ex) {
+					synchronized (SGlobalCache.this) { if (loading == result) loading = null; }
+					return null;
+				}
+			});
+			return result;
+		}
+	}
+	public synchronized void invalidate() {
+		value = null;
+		key = null;
+	}
+	
+	static final SGlobalCache<Map<String, SBlob>> judges = new SGlobalCache<Map<String, SBlob>>() {
+		@Override protected Map<String, SBlob> load(STaskHandler handler) throws Exception { return SGlobalData.loadJudges(handler); }
+		@Override protected CompletableFuture<Map<String, SBlob>> loadAsync(STaskHandler handler) { return SGlobalData.loadJudgesAsync(handler); }
+	};
+	static final SGlobalCache<Map<String, String>> dispatchers = new SGlobalCache<Map<String, String>>() {
+		@Override protected Map<String, String> load(STaskHandler handler) throws Exception { return SGlobalData.loadDispatchers(handler); }
+		@Override protected CompletableFuture<Map<String, String>> loadAsync(STaskHandler handler) { return SGlobalData.loadDispatchersAsync(handler); }
+	};
+	static final SGlobalCache<Map<String, String>> accumulators = new SGlobalCache<Map<String, String>>() {
+		@Override protected Map<String, String> load(STaskHandler handler) throws Exception { return SGlobalData.loadAccumulators(handler); }
+		@Override protected CompletableFuture<Map<String, String>> loadAsync(STaskHandler handler) { return SGlobalData.loadAccumulatorsAsync(handler); }
+	};
+	static final SGlobalCache<Map<String, String>> reporters = new SGlobalCache<Map<String, String>>() {
+		@Override protected Map<String, String> load(STaskHandler handler) throws Exception { return SGlobalData.loadReporters(handler); }
+		@Override protected CompletableFuture<Map<String, String>> loadAsync(STaskHandler handler) { return SGlobalData.loadReportersAsync(handler); }
+	};
+	
+	static void invalidateAll() {
+		judges.invalidate();
+		dispatchers.invalidate();
+		accumulators.invalidate();
+		reporters.invalidate();
+	}
+}
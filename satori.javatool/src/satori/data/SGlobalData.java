@@ -7,36 +7,126 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingTransport;
 
 import satori.common.SPair;
+import satori.session.SAsyncCall;
 import satori.session.SSession;
 import satori.task.STaskHandler;
+import satori.thrift.gen.AnonymousAttribute;
 import satori.thrift.gen.Global;
+import satori.thrift.gen.GlobalStruct;
 
 class SGlobalData {
-	static Map<String, SBlob> getJudges(STaskHandler handler) throws Exception {
+	static Map<String, SBlob> loadJudges(STaskHandler handler) throws Exception {
 		handler.log("Loading judges...");
 		Global.Iface iface = new Global.Client(handler.getProtocol());
 		long id = iface.Global_get_instance(SSession.getToken()).getId();
 		return Collections.unmodifiableMap(getBlobAttrMap(iface.Global_judges_get_map(SSession.getToken(), id)));
 	}
 	
-	static Map<String, String> getDispatchers(STaskHandler handler) throws Exception {
+	private static final SAsyncCall.Service<Global.AsyncClient> ASYNC_SERVICE = new SAsyncCall.Service<Global.AsyncClient>() {
+		@Override public Global.AsyncClient createClient(TProtocolFactory protocol_factory, TAsyncClientManager manager, TNonblockingTransport transport) { return new Global.AsyncClient(protocol_factory, manager, transport); }
+	};
+	
+	static CompletableFuture<Map<String, SBlob>> loadJudgesAsync(STaskHandler handler) {
+		handler.log("Loading judges...");
+		final String token = SSession.getToken();
+		CompletableFuture<GlobalStruct> global = SSession.callAsync(new SAsyncCall<Global.AsyncClient, Global.AsyncClient.Global_get_instance_call, GlobalStruct>(ASYNC_SERVICE) {
+			@Override protected void start(Global.AsyncClient client, AsyncMethodCallback<Global.AsyncClient.Global_get_instance_call> callback) throws TException { client.Global_get_instance(token, callback); }
+			@Override protected GlobalStruct getResult(Global.AsyncClient.Global_get_instance_call call) throws Exception { return call.getResult(); }
+			@Override protected GlobalStruct run(TProtocol protocol) throws Exception { return new Global.Client(protocol).Global_get_instance(token); }
+		});
+		CompletableFuture<Map<String, AnonymousAttribute>> judges = SAsync.compose(global, new SAsync.Step<GlobalStruct, CompletableFuture<Map<String, AnonymousAttribute>>>() {
+			@Override public CompletableFuture<Map<String, AnonymousAttribute>> run(GlobalStruct global) {
+				final long id = global.getId();
+				return SSession.callAsync(new SAsyncCall<Global.AsyncClient, Global.AsyncClient.Global_judges_get_map_call, Map<String, AnonymousAttribute>>(ASYNC_SERVICE) {
+					@Override protected void start(Global.AsyncClient client, AsyncMethodCallback<Global.AsyncClient.Global_judges_get_map_call> callback) throws TException { client.Global_judges_get_map(token, id, callback); }
+					@Override protected Map<String, AnonymousAttribute> getResult(Global.AsyncClient.Global_judges_get_map_call call) throws Exception { return call.getResult(); }
+					@Override protected Map<String, AnonymousAttribute> run(TProtocol protocol) throws Exception { return new Global.Client(protocol).Global_judges_get_map(token, id); }
+				});
+			}
+		});
+		return SAsync.then(judges, new SAsync.Step<Map<String, AnonymousAttribute>, Map<String, SBlob>>() {
+			@Override public Map<String, SBlob> run(Map<String, AnonymousAttribute> judges) { return Collections.unmodifiableMap(getBlobAttrMap(judges)); }
+		});
+	}
+	
+	private static Map<String, String> putSnapshot(String key, Map<String, String> map) throws Exception {
+		SSnapshotStore.put(key, new SSnapshotStore.Writer().writeStringMap(map));
+		return Collections.unmodifiableMap(map);
+	}
+	//returns null if there is no snapshot
+	static Map<String, String> getSnapshot(String key) throws Exception {
+		byte[] data = SSnapshotStore.get(key);
+		if (data == null) return null;
+		return Collections.unmodifiableMap(new SSnapshotStore.Reader(data).readStringMap());
+	}
+	
+	static Map<String, String> loadDispatchers(STaskHandler handler) throws Exception {
 		handler.log("Loading dispatchers...");
 		Global.Iface iface = new Global.Client(handler.getProtocol());
-		return iface.Global_get_dispatchers(SSession.getToken());
+		return putSnapshot("dispatchers", iface.Global_get_dispatchers(SSession.getToken()));
 	}
-	static Map<String, String> getAccumulators(STaskHandler handler) throws Exception {
+	static Map<String, String> loadAccumulators(STaskHandler handler) throws Exception {
 		handler.log("Loading accumulators...");
 		Global.Iface iface = new Global.Client(handler.getProtocol());
-		return iface.Global_get_accumulators(SSession.getToken());
+		return putSnapshot("accumulators", iface.Global_get_accumulators(SSession.getToken()));
 	}
-	static Map<String, String> getReporters(STaskHandler handler) throws Exception {
+	static Map<String, String> loadReporters(STaskHandler handler) throws Exception {
 		handler.log("Loading reporters...");
 		Global.Iface iface = new Global.Client(handler.getProtocol());
-		return iface.Global_get_reporters(SSession.getToken());
+		return putSnapshot("reporters", iface.Global_get_reporters(SSession.getToken()));
 	}
 	
+	private static CompletableFuture<Map<String, String>> loadAsync(STaskHandler handler, final String key, SAsyncCall<Global.AsyncClient, ?, Map<String, String>> call) {
+		handler.log("Loading " + key + "...");
+		CompletableFuture<Map<String, String>> result = SSession.callAsync(call);
+		return SAsync.then(result, new SAsync.Step<Map<String, String>, Map<String, String>>() {
+			@Override public Map<String, String> run(Map<String, String> map) throws Exception { return putSnapshot(key, map); }
+		});
+	}
+	static CompletableFuture<Map<String, String>> loadDispatchersAsync(STaskHandler handler) {
+		final String token = SSession.getToken();
+		return loadAsync(handler, "dispatchers", new SAsyncCall<Global.AsyncClient, Global.AsyncClient.Global_get_dispatchers_call, Map<String, String>>(ASYNC_SERVICE) {
+			@Override protected void start(Global.AsyncClient client, AsyncMethodCallback<Global.AsyncClient.Global_get_dispatchers_call> callback) throws TException { client.Global_get_dispatchers(token, callback); }
+			@Override protected Map<String, String> getResult(Global.AsyncClient.Global_get_dispatchers_call call) throws Exception { return call.getResult(); }
+			@Override protected Map<String, String> run(TProtocol protocol) throws Exception { return new Global.Client(protocol).Global_get_dispatchers(token); }
+		});
+	}
+	static CompletableFuture<Map<String, String>> loadAccumulatorsAsync(STaskHandler handler) {
+		final String token = SSession.getToken();
+		return loadAsync(handler, "accumulators", new SAsyncCall<Global.AsyncClient, Global.AsyncClient.Global_get_accumulators_call, Map<String, String>>(ASYNC_SERVICE) {
+			@Override protected void start(Global.AsyncClient client, AsyncMethodCallback<Global.AsyncClient.Global_get_accumulators_call> callback) throws TException { client.Global_get_accumulators(token, callback); }
+			@Override protected Map<String, String> getResult(Global.AsyncClient.Global_get_accumulators_call call) throws Exception { return call.getResult(); }
+			@Override protected Map<String, String> run(TProtocol protocol) throws Exception { return new Global.Client(protocol).Global_get_accumulators(token); }
+		});
+	}
+	static CompletableFuture<Map<String, String>> loadReportersAsync(STaskHandler handler) {
+		final String token = SSession.getToken();
+		return loadAsync(handler, "reporters", new SAsyncCall<Global.AsyncClient, Global.AsyncClient.Global_get_reporters_call, Map<String, String>>(ASYNC_SERVICE) {
+			@Override protected void start(Global.AsyncClient client, AsyncMethodCallback<Global.AsyncClient.Global_get_reporters_call> callback) throws TException { client.Global_get_reporters(token, callback); }
+			@Override protected Map<String, String> getResult(Global.AsyncClient.Global_get_reporters_call call) throws Exception { return call.getResult(); }
+			@Override protected Map<String, String> run(TProtocol protocol) throws Exception { return new Global.Client(protocol).Global_get_reporters(token); }
+		});
+	}
+	
+	static Map<String, SBlob> getJudges(STaskHandler handler) throws Exception { return SGlobalCache.judges.get(handler); }
+	static Map<String, String> getDispatchers(STaskHandler handler) throws Exception { return SGlobalCache.dispatchers.get(handler); }
+	static Map<String, String> getAccumulators(STaskHandler handler) throws Exception { return SGlobalCache.accumulators.get(handler); }
+	static Map<String, String> getReporters(STaskHandler handler) throws Exception { return SGlobalCache.reporters.get(handler); }
+	static CompletableFuture<Map<String, SBlob>> getJudgesAsync(STaskHandler handler) { return SGlobalCache.judges.getAsync(handler); }
+	static CompletableFuture<Map<String, String>> getDispatchersAsync(STaskHandler handler) { return SGlobalCache.dispatchers.getAsync(handler); }
+	static CompletableFuture<Map<String, String>> getAccumulatorsAsync(STaskHandler handler) { return SGlobalCache.accumulators.getAsync(handler); }
+	static CompletableFuture<Map<String, String>> getReportersAsync(STaskHandler handler) { return SGlobalCache.reporters.getAsync(handler); }
+	
 	static List<SPair<String, String>> convertToList(Map<String, String> map) {
 		List<SPair<String, String>> result = new ArrayList<SPair<String, String>>();
 		for (Map.Entry<String, String> entry : map.entrySet()) result.add(new SPair<String, String>(entry.getKey(), entry.getValue()));
@@ -0,0 +1,136 @@
+package satori.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.commons.io.IOUtils;
+
+class SHashIndex {
+	private static final int MAX_ENTRIES = 10000;
+	private static final long SAVE_DELAY = 2000;
+	//files modified this recently may still change within the same timestamp
+	private static final long RACY_TIME = 2000;
+	
+	static class Stamp {
+		private final String path;
+		private final long length;
+		private final long modified;
+		private final String key;
+		
+		private Stamp(String path, long length, long modified, String key) {
+			this.path = path;
+			this.length = length;
+			this.modified = modified;
+			this.key = key;
+		}
+		
+		private boolean matches(Stamp other) {
+			return path.equals(other.path) && length == other.length && modified == other.modified && key.equals(other.key);
+		}
+	}
+	
+	private static class Entry {
+		private final Stamp stamp;
+		private final String hash;
+		
+		public Entry(Stamp stamp, String hash) {
+			this.stamp = stamp;
+			this.hash = hash;
+		}
+	}
+	
+	private static Map<String, Entry> entries = null; //in LRU order
+	private static Timer save_timer = null;
+	
+	private static File getFile() {
+		return new File(new File(System.getProperty("user.home"), ".satori"), "hashes");
+	}
+	
+	static Stamp getStamp(File file) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			if (!attrs.isRegularFile()) return null;
+			Object key = attrs.fileKey();
+			return new Stamp(file.getCanonicalPath(), attrs.size(), attrs.lastModifiedTime().toMillis(), key != null ? key.toString() : "");
+		}
+		catch(Exception ex) { return null; }
+	}
+	
+	private static void load() {
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			@Override protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) { return size() > MAX_ENTRIES; }
+		};
+		File file = getFile();
+		if (!file.isFile()) return;
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", 5);
+				if (fields.length != 5) continue;
+				Stamp stamp = new Stamp(fields[4], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]);
+				entries.put(stamp.path, new Entry(stamp, fields[0]));
+			}
+		}
+		catch(Exception ex) { entries.clear(); }
+		finally { IOUtils.closeQuietly(reader); }
+	}
+	private static synchronized void save() {
+		if (save_timer != null) save_timer.cancel();
+		save_timer = null;
+		File file = getFile();
+		File temp = new File(file.getPath() + ".part");
+		PrintWriter writer = null;
+		try {
+			file.getParentFile().mkdirs();
+			writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"));
+			for (Entry entry : entries.values()) {
+				Stamp stamp = entry.stamp;
+				writer.print(entry.hash + "\t" + stamp.length + "\t" + stamp.modified + "\t" + stamp.key + "\t" + stamp.path + "\n");
+			}
+			writer.close();
+			writer = null;
+			if (!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file))) temp.delete();
+		}
+		catch(Exception ex) { temp.delete(); }
+		finally { IOUtils.closeQuietly(writer); }
+	}
+	private static void scheduleSave() {
+		if (save_timer != null) return;
+		save_timer = new Timer("Satori hash index", false);
+		save_timer.schedule(new TimerTask() {
+			@Override public void run() { save(); }
+		}, SAVE_DELAY);
+	}
+	
+	//returns null if the file has changed since its hash code was stored
+	static synchronized String get(Stamp stamp) {
+		if (stamp == null || stamp.path.indexOf('\n') != -1 || stamp.path.indexOf('\t') != -1) return null;
+		if (entries == null) load();
+		Entry entry = entries.get(stamp.path);
+		if (entry == null || !entry.stamp.matches(stamp)) return null;
+		return entry.hash;
+	}
+	//the stamp must have been taken before the hash code was computed
+	static synchronized void put(File file, Stamp stamp, String hash) {
+		if (stamp == null || stamp.path.indexOf('\n') != -1 || stamp.path.indexOf('\t') != -1) return;
+		if (System.currentTimeMillis() - stamp.modified < RACY_TIME) return;
+		Stamp current = getStamp(file);
+		if (current == null || !current.matches(stamp)) return;
+		if (entries == null) load();
+		entries.put(stamp.path, new Entry(stamp, hash));
+		scheduleSave();
+	}
+}
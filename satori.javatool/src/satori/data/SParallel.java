@@ -0,0 +1,99 @@
+package satori.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.thrift.protocol.TProtocol;
+
+import satori.config.SConfig;
+import satori.session.SSession;
+import satori.task.SResultTask;
+import satori.task.STask;
+import satori.task.STaskException;
+import satori.task.STaskHandler;
+
+class SParallel {
+	interface Job<S, T> {
+		T run(STaskHandler handler, S item) throws Exception;
+	}
+	
+	private static class WorkerHandler implements STaskHandler {
+		private final STaskHandler parent;
+		private TProtocol protocol = null;
+		
+		public WorkerHandler(STaskHandler parent) { this.parent = parent; }
+		
+		@Override public TProtocol getProtocol() throws Exception {
+			if (protocol == null) protocol = SSession.getProtocol(this);
+			return protocol;
+		}
+		
+		@Override public void log(String message) { parent.log(message); }
+		@Override public void execute(STask task) throws STaskException {
+			try { task.run(); }
+			catch(Exception ex) { log(ex.toString()); throw new STaskException(); }
+		}
+		@Override public <T> T execute(SResultTask<T> task) throws STaskException {
+			try { return task.run(); }
+			catch(Exception ex) { log(ex.toString()); throw new STaskException(); }
+		}
+		
+		public void discard() {
+			if (protocol != null) SSession.discardProtocol(protocol);
+			protocol = null;
+		}
+		@Override public void close() {
+			if (protocol != null) SSession.closeProtocol(protocol);
+			protocol = null;
+		}
+	}
+	
+	static <S, T> List<T> map(STaskHandler handler, List<S> items, Job<S, T> job) throws Exception {
+		return map(handler, SConfig.getConnections(), items, job);
+	}
+	static <S, T> List<T> map(final STaskHandler handler, int workers, final List<S> items, final Job<S, T> job) throws Exception {
+		workers = Math.min(workers, items.size());
+		if (workers <= 1) {
+			List<T> result = new ArrayList<T>();
+			for (S item : items) result.add(job.run(handler, item));
+			return result;
+		}
+		final Object[] result = new Object[items.size()];
+		final AtomicInteger next = new AtomicInteger(0);
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		CompletionService<Void> completion = new ExecutorCompletionService<Void>(executor);
+		try {
+			for (int i = 0; i < workers; ++i) completion.submit(new Callable<Void>() {
+				@Override public Void call() throws Exception {
+					WorkerHandler worker = new WorkerHandler(handler);
+					try {
+						int index;
+						while (!Thread.currentThread().isInterrupted() && (index = next.getAndIncrement()) < items.size())
+							result[index] = job.run(worker, items.get(index));
+					}
+					catch(Exception ex) { worker.discard(); throw ex; }
+					finally { worker.close(); }
+					return null;
+				}
+			});
+			for (int i = 0; i < workers; ++i) {
+				try { completion.take().get(); }
+				catch(ExecutionException ex) {
+					if (ex.getCause() instanceof Exception) throw (Exception)ex.getCause();
+					throw ex;
+				}
+			}
+		}
+		finally { executor.shutdownNow(); }
+		@SuppressWarnings("unchecked") List<T> list = (List<T>)Arrays.asList(result);
+		return list;
+	}
+}
@@ -2,8 +2,17 @@ package satori.data;
 
 import java.util.AbstractList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingTransport;
 
 import satori.problem.SProblemReader;
+import satori.session.SAsyncCall;
 import satori.session.SSession;
 import satori.task.STaskHandler;
 import satori.thrift.gen.Problem;
@@ -28,7 +37,34 @@ public class SProblemData {
 	public static SProblemReader load(STaskHandler handler, long id) throws Exception {
 		handler.log("Loading problem...");
 		Problem.Iface iface = new Problem.Client(handler.getProtocol());
-		return new ProblemWrap(iface.Problem_get_struct(SSession.getToken(), id));
+		ProblemStruct struct = iface.Problem_get_struct(SSession.getToken(), id);
+		SSnapshotStore.put("problem-" + id, new SSnapshotStore.Writer().writeStruct(struct));
+		return new ProblemWrap(struct);
+	}
+	private static final SAsyncCall.Service<Problem.AsyncClient> ASYNC_SERVICE = new SAsyncCall.Service<Problem.AsyncClient>() {
+		@Override public Problem.AsyncClient createClient(TProtocolFactory protocol_factory, TAsyncClientManager manager, TNonblockingTransport transport) { return new Problem.AsyncClient(protocol_factory, manager, transport); }
+	};
+	
+	public static CompletableFuture<SProblemReader> loadAsync(STaskHandler handler, final long id) {
+		handler.log("Loading problem...");
+		final String token = SSession.getToken();
+		CompletableFuture<ProblemStruct> result = SSession.callAsync(new SAsyncCall<Problem.AsyncClient, Problem.AsyncClient.Problem_get_struct_call, ProblemStruct>(ASYNC_SERVICE) {
+			@Override protected void start(Problem.AsyncClient client, AsyncMethodCallback<Problem.AsyncClient.Problem_get_struct_call> callback) throws TException { client.Problem_get_struct(token, id, callback); }
+			@Override protected ProblemStruct getResult(Problem.AsyncClient.Problem_get_struct_call call) throws Exception { return call.getResult(); }
+			@Override protected ProblemStruct run(TProtocol protocol) throws Exception { return new Problem.Client(protocol).Problem_get_struct(token, id); }
+		});
+		return SAsync.then(result, new SAsync.Step<ProblemStruct, SProblemReader>() {
+			@Override public SProblemReader run(ProblemStruct struct) throws Exception {
+				SSnapshotStore.put("problem-" + id, new SSnapshotStore.Writer().writeStruct(struct));
+				return new ProblemWrap(struct);
+			}
+		});
+	}
+	//returns null if there is no snapshot
+	public static SProblemReader loadSnapshot(long id) throws Exception {
+		byte[] data = SSnapshotStore.get("problem-" + id);
+		if (data == null) return null;
+		return new ProblemWrap(new SSnapshotStore.Reader(data).readStruct(new ProblemStruct()));
 	}
 	
 	private static ProblemStruct createStruct(SProblemReader problem) {
@@ -52,11 +88,56 @@ public class SProblemData {
 		handler.log("Deleting problem...");
 		Problem.Iface iface = new Problem.Client(handler.getProtocol());
 		iface.Problem_delete(SSession.getToken(), id);
+		SSnapshotStore.remove("problem-" + id);
+	}
+	public static CompletableFuture<Void> deleteAsync(STaskHandler handler, final long id) {
+		handler.log("Deleting problem...");
+		final String token = SSession.getToken();
+		CompletableFuture<Void> result = SSession.callAsync(new SAsyncCall<Problem.AsyncClient, Problem.AsyncClient.Problem_delete_call, Void>(ASYNC_SERVICE) {
+			@Override protected void start(Problem.AsyncClient client, AsyncMethodCallback<Problem.AsyncClient.Problem_delete_call> callback) throws TException { client.Problem_delete(token, id, callback); }
+			@Override protected Void getResult(Problem.AsyncClient.Problem_delete_call call) throws Exception {
+				call.getResult();
+				return null;
+			}
+			@Override protected Void run(TProtocol protocol) throws Exception {
+				new Problem.Client(protocol).Problem_delete(token, id);
+				return null;
+			}
+		});
+		return SAsync.then(result, new SAsync.Step<Void, Void>() {
+			@Override public Void run(Void value) throws Exception {
+				SSnapshotStore.remove("problem-" + id);
+				return null;
+			}
+		});
 	}
 	public static List<SProblemReader> list(STaskHandler handler) throws Exception {
 		handler.log("Loading problem list...");
 		Problem.Iface iface = new Problem.Client(handler.getProtocol());
 		ProblemStruct filter = new ProblemStruct();
-		return new ProblemListWrap(iface.Problem_filter(SSession.getToken(), filter));
+		List<ProblemStruct> list = iface.Problem_filter(SSession.getToken(), filter);
+		SSnapshotStore.put("problems", new SSnapshotStore.Writer().writeStructList(list));
+		return new ProblemListWrap(list);
+	}
+	public static CompletableFuture<List<SProblemReader>> listAsync(STaskHandler handler) {
+		handler.log("Loading problem list...");
+		final String token = SSession.getToken();
+		CompletableFuture<List<ProblemStruct>> result = SSession.callAsync(new SAsyncCall<Problem.AsyncClient, Problem.AsyncClient.Problem_filter_call, List<ProblemStruct>>(ASYNC_SERVICE) {
+			@Override protected void start(Problem.AsyncClient client, AsyncMethodCallback<Problem.AsyncClient.Problem_filter_call> callback) throws TException { client.Problem_filter(token, new ProblemStruct(), callback); }
+			@Override protected List<ProblemStruct> getResult(Problem.AsyncClient.Problem_filter_call call) throws Exception { return call.getResult(); }
+			@Override protected List<ProblemStruct> run(TProtocol protocol) throws Exception { return new Problem.Client(protocol).Problem_filter(token, new ProblemStruct()); }
+		});
+		return SAsync.then(result, new SAsync.Step<List<ProblemStruct>, List<SProblemReader>>() {
+			@Override public List<SProblemReader> run(List<ProblemStruct> list) throws Exception {
+				SSnapshotStore.put("problems", new SSnapshotStore.Writer().writeStructList(list));
+				return new ProblemListWrap(list);
+			}
+		});
+	}
+	//returns null if there is no snapshot
+	public static List<SProblemReader> listSnapshot() throws Exception {
+		byte[] data = SSnapshotStore.get("problems");
+		if (data == null) return null;
+		return new ProblemListWrap(new SSnapshotStore.Reader(data).readStructList(ProblemStruct.class));
 	}
 }
@@ -0,0 +1,165 @@
+package satori.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.thrift.TBase;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TList;
+import org.apache.thrift.protocol.TMap;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.transport.TIOStreamTransport;
+
+import satori.config.SConfig;
+import satori.session.SSession;
+import satori.thrift.gen.AnonymousAttribute;
+
+//last known server data, for showing something before the server answers and for browsing offline
+//each entry starts with a version stamp (digest of the rest), unchanged entries are not rewritten
+class SSnapshotStore {
+	private static final int STAMP_SIZE = 20;
+	
+	static class Writer {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final TProtocol protocol = new TBinaryProtocol(new TIOStreamTransport(bytes));
+		
+		public Writer writeStruct(TBase<?, ?> struct) throws Exception {
+			struct.write(protocol);
+			return this;
+		}
+		public Writer writeStructList(List<? extends TBase<?, ?>> list) throws Exception {
+			protocol.writeListBegin(new TList(TType.STRUCT, list.size()));
+			for (TBase<?, ?> struct : list) struct.write(protocol);
+			protocol.writeListEnd();
+			return this;
+		}
+		public Writer writeAttrMap(Map<String, AnonymousAttribute> map) throws Exception {
+			protocol.writeMapBegin(new TMap(TType.STRING, TType.STRUCT, map.size()));
+			for (Map.Entry<String, AnonymousAttribute> entry : map.entrySet()) {
+				protocol.writeString(entry.getKey());
+				entry.getValue().write(protocol);
+			}
+			protocol.writeMapEnd();
+			return this;
+		}
+		public Writer writeStringMap(Map<String, String> map) throws Exception {
+			protocol.writeMapBegin(new TMap(TType.STRING, TType.STRING, map.size()));
+			for (Map.Entry<String, String> entry : map.entrySet()) {
+				protocol.writeString(entry.getKey());
+				protocol.writeString(entry.getValue());
+			}
+			protocol.writeMapEnd();
+			return this;
+		}
+		public byte[] toByteArray() { return bytes.toByteArray(); }
+	}
+	
+	static class Reader {
+		private final TProtocol protocol;
+		
+		public Reader(byte[] data) { protocol = new TBinaryProtocol(new TIOStreamTransport(new ByteArrayInputStream(data))); }
+		
+		public <T extends TBase<?, ?>> T readStruct(T struct) throws Exception {
+			struct.read(protocol);
+			return struct;
+		}
+		public <T extends TBase<?, ?>> List<T> readStructList(Class<T> type) throws Exception {
+			TList header = protocol.readListBegin();
+			List<T> result = new ArrayList<T>(header.size);
+			for (int i = 0; i < header.size; ++i) result.add(readStruct(type.getDeclaredConstructor().newInstance()));
+			protocol.readListEnd();
+			return result;
+		}
+		public Map<String, AnonymousAttribute> readAttrMap() throws Exception {
+			TMap header = protocol.readMapBegin();
+			Map<String, AnonymousAttribute> result = new HashMap<String, AnonymousAttribute>();
+			for (int i = 0; i < header.size; ++i) result.put(protocol.readString(), readStruct(new AnonymousAttribute()));
+			protocol.readMapEnd();
+			return result;
+		}
+		public Map<String, String> readStringMap() throws Exception {
+			TMap header = protocol.readMapBegin();
+			Map<String, String> result = new HashMap<String, String>();
+			for (int i = 0; i < header.size; ++i) result.put(protocol.readString(), protocol.readString());
+			protocol.readMapEnd();
+			return result;
+		}
+	}
+	
+	//one directory per server and user
+	private static File getDir() {
+		String user = SSession.getUsername() != null ? SSession.getUsername() : "";
+		String scope = SConfig.getHost() + "_" + SConfig.getThriftPort() + "_" + user;
+		return new File(new File(new File(System.getProperty("user.home"), ".satori"), "snapshots"), scope.replaceAll("[^A-Za-z0-9._-]", "_"));
+	}
+	private static byte[] getStamp(byte[] data) throws Exception {
+		return MessageDigest.getInstance("SHA-1").digest(data);
+	}
+	private static byte[] readStamp(File file) {
+		byte[] stamp = new byte[STAMP_SIZE];
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+			in.readFully(stamp);
+			return stamp;
+		}
+		catch(Exception ex) { return null; }
+		finally { IOUtils.closeQuietly(in); }
+	}
+	
+	//returns null if there is no snapshot
+	static synchronized byte[] get(String key) {
+		File file = new File(getDir(), key);
+		if (!file.isFile()) return null;
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			byte[] content = IOUtils.toByteArray(in);
+			if (content.length < STAMP_SIZE) return null;
+			byte[] data = Arrays.copyOfRange(content, STAMP_SIZE, content.length);
+			if (!Arrays.equals(getStamp(data), Arrays.copyOf(content, STAMP_SIZE))) return null;
+			return data;
+		}
+		catch(Exception ex) { return null; }
+		finally { IOUtils.closeQuietly(in); }
+	}
+	//failures are ignored, the snapshot is only a hint
+	static synchronized void put(String key, Writer writer) {
+		File file = new File(getDir(), key);
+		try {
+			byte[] data = writer.toByteArray();
+			byte[] stamp = getStamp(data);
+			if (Arrays.equals(stamp, readStamp(file))) return;
+			file.getParentFile().mkdirs();
+			File temp = new File(file.getPath() + ".part");
+			OutputStream out = new FileOutputStream(temp);
+			try {
+				out.write(stamp);
+				out.write(data);
+			}
+			finally { IOUtils.closeQuietly(out); }
+			if (!temp.renameTo(file)) {
+				file.delete();
+				temp.renameTo(file);
+			}
+		}
+		catch(Exception ex) {}
+	}
+	static synchronized void remove(String key) {
+		new File(getDir(), key).delete();
+	}
+}
@@ -1,17 +1,31 @@
 package satori.data;
 
 import static satori.data.SAttributeData.convertAttrMap;
-import static satori.data.SAttributeData.createBlobs;
 import static satori.data.SAttributeData.createLocalAttrMap;
 import static satori.data.SAttributeData.createRemoteAttrMap;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingTransport;
 
 import satori.common.SAssert;
+import satori.common.SListener1;
+import satori.common.SPair;
 import satori.metadata.SOutputMetadata;
+import satori.session.SAsyncCall;
+import satori.session.SPipeline;
 import satori.session.SSession;
 import satori.task.STaskHandler;
 import satori.test.STemporarySubmitReader;
@@ -24,30 +38,167 @@ public class STemporarySubmitData {
 	static class TemporarySubmitWrap implements STemporarySubmitReader {
 		private final boolean pending;
 		private final Map<SOutputMetadata, Object> result;
-		public TemporarySubmitWrap(TemporarySubmitStruct struct, List<SOutputMetadata> meta, Map<String, AnonymousAttribute> data) {
-			pending = struct.isPending();
+		public TemporarySubmitWrap(boolean pending, List<SOutputMetadata> meta, Map<String, AnonymousAttribute> data) {
+			this.pending = pending;
 			result = Collections.unmodifiableMap(createLocalAttrMap(meta, data));
 		}
+		public TemporarySubmitWrap(TemporarySubmitStruct struct, List<SOutputMetadata> meta, Map<String, AnonymousAttribute> data) {
+			this(struct.isPending(), meta, data);
+		}
 		@Override public boolean getPending() { return pending; }
 		@Override public Map<SOutputMetadata, Object> getResult() { return result; }
 	}
 	
 	public static STemporarySubmitReader load(STaskHandler handler, long id, List<SOutputMetadata> meta) throws Exception {
 		handler.log("Loading temporary submit result...");
-		TemporarySubmit.Iface iface = new TemporarySubmit.Client(handler.getProtocol());
-		return new TemporarySubmitWrap(iface.TemporarySubmit_get_struct(SSession.getToken(), id), meta, iface.TemporarySubmit_result_get_map(SSession.getToken(), id));
+		SPipeline pipeline = new SPipeline(handler.getProtocol());
+		TemporarySubmit.Client struct_client = new TemporarySubmit.Client(pipeline.createProtocol());
+		TemporarySubmit.Client result_client = new TemporarySubmit.Client(pipeline.createProtocol());
+		struct_client.send_TemporarySubmit_get_struct(SSession.getToken(), id);
+		result_client.send_TemporarySubmit_result_get_map(SSession.getToken(), id);
+		return new TemporarySubmitWrap(struct_client.recv_TemporarySubmit_get_struct(), meta, result_client.recv_TemporarySubmit_result_get_map());
+	}
+	//up to this many submits are checked by their own calls, more by one call for all pending submits the user can see
+	private static final int MAX_CHECKED = 32;
+	
+	private static Set<Long> getPending(List<TemporarySubmitStruct> structs) {
+		Set<Long> pending = new HashSet<Long>();
+		for (TemporarySubmitStruct struct : structs) if (struct.isPending()) pending.add(struct.getId());
+		return pending;
+	}
+	private static Set<Long> findPending(STaskHandler handler, List<Long> ids) throws Exception {
+		if (ids.size() > MAX_CHECKED) {
+			TemporarySubmit.Iface iface = new TemporarySubmit.Client(handler.getProtocol());
+			TemporarySubmitStruct filter = new TemporarySubmitStruct();
+			filter.setPending(true);
+			return getPending(iface.TemporarySubmit_filter(SSession.getToken(), filter));
+		}
+		//all calls in one round trip
+		SPipeline pipeline = new SPipeline(handler.getProtocol());
+		List<TemporarySubmit.Client> clients = new ArrayList<TemporarySubmit.Client>();
+		for (long id : ids) {
+			TemporarySubmit.Client client = new TemporarySubmit.Client(pipeline.createProtocol());
+			client.send_TemporarySubmit_get_struct(SSession.getToken(), id);
+			clients.add(client);
+		}
+		List<TemporarySubmitStruct> structs = new ArrayList<TemporarySubmitStruct>();
+		for (TemporarySubmit.Client client : clients) structs.add(client.recv_TemporarySubmit_get_struct());
+		return getPending(structs);
+	}
+	//the pending submits first, then the results of the finished ones
+	public static List<STemporarySubmitReader> load(STaskHandler handler, final List<Long> ids, final List<List<SOutputMetadata>> meta) throws Exception {
+		handler.log("Loading temporary submit results...");
+		final Set<Long> pending = findPending(handler, ids);
+		List<Integer> indices = new ArrayList<Integer>();
+		for (int i = 0; i < ids.size(); ++i) indices.add(i);
+		return SParallel.map(handler, indices, new SParallel.Job<Integer, STemporarySubmitReader>() {
+			@Override public STemporarySubmitReader run(STaskHandler handler, Integer i) throws Exception {
+				if (pending.contains(ids.get(i))) return new TemporarySubmitWrap(true, meta.get(i), Collections.<String, AnonymousAttribute>emptyMap());
+				TemporarySubmit.Iface iface = new TemporarySubmit.Client(handler.getProtocol());
+				return new TemporarySubmitWrap(false, meta.get(i), iface.TemporarySubmit_result_get_map(SSession.getToken(), ids.get(i)));
+			}
+		});
+	}
+	private static final SAsyncCall.Service<TemporarySubmit.AsyncClient> ASYNC_SERVICE = new SAsyncCall.Service<TemporarySubmit.AsyncClient>() {
+		@Override public TemporarySubmit.AsyncClient createClient(TProtocolFactory protocol_factory, TAsyncClientManager manager, TNonblockingTransport transport) { return new TemporarySubmit.AsyncClient(protocol_factory, manager, transport); }
+	};
+	
+	private static CompletableFuture<Map<String, AnonymousAttribute>> loadResultAsync(final String token, final long id) {
+		return SSession.callAsync(new SAsyncCall<TemporarySubmit.AsyncClient, TemporarySubmit.AsyncClient.TemporarySubmit_result_get_map_call, Map<String, AnonymousAttribute>>(ASYNC_SERVICE) {
+			@Override protected void start(TemporarySubmit.AsyncClient client, AsyncMethodCallback<TemporarySubmit.AsyncClient.TemporarySubmit_result_get_map_call> callback) throws TException { client.TemporarySubmit_result_get_map(token, id, callback); }
+			@Override protected Map<String, AnonymousAttribute> getResult(TemporarySubmit.AsyncClient.TemporarySubmit_result_get_map_call call) throws Exception { return call.getResult(); }
+			@Override protected Map<String, AnonymousAttribute> run(TProtocol protocol) throws Exception { return new TemporarySubmit.Client(protocol).TemporarySubmit_result_get_map(token, id); }
+		});
+	}
+	private static CompletableFuture<TemporarySubmitStruct> loadStructAsync(final String token, final long id) {
+		return SSession.callAsync(new SAsyncCall<TemporarySubmit.AsyncClient, TemporarySubmit.AsyncClient.TemporarySubmit_get_struct_call, TemporarySubmitStruct>(ASYNC_SERVICE) {
+			@Override protected void start(TemporarySubmit.AsyncClient client, AsyncMethodCallback<TemporarySubmit.AsyncClient.TemporarySubmit_get_struct_call> callback) throws TException { client.TemporarySubmit_get_struct(token, id, callback); }
+			@Override protected TemporarySubmitStruct getResult(TemporarySubmit.AsyncClient.TemporarySubmit_get_struct_call call) throws Exception { return call.getResult(); }
+			@Override protected TemporarySubmitStruct run(TProtocol protocol) throws Exception { return new TemporarySubmit.Client(protocol).TemporarySubmit_get_struct(token, id); }
+		});
+	}
+	public static CompletableFuture<STemporarySubmitReader> loadAsync(STaskHandler handler, final long id, final List<SOutputMetadata> meta) {
+		handler.log("Loading temporary submit result...");
+		final String token = SSession.getToken();
+		final CompletableFuture<TemporarySubmitStruct> struct = loadStructAsync(token, id);
+		final CompletableFuture<Map<String, AnonymousAttribute>> data = loadResultAsync(token, id);
+		return SAsync.then(CompletableFuture.allOf(struct, data), new SAsync.Step<Void, STemporarySubmitReader>() {
+			@Override public STemporarySubmitReader run(Void value) { return new TemporarySubmitWrap(struct.join(), meta, data.join()); }
+		});
+	}
+	//as findPending, the structs of a few submits are requested at once
+	private static CompletableFuture<Set<Long>> findPendingAsync(final String token, List<Long> ids) {
+		if (ids.size() > MAX_CHECKED) {
+			final TemporarySubmitStruct filter = new TemporarySubmitStruct();
+			filter.setPending(true);
+			CompletableFuture<List<TemporarySubmitStruct>> structs = SSession.callAsync(new SAsyncCall<TemporarySubmit.AsyncClient, TemporarySubmit.AsyncClient.TemporarySubmit_filter_call, List<TemporarySubmitStruct>>(ASYNC_SERVICE) {
+				@Override protected void start(TemporarySubmit.AsyncClient client, AsyncMethodCallback<TemporarySubmit.AsyncClient.TemporarySubmit_filter_call> callback) throws TException { client.TemporarySubmit_filter(token, filter, callback); }
+				@Override protected List<TemporarySubmitStruct> getResult(TemporarySubmit.AsyncClient.TemporarySubmit_filter_call call) throws Exception { return call.getResult(); }
+				@Override protected List<TemporarySubmitStruct> run(TProtocol protocol) throws Exception { return new TemporarySubmit.Client(protocol).TemporarySubmit_filter(token, filter); }
+			});
+			return SAsync.then(structs, new SAsync.Step<List<TemporarySubmitStruct>, Set<Long>>() {
+				@Override public Set<Long> run(List<TemporarySubmitStruct> structs) { return getPending(structs); }
+			});
+		}
+		List<CompletableFuture<TemporarySubmitStruct>> structs = new ArrayList<CompletableFuture<TemporarySubmitStruct>>();
+		for (long id : ids) structs.add(loadStructAsync(token, id));
+		return SAsync.then(SAsync.all(structs), new SAsync.Step<List<TemporarySubmitStruct>, Set<Long>>() {
+			@Override public Set<Long> run(List<TemporarySubmitStruct> structs) { return getPending(structs); }
+		});
+	}
+	//as load(STaskHandler, List<Long>, List<List<SOutputMetadata>>), the results of the finished submits are requested at once
+	public static CompletableFuture<List<STemporarySubmitReader>> loadAsync(STaskHandler handler, final List<Long> ids, final List<List<SOutputMetadata>> meta) {
+		handler.log("Loading temporary submit results...");
+		final String token = SSession.getToken();
+		return SAsync.compose(findPendingAsync(token, ids), new SAsync.Step<Set<Long>, CompletableFuture<List<STemporarySubmitReader>>>() {
+			@Override public CompletableFuture<List<STemporarySubmitReader>> run(Set<Long> pending) {
+				List<CompletableFuture<STemporarySubmitReader>> result = new ArrayList<CompletableFuture<STemporarySubmitReader>>();
+				for (int i = 0; i < ids.size(); ++i) {
+					if (pending.contains(ids.get(i))) {
+						result.add(CompletableFuture.<STemporarySubmitReader>completedFuture(new TemporarySubmitWrap(true, meta.get(i), Collections.<String, AnonymousAttribute>emptyMap())));
+						continue;
+					}
+					final List<SOutputMetadata> submit_meta = meta.get(i);
+					CompletableFuture<Map<String, AnonymousAttribute>> data = loadResultAsync(token, ids.get(i));
+					result.add(SAsync.then(data, new SAsync.Step<Map<String, AnonymousAttribute>, STemporarySubmitReader>() {
+						@Override public STemporarySubmitReader run(Map<String, AnonymousAttribute> data) { return new TemporarySubmitWrap(false, submit_meta, data); }
+					}));
+				}
+				return SAsync.all(result);
+			}
+		});
+	}
+	//the listener is called with the index and id of each submit as soon as it is created
+	public static List<Long> create(STaskHandler handler, List<SBlob> submits, List<? extends STestReader> tests, final SListener1<SPair<Integer, Long>> listener) throws Exception {
+		final List<Map<String, Object>> submit_data = new ArrayList<Map<String, Object>>();
+		final List<Map<String, Object>> test_data = new ArrayList<Map<String, Object>>();
+		SBlobSync sync = new SBlobSync();
+		for (int i = 0; i < submits.size(); ++i) {
+			SAssert.assertNotNull(submits.get(i), "Submit is null");
+			SAssert.assertNotNull(tests.get(i).getJudge(), "Judge is null");
+			Map<String, Object> submit_map = new HashMap<String, Object>();
+			submit_map.put("content", submits.get(i));
+			Map<String, Object> test_map = createRemoteAttrMap(tests.get(i).getInput());
+			test_map.put("judge", tests.get(i).getJudge().getBlob());
+			sync.add(submit_map);
+			sync.add(test_map);
+			submit_data.add(submit_map);
+			test_data.add(test_map);
+		}
+		sync.run(handler);
+		handler.log("Creating temporary submits...");
+		List<Integer> indices = new ArrayList<Integer>();
+		for (int i = 0; i < submits.size(); ++i) indices.add(i);
+		return SParallel.map(handler, indices, new SParallel.Job<Integer, Long>() {
+			@Override public Long run(STaskHandler handler, Integer i) throws Exception {
+				TemporarySubmit.Iface iface = new TemporarySubmit.Client(handler.getProtocol());
+				long id = iface.TemporarySubmit_create(SSession.getToken(), convertAttrMap(test_data.get(i)), convertAttrMap(submit_data.get(i))).getId();
+				if (listener != null) listener.call(new SPair<Integer, Long>(i, id));
+				return id;
+			}
+		});
 	}
 	public static long create(STaskHandler handler, SBlob submit, STestReader test) throws Exception {
-		SAssert.assertNotNull(submit, "Submit is null");
-		SAssert.assertNotNull(test.getJudge(), "Judge is null");
-		Map<String, Object> submit_data = new HashMap<String, Object>();
-		submit_data.put("content", submit);
-		Map<String, Object> test_data = createRemoteAttrMap(test.getInput());
-		test_data.put("judge", test.getJudge().getBlob());
-		createBlobs(handler, submit_data);
-		createBlobs(handler, test_data);
-		handler.log("Creating temporary submit...");
-		TemporarySubmit.Iface iface = new TemporarySubmit.Client(handler.getProtocol());
-		return iface.TemporarySubmit_create(SSession.getToken(), convertAttrMap(test_data), convertAttrMap(submit_data)).getId();
+		return create(handler, Collections.singletonList(submit), Collections.singletonList(test), null).get(0);
 	}
 }
@@ -6,13 +6,27 @@ import static satori.data.SAttributeData.createLocalAttrMap;
 import static satori.data.SAttributeData.createRemoteAttrMap;
 
 import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingTransport;
+
+import satori.common.SPair;
 import satori.metadata.SInputMetadata;
 import satori.metadata.SJudge;
 import satori.metadata.SJudgeParser;
+import satori.session.SAsyncCall;
+import satori.session.SPipeline;
 import satori.session.SSession;
 import satori.task.STaskHandler;
 import satori.test.STestBasicReader;
@@ -22,6 +36,11 @@ import satori.thrift.gen.Test;
 import satori.thrift.gen.TestStruct;
 
 public class STestData {
+	//names of the fields recorded as modified, see save(STaskHandler, STestReader, Set<String>)
+	public static final String NAME_FIELD = "name";
+	public static final String DESCRIPTION_FIELD = "description";
+	public static String getDataField(String attr) { return "data." + attr; }
+	
 	static class TestBasicWrap implements STestBasicReader {
 		private final TestStruct struct;
 		public TestBasicWrap(TestStruct struct) { this.struct = struct; }
@@ -55,10 +74,87 @@ public class STestData {
 		@Override public STestBasicReader get(int index) { return new TestBasicWrap(list.get(index)); }
 	}
 	
+	private static void putSnapshot(TestStruct struct, Map<String, AnonymousAttribute> data) throws Exception {
+		SSnapshotStore.put("test-" + struct.getId(), new SSnapshotStore.Writer().writeStruct(struct).writeAttrMap(data));
+	}
+	//returns null if there is no snapshot
+	public static STestReader loadSnapshot(STaskHandler handler, long id) throws Exception {
+		byte[] data = SSnapshotStore.get("test-" + id);
+		if (data == null) return null;
+		SSnapshotStore.Reader reader = new SSnapshotStore.Reader(data);
+		TestStruct struct = reader.readStruct(new TestStruct());
+		return new TestWrap(handler, struct, reader.readAttrMap());
+	}
+	//both calls in one round trip
+	private static SPair<TestStruct, Map<String, AnonymousAttribute>> loadRaw(STaskHandler handler, long id) throws Exception {
+		SPipeline pipeline = new SPipeline(handler.getProtocol());
+		Test.Client struct_client = new Test.Client(pipeline.createProtocol());
+		Test.Client data_client = new Test.Client(pipeline.createProtocol());
+		struct_client.send_Test_get_struct(SSession.getToken(), id);
+		data_client.send_Test_data_get_map(SSession.getToken(), id);
+		TestStruct struct = struct_client.recv_Test_get_struct();
+		Map<String, AnonymousAttribute> data = data_client.recv_Test_data_get_map();
+		putSnapshot(struct, data);
+		return new SPair<TestStruct, Map<String, AnonymousAttribute>>(struct, data);
+	}
 	public static STestReader load(STaskHandler handler, long id) throws Exception {
 		handler.log("Loading test...");
-		Test.Iface iface = new Test.Client(handler.getProtocol());
-		return new TestWrap(handler, iface.Test_get_struct(SSession.getToken(), id), iface.Test_data_get_map(SSession.getToken(), id));
+		SPair<TestStruct, Map<String, AnonymousAttribute>> test = loadRaw(handler, id);
+		return new TestWrap(handler, test.first, test.second);
+	}
+	public static List<STestReader> load(STaskHandler handler, List<Long> ids) throws Exception {
+		handler.log("Loading tests...");
+		List<SPair<TestStruct, Map<String, AnonymousAttribute>>> raw = SParallel.map(handler, ids, new SParallel.Job<Long, SPair<TestStruct, Map<String, AnonymousAttribute>>>() {
+			@Override public SPair<TestStruct, Map<String, AnonymousAttribute>> run(STaskHandler handler, Long id) throws Exception { return loadRaw(handler, id); }
+		});
+		//judges are parsed here, outside the workers, so that each distinct one is parsed once
+		List<STestReader> result = new ArrayList<STestReader>();
+		for (SPair<TestStruct, Map<String, AnonymousAttribute>> test : raw) result.add(new TestWrap(handler, test.first, test.second));
+		return result;
+	}
+	
+	private static final SAsyncCall.Service<Test.AsyncClient> ASYNC_SERVICE = new SAsyncCall.Service<Test.AsyncClient>() {
+		@Override public Test.AsyncClient createClient(TProtocolFactory protocol_factory, TAsyncClientManager manager, TNonblockingTransport transport) { return new Test.AsyncClient(protocol_factory, manager, transport); }
+	};
+	
+	private static CompletableFuture<SPair<TestStruct, Map<String, AnonymousAttribute>>> loadRawAsync(final long id) {
+		final String token = SSession.getToken();
+		final CompletableFuture<TestStruct> struct = SSession.callAsync(new SAsyncCall<Test.AsyncClient, Test.AsyncClient.Test_get_struct_call, TestStruct>(ASYNC_SERVICE) {
+			@Override protected void start(Test.AsyncClient client, AsyncMethodCallback<Test.AsyncClient.Test_get_struct_call> callback) throws TException { client.Test_get_struct(token, id, callback); }
+			@Override protected TestStruct getResult(Test.AsyncClient.Test_get_struct_call call) throws Exception { return call.getResult(); }
+			@Override protected TestStruct run(TProtocol protocol) throws Exception { return new Test.Client(protocol).Test_get_struct(token, id); }
+		});
+		final CompletableFuture<Map<String, AnonymousAttribute>> data = SSession.callAsync(new SAsyncCall<Test.AsyncClient, Test.AsyncClient.Test_data_get_map_call, Map<String, AnonymousAttribute>>(ASYNC_SERVICE) {
+			@Override protected void start(Test.AsyncClient client, AsyncMethodCallback<Test.AsyncClient.Test_data_get_map_call> callback) throws TException { client.Test_data_get_map(token, id, callback); }
+			@Override protected Map<String, AnonymousAttribute> getResult(Test.AsyncClient.Test_data_get_map_call call) throws Exception { return call.getResult(); }
+			@Override protected Map<String, AnonymousAttribute> run(TProtocol protocol) throws Exception { return new Test.Client(protocol).Test_data_get_map(token, id); }
+		});
+		return SAsync.then(CompletableFuture.allOf(struct, data), new SAsync.Step<Void, SPair<TestStruct, Map<String, AnonymousAttribute>>>() {
+			@Override public SPair<TestStruct, Map<String, AnonymousAttribute>> run(Void value) throws Exception {
+				putSnapshot(struct.join(), data.join());
+				return new SPair<TestStruct, Map<String, AnonymousAttribute>>(struct.join(), data.join());
+			}
+		});
+	}
+	//both calls are sent at once, the judge is parsed when they arrive
+	public static CompletableFuture<STestReader> loadAsync(final STaskHandler handler, long id) {
+		handler.log("Loading test...");
+		return SAsync.then(loadRawAsync(id), new SAsync.Step<SPair<TestStruct, Map<String, AnonymousAttribute>>, STestReader>() {
+			@Override public STestReader run(SPair<TestStruct, Map<String, AnonymousAttribute>> test) throws Exception { return new TestWrap(handler, test.first, test.second); }
+		});
+	}
+	public static CompletableFuture<List<STestReader>> loadAsync(final STaskHandler handler, List<Long> ids) {
+		handler.log("Loading tests...");
+		List<CompletableFuture<SPair<TestStruct, Map<String, AnonymousAttribute>>>> raw = new ArrayList<CompletableFuture<SPair<TestStruct, Map<String, AnonymousAttribute>>>>();
+		for (long id : ids) raw.add(loadRawAsync(id));
+		return SAsync.then(SAsync.all(raw), new SAsync.Step<List<SPair<TestStruct, Map<String, AnonymousAttribute>>>, List<STestReader>>() {
+			@Override public List<STestReader> run(List<SPair<TestStruct, Map<String, AnonymousAttribute>>> raw) throws Exception {
+				//as in load(STaskHandler, List<Long>), each distinct judge is parsed once
+				List<STestReader> result = new ArrayList<STestReader>();
+				for (SPair<TestStruct, Map<String, AnonymousAttribute>> test : raw) result.add(new TestWrap(handler, test.first, test.second));
+				return result;
+			}
+		});
 	}
 	
 	private static TestStruct createStruct(STestBasicReader test) {
@@ -69,32 +165,162 @@ public class STestData {
 		return struct;
 	}
 	
-	public static long create(STaskHandler handler, STestReader test) throws Exception {
+	private static Map<String, Object> createRawData(STestReader test) {
 		Map<String, Object> raw_data = createRemoteAttrMap(test.getInput());
 		if (test.getJudge() != null) raw_data.put("judge", test.getJudge().getBlob());
+		return raw_data;
+	}
+	
+	//true if the data map has to be sent, an empty set means that the modified fields are unknown
+	public static boolean isDataModified(Set<String> fields) {
+		if (fields.isEmpty()) return true;
+		for (String field : fields) if (!field.equals(NAME_FIELD) && !field.equals(DESCRIPTION_FIELD)) return true;
+		return false;
+	}
+	//the entries of the data map among the modified fields
+	private static Map<String, Object> selectModifiedData(Map<String, Object> raw_data, Set<String> fields) {
+		if (fields.isEmpty()) return raw_data;
+		Map<String, Object> modified_data = new HashMap<String, Object>();
+		for (Map.Entry<String, Object> entry : raw_data.entrySet())
+			if (fields.contains(getDataField(entry.getKey()))) modified_data.put(entry.getKey(), entry.getValue());
+		return modified_data;
+	}
+	
+	public static void saveBlobs(STaskHandler handler, List<? extends STestReader> tests) throws Exception {
+		SBlobSync sync = new SBlobSync();
+		for (STestReader test : tests) sync.add(createRawData(test));
+		sync.run(handler);
+	}
+	//syncs only the blobs among the modified fields of each test, see save(STaskHandler, STestReader, Set<String>)
+	public static void saveBlobs(STaskHandler handler, List<? extends STestReader> tests, List<Set<String>> fields) throws Exception {
+		SBlobSync sync = new SBlobSync();
+		for (int i = 0; i < tests.size(); ++i)
+			if (isDataModified(fields.get(i))) sync.add(selectModifiedData(createRawData(tests.get(i)), fields.get(i)));
+		sync.run(handler);
+	}
+	public static long create(STaskHandler handler, STestReader test) throws Exception {
+		Map<String, Object> raw_data = createRawData(test);
 		createBlobs(handler, raw_data);
 		handler.log("Creating test...");
 		Test.Iface iface = new Test.Client(handler.getProtocol());
 		return iface.Test_create(SSession.getToken(), createStruct(test), convertAttrMap(raw_data)).getId();
 	}
 	public static void save(STaskHandler handler, STestReader test) throws Exception {
-		Map<String, Object> raw_data = createRemoteAttrMap(test.getInput());
-		if (test.getJudge() != null) raw_data.put("judge", test.getJudge().getBlob());
+		Map<String, Object> raw_data = createRawData(test);
 		createBlobs(handler, raw_data);
 		handler.log("Saving test...");
 		Test.Iface iface = new Test.Client(handler.getProtocol());
 		iface.Test_modify_full(SSession.getToken(), test.getId(), createStruct(test), convertAttrMap(raw_data));
 	}
+	//sends only the given fields, the data map can only be replaced as a whole, but only the modified blobs are synced
+	//an empty set means that the modified fields are unknown
+	public static void save(STaskHandler handler, STestReader test, Set<String> fields) throws Exception {
+		if (fields.isEmpty()) { save(handler, test); return; }
+		Test.Iface iface = new Test.Client(handler.getProtocol());
+		if (!isDataModified(fields)) {
+			TestStruct struct = new TestStruct();
+			if (fields.contains(NAME_FIELD)) struct.setName(test.getName());
+			if (fields.contains(DESCRIPTION_FIELD)) struct.setDescription(test.getDescription());
+			handler.log("Saving test...");
+			iface.Test_modify(SSession.getToken(), test.getId(), struct);
+			return;
+		}
+		Map<String, Object> raw_data = createRawData(test);
+		createBlobs(handler, selectModifiedData(raw_data, fields));
+		handler.log("Saving test...");
+		iface.Test_modify_full(SSession.getToken(), test.getId(), createStruct(test), convertAttrMap(raw_data));
+	}
+	//creates the tests without an id and saves the others, returns the ids of all of them
+	public static List<Long> saveAll(STaskHandler handler, List<? extends STestReader> tests) throws Exception {
+		saveBlobs(handler, tests);
+		handler.log("Saving tests...");
+		return SParallel.map(handler, new ArrayList<STestReader>(tests), new SParallel.Job<STestReader, Long>() {
+			@Override public Long run(STaskHandler handler, STestReader test) throws Exception {
+				Test.Iface iface = new Test.Client(handler.getProtocol());
+				Map<String, AnonymousAttribute> data = convertAttrMap(createRawData(test));
+				if (!test.hasId()) return iface.Test_create(SSession.getToken(), createStruct(test), data).getId();
+				iface.Test_modify_full(SSession.getToken(), test.getId(), createStruct(test), data);
+				return test.getId();
+			}
+		});
+	}
 	public static void delete(STaskHandler handler, long id) throws Exception {
 		handler.log("Deleting test...");
 		Test.Iface iface = new Test.Client(handler.getProtocol());
 		iface.Test_delete(SSession.getToken(), id);
+		SSnapshotStore.remove("test-" + id);
+	}
+	public static void deleteAll(STaskHandler handler, List<Long> ids) throws Exception {
+		handler.log("Deleting tests...");
+		SParallel.map(handler, ids, new SParallel.Job<Long, Void>() {
+			@Override public Void run(STaskHandler handler, Long id) throws Exception {
+				Test.Iface iface = new Test.Client(handler.getProtocol());
+				iface.Test_delete(SSession.getToken(), id);
+				SSnapshotStore.remove("test-" + id);
+				return null;
+			}
+		});
+	}
+	private static CompletableFuture<Void> deleteRawAsync(final long id) {
+		final String token = SSession.getToken();
+		CompletableFuture<Void> result = SSession.callAsync(new SAsyncCall<Test.AsyncClient, Test.AsyncClient.Test_delete_call, Void>(ASYNC_SERVICE) {
+			@Override protected void start(Test.AsyncClient client, AsyncMethodCallback<Test.AsyncClient.Test_delete_call> callback) throws TException { client.Test_delete(token, id, callback); }
+			@Override protected Void getResult(Test.AsyncClient.Test_delete_call call) throws Exception {
+				call.getResult();
+				return null;
+			}
+			@Override protected Void run(TProtocol protocol) throws Exception {
+				new Test.Client(protocol).Test_delete(token, id);
+				return null;
+			}
+		});
+		return SAsync.then(result, new SAsync.Step<Void, Void>() {
+			@Override public Void run(Void value) throws Exception {
+				SSnapshotStore.remove("test-" + id);
+				return null;
+			}
+		});
+	}
+	public static CompletableFuture<Void> deleteAsync(STaskHandler handler, long id) {
+		handler.log("Deleting test...");
+		return deleteRawAsync(id);
+	}
+	public static CompletableFuture<Void> deleteAllAsync(STaskHandler handler, List<Long> ids) {
+		handler.log("Deleting tests...");
+		List<CompletableFuture<Void>> results = new ArrayList<CompletableFuture<Void>>();
+		for (long id : ids) results.add(deleteRawAsync(id));
+		return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[results.size()]));
 	}
 	public static List<STestBasicReader> list(STaskHandler handler, long problem_id) throws Exception {
 		handler.log("Loading test list...");
 		Test.Iface iface = new Test.Client(handler.getProtocol());
 		TestStruct filter = new TestStruct();
 		filter.setProblem(problem_id);
-		return new TestListWrap(iface.Test_filter(SSession.getToken(), filter));
+		List<TestStruct> list = iface.Test_filter(SSession.getToken(), filter);
+		SSnapshotStore.put("tests-" + problem_id, new SSnapshotStore.Writer().writeStructList(list));
+		return new TestListWrap(list);
+	}
+	public static CompletableFuture<List<STestBasicReader>> listAsync(STaskHandler handler, final long problem_id) {
+		handler.log("Loading test list...");
+		final String token = SSession.getToken();
+		final TestStruct filter = new TestStruct();
+		filter.setProblem(problem_id);
+		CompletableFuture<List<TestStruct>> result = SSession.callAsync(new SAsyncCall<Test.AsyncClient, Test.AsyncClient.Test_filter_call, List<TestStruct>>(ASYNC_SERVICE) {
+			@Override protected void start(Test.AsyncClient client, AsyncMethodCallback<Test.AsyncClient.Test_filter_call> callback) throws TException { client.Test_filter(token, filter, callback); }
+			@Override protected List<TestStruct> getResult(Test.AsyncClient.Test_filter_call call) throws Exception { return call.getResult(); }
+			@Override protected List<TestStruct> run(TProtocol protocol) throws Exception { return new Test.Client(protocol).Test_filter(token, filter); }
+		});
+		return SAsync.then(result, new SAsync.Step<List<TestStruct>, List<STestBasicReader>>() {
+			@Override public List<STestBasicReader> run(List<TestStruct> list) throws Exception {
+				SSnapshotStore.put("tests-" + problem_id, new SSnapshotStore.Writer().writeStructList(list));
+				return new TestListWrap(list);
+			}
+		});
+	}
+	//returns null if there is no snapshot
+	public static List<STestBasicReader> listSnapshot(long problem_id) throws Exception {
+		byte[] data = SSnapshotStore.get("tests-" + problem_id);
+		if (data == null) return null;
+		return new TestListWrap(new SSnapshotStore.Reader(data).readStructList(TestStruct.class));
 	}
 }
@@ -2,9 +2,13 @@ package satori.data;
 
 import static satori.data.SAttributeData.convertAnonymousAttribute;
 import static satori.data.SAttributeData.createAnonymousAttribute;
+import static satori.data.SAttributeData.createBlobs;
 import static satori.data.SGlobalData.getAccumulators;
+import static satori.data.SGlobalData.getAccumulatorsAsync;
 import static satori.data.SGlobalData.getDispatchers;
+import static satori.data.SGlobalData.getDispatchersAsync;
 import static satori.data.SGlobalData.getReporters;
+import static satori.data.SGlobalData.getReportersAsync;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
@@ -12,7 +16,16 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingTransport;
 
 import satori.common.SAssert;
 import satori.common.SIdReader;
@@ -23,14 +36,23 @@ import satori.metadata.SParametersMetadata;
 import satori.metadata.SParametersParser;
 import satori.problem.STestSuiteBasicReader;
 import satori.problem.STestSuiteReader;
+import satori.session.SAsyncCall;
+import satori.session.SPipeline;
 import satori.session.SSession;
 import satori.task.STaskHandler;
 import satori.test.STestBasicReader;
+import satori.test.STestReader;
 import satori.thrift.gen.AnonymousAttribute;
 import satori.thrift.gen.TestSuite;
+import satori.thrift.gen.TestStruct;
 import satori.thrift.gen.TestSuiteStruct;
 
 public class STestSuiteData {
+	//names of the fields recorded as modified, see save(STaskHandler, STestSuiteReader, Set<String>)
+	public static final String NAME_FIELD = "name";
+	public static final String DESCRIPTION_FIELD = "description";
+	public static String getParamField(SInputMetadata meta) { return "param." + meta.getName(); }
+	
 	static class TestSuiteBasicWrap implements STestSuiteBasicReader {
 		private final TestSuiteStruct struct;
 		public TestSuiteBasicWrap(TestSuiteStruct struct) { this.struct = struct; }
@@ -101,19 +123,15 @@ public class STestSuiteData {
 		if (!map.containsKey(str)) throw new Exception("Incorrect reporter: " + str);
 		return SParametersParser.parseParametersTask(handler, str, map.get(str));
 	}
-	public static STestSuiteReader load(STaskHandler handler, long id) throws Exception {
-		handler.log("Loading test suite...");
-		TestSuite.Iface iface = new TestSuite.Client(handler.getProtocol());
-		TestSuiteStruct struct = iface.TestSuite_get_struct(SSession.getToken(), id);
+	private static STestSuiteReader createWrap(STaskHandler handler, TestSuiteStruct struct, List<TestStruct> tests, Map<String, AnonymousAttribute> params, Map<String, String> dispatchers, Map<String, String> accumulator_map, Map<String, String> reporters) throws Exception {
 		TestSuiteWrap result = new TestSuiteWrap(struct);
-		result.setTests(new TestListWrap(iface.TestSuite_get_tests(SSession.getToken(), id)));
-		SParametersMetadata dispatcher = parseDispatcher(handler, struct.getDispatcher(), getDispatchers(handler));
-		List<SParametersMetadata> accumulators = parseAccumulators(handler, struct.getAccumulators(), getAccumulators(handler));
-		SParametersMetadata reporter = parseReporter(handler, struct.getReporter(), getReporters(handler));
+		result.setTests(new TestListWrap(tests));
+		SParametersMetadata dispatcher = parseDispatcher(handler, struct.getDispatcher(), dispatchers);
+		List<SParametersMetadata> accumulators = parseAccumulators(handler, struct.getAccumulators(), accumulator_map);
+		SParametersMetadata reporter = parseReporter(handler, struct.getReporter(), reporters);
 		result.setDispatcher(dispatcher);
 		result.setAccumulators(accumulators);
 		result.setReporter(reporter);
-		Map<String, AnonymousAttribute> params = iface.TestSuite_params_get_map(SSession.getToken(), id);
 		Map<SInputMetadata, Object> general_params = new HashMap<SInputMetadata, Object>();
 		if (dispatcher != null) fillParameters(dispatcher.getName(), dispatcher.getGeneralParameters(), params, general_params);
 		for (SParametersMetadata accumulator : accumulators) fillParameters(accumulator.getName(), accumulator.getGeneralParameters(), params, general_params);
@@ -122,6 +140,77 @@ public class STestSuiteData {
 		result.setTestParameters(Collections.<SPair<SInputMetadata, Long>, Object>emptyMap());
 		return result;
 	}
+	public static STestSuiteReader load(STaskHandler handler, long id) throws Exception {
+		handler.log("Loading test suite...");
+		//the three calls in one round trip
+		SPipeline pipeline = new SPipeline(handler.getProtocol());
+		TestSuite.Client struct_client = new TestSuite.Client(pipeline.createProtocol());
+		TestSuite.Client tests_client = new TestSuite.Client(pipeline.createProtocol());
+		TestSuite.Client params_client = new TestSuite.Client(pipeline.createProtocol());
+		struct_client.send_TestSuite_get_struct(SSession.getToken(), id);
+		tests_client.send_TestSuite_get_tests(SSession.getToken(), id);
+		params_client.send_TestSuite_params_get_map(SSession.getToken(), id);
+		TestSuiteStruct struct = struct_client.recv_TestSuite_get_struct();
+		List<TestStruct> tests = tests_client.recv_TestSuite_get_tests();
+		Map<String, AnonymousAttribute> params = params_client.recv_TestSuite_params_get_map();
+		SSnapshotStore.put("suite-" + id, new SSnapshotStore.Writer().writeStruct(struct).writeStructList(tests).writeAttrMap(params));
+		return createWrap(handler, struct, tests, params, getDispatchers(handler), getAccumulators(handler), getReporters(handler));
+	}
+	private static final SAsyncCall.Service<TestSuite.AsyncClient> ASYNC_SERVICE = new SAsyncCall.Service<TestSuite.AsyncClient>() {
+		@Override public TestSuite.AsyncClient createClient(TProtocolFactory protocol_factory, TAsyncClientManager manager, TNonblockingTransport transport) { return new TestSuite.AsyncClient(protocol_factory, manager, transport); }
+	};
+	
+	//the three calls and the global metadata missing from the cache are requested at once
+	public static CompletableFuture<STestSuiteReader> loadAsync(final STaskHandler handler, final long id) {
+		handler.log("Loading test suite...");
+		final String token = SSession.getToken();
+		final CompletableFuture<TestSuiteStruct> struct = SSession.callAsync(new SAsyncCall<TestSuite.AsyncClient, TestSuite.AsyncClient.TestSuite_get_struct_call, TestSuiteStruct>(ASYNC_SERVICE) {
+			@Override protected void start(TestSuite.AsyncClient client, AsyncMethodCallback<TestSuite.AsyncClient.TestSuite_get_struct_call> callback) throws TException { client.TestSuite_get_struct(token, id, callback); }
+			@Override protected TestSuiteStruct getResult(TestSuite.AsyncClient.TestSuite_get_struct_call call) throws Exception { return call.getResult(); }
+			@Override protected TestSuiteStruct run(TProtocol protocol) throws Exception { return new TestSuite.Client(protocol).TestSuite_get_struct(token, id); }
+		});
+		final CompletableFuture<List<TestStruct>> tests = SSession.callAsync(new SAsyncCall<TestSuite.AsyncClient, TestSuite.AsyncClient.TestSuite_get_tests_call, List<TestStruct>>(ASYNC_SERVICE) {
+			@Override protected void start(TestSuite.AsyncClient client, AsyncMethodCallback<TestSuite.AsyncClient.TestSuite_get_tests_call> callback) throws TException { client.TestSuite_get_tests(token, id, callback); }
+			@Override protected List<TestStruct> getResult(TestSuite.AsyncClient.TestSuite_get_tests_call call) throws Exception { return call.getResult(); }
+			@Override protected List<TestStruct> run(TProtocol protocol) throws Exception { return new TestSuite.Client(protocol).TestSuite_get_tests(token, id); }
+		});
+		final CompletableFuture<Map<String, AnonymousAttribute>> params = SSession.callAsync(new SAsyncCall<TestSuite.AsyncClient, TestSuite.AsyncClient.TestSuite_params_get_map_call, Map<String, AnonymousAttribute>>(ASYNC_SERVICE) {
+			@Override protected void start(TestSuite.AsyncClient client, AsyncMethodCallback<TestSuite.AsyncClient.TestSuite_params_get_map_call> callback) throws TException { client.TestSuite_params_get_map(token, id, callback); }
+			@Override protected Map<String, AnonymousAttribute> getResult(TestSuite.AsyncClient.TestSuite_params_get_map_call call) throws Exception { return call.getResult(); }
+			@Override protected Map<String, AnonymousAttribute> run(TProtocol protocol) throws Exception { return new TestSuite.Client(protocol).TestSuite_params_get_map(token, id); }
+		});
+		final CompletableFuture<Map<String, String>> dispatchers = getDispatchersAsync(handler);
+		final CompletableFuture<Map<String, String>> accumulators = getAccumulatorsAsync(handler);
+		final CompletableFuture<Map<String, String>> reporters = getReportersAsync(handler);
+		return SAsync.then(CompletableFuture.allOf(struct, tests, params, dispatchers, accumulators, reporters), new SAsync.Step<Void, STestSuiteReader>() {
+			@Override public STestSuiteReader run(Void value) throws Exception {
+				SSnapshotStore.put("suite-" + id, new SSnapshotStore.Writer().writeStruct(struct.join()).writeStructList(tests.join()).writeAttrMap(params.join()));
+				return createWrap(handler, struct.join(), tests.join(), params.join(), dispatchers.join(), accumulators.join(), reporters.join());
+			}
+		});
+	}
+	//the suite and then all its tests with their judges
+	public static CompletableFuture<SPair<STestSuiteReader, List<STestReader>>> loadWithTestsAsync(final STaskHandler handler, long id) {
+		return SAsync.compose(loadAsync(handler, id), new SAsync.Step<STestSuiteReader, CompletableFuture<SPair<STestSuiteReader, List<STestReader>>>>() {
+			@Override public CompletableFuture<SPair<STestSuiteReader, List<STestReader>>> run(final STestSuiteReader suite) {
+				return SAsync.then(STestData.loadAsync(handler, createTestIdList(suite.getTests())), new SAsync.Step<List<STestReader>, SPair<STestSuiteReader, List<STestReader>>>() {
+					@Override public SPair<STestSuiteReader, List<STestReader>> run(List<STestReader> tests) { return new SPair<STestSuiteReader, List<STestReader>>(suite, tests); }
+				});
+			}
+		});
+	}
+	//returns null if there is no snapshot
+	public static STestSuiteReader loadSnapshot(STaskHandler handler, long id) throws Exception {
+		byte[] data = SSnapshotStore.get("suite-" + id);
+		Map<String, String> dispatchers = SGlobalData.getSnapshot("dispatchers");
+		Map<String, String> accumulators = SGlobalData.getSnapshot("accumulators");
+		Map<String, String> reporters = SGlobalData.getSnapshot("reporters");
+		if (data == null || dispatchers == null || accumulators == null || reporters == null) return null;
+		SSnapshotStore.Reader reader = new SSnapshotStore.Reader(data);
+		TestSuiteStruct struct = reader.readStruct(new TestSuiteStruct());
+		List<TestStruct> tests = reader.readStructList(TestStruct.class);
+		return createWrap(handler, struct, tests, reader.readAttrMap(), dispatchers, accumulators, reporters);
+	}
 	
 	private static String parseList(List<SParametersMetadata> params) {
 		StringBuilder result = null;
@@ -173,16 +262,73 @@ public class STestSuiteData {
 		TestSuite.Iface iface = new TestSuite.Client(handler.getProtocol());
 		iface.TestSuite_modify_full(SSession.getToken(), suite.getId(), createStruct(suite), createParams(suite), createTestIdList(suite.getTests()), createTestParams(suite.getTests()));
 	}
+	//syncs only the modified blob parameters, nothing if only the name and description were modified
+	//an empty set means that the modified fields are unknown
+	//the suite is always sent with TestSuite_modify_full, TestSuite_modify did not save the suite on older servers
+	public static void save(STaskHandler handler, STestSuiteReader suite, Set<String> fields) throws Exception {
+		Map<String, Object> modified_params = new HashMap<String, Object>();
+		for (Map.Entry<SInputMetadata, Object> entry : suite.getGeneralParameters().entrySet())
+			if (fields.isEmpty() || fields.contains(getParamField(entry.getKey()))) modified_params.put(getParamField(entry.getKey()), entry.getValue());
+		createBlobs(handler, modified_params);
+		save(handler, suite);
+	}
 	public static void delete(STaskHandler handler, long id) throws Exception {
 		handler.log("Deleting test suite...");
 		TestSuite.Iface iface = new TestSuite.Client(handler.getProtocol());
 		iface.TestSuite_delete(SSession.getToken(), id);
+		SSnapshotStore.remove("suite-" + id);
+	}
+	public static CompletableFuture<Void> deleteAsync(STaskHandler handler, final long id) {
+		handler.log("Deleting test suite...");
+		final String token = SSession.getToken();
+		CompletableFuture<Void> result = SSession.callAsync(new SAsyncCall<TestSuite.AsyncClient, TestSuite.AsyncClient.TestSuite_delete_call, Void>(ASYNC_SERVICE) {
+			@Override protected void start(TestSuite.AsyncClient client, AsyncMethodCallback<TestSuite.AsyncClient.TestSuite_delete_call> callback) throws TException { client.TestSuite_delete(token, id, callback); }
+			@Override protected Void getResult(TestSuite.AsyncClient.TestSuite_delete_call call) throws Exception {
+				call.getResult();
+				return null;
+			}
+			@Override protected Void run(TProtocol protocol) throws Exception {
+				new TestSuite.Client(protocol).TestSuite_delete(token, id);
+				return null;
+			}
+		});
+		return SAsync.then(result, new SAsync.Step<Void, Void>() {
+			@Override public Void run(Void value) throws Exception {
+				SSnapshotStore.remove("suite-" + id);
+				return null;
+			}
+		});
 	}
 	public static List<STestSuiteBasicReader> list(STaskHandler handler, long problem_id) throws Exception {
 		handler.log("Loading test suite list...");
 		TestSuite.Iface iface = new TestSuite.Client(handler.getProtocol());
 		TestSuiteStruct filter = new TestSuiteStruct();
 		filter.setProblem(problem_id);
-		return new TestSuiteListWrap(iface.TestSuite_filter(SSession.getToken(), filter));
+		List<TestSuiteStruct> list = iface.TestSuite_filter(SSession.getToken(), filter);
+		SSnapshotStore.put("suites-" + problem_id, new SSnapshotStore.Writer().writeStructList(list));
+		return new TestSuiteListWrap(list);
+	}
+	public static CompletableFuture<List<STestSuiteBasicReader>> listAsync(STaskHandler handler, final long problem_id) {
+		handler.log("Loading test suite list...");
+		final String token = SSession.getToken();
+		final TestSuiteStruct filter = new TestSuiteStruct();
+		filter.setProblem(problem_id);
+		CompletableFuture<List<TestSuiteStruct>> result = SSession.callAsync(new SAsyncCall<TestSuite.AsyncClient, TestSuite.AsyncClient.TestSuite_filter_call, List<TestSuiteStruct>>(ASYNC_SERVICE) {
+			@Override protected void start(TestSuite.AsyncClient client, AsyncMethodCallback<TestSuite.AsyncClient.TestSuite_filter_call> callback) throws TException { client.TestSuite_filter(token, filter, callback); }
+			@Override protected List<TestSuiteStruct> getResult(TestSuite.AsyncClient.TestSuite_filter_call call) throws Exception { return call.getResult(); }
+			@Override protected List<TestSuiteStruct> run(TProtocol protocol) throws Exception { return new TestSuite.Client(protocol).TestSuite_filter(token, filter); }
+		});
+		return SAsync.then(result, new SAsync.Step<List<TestSuiteStruct>, List<STestSuiteBasicReader>>() {
+			@Override public List<STestSuiteBasicReader> run(List<TestSuiteStruct> list) throws Exception {
+				SSnapshotStore.put("suites-" + problem_id, new SSnapshotStore.Writer().writeStructList(list));
+				return new TestSuiteListWrap(list);
+			}
+		});
+	}
+	//returns null if there is no snapshot
+	public static List<STestSuiteBasicReader> listSnapshot(long problem_id) throws Exception {
+		byte[] data = SSnapshotStore.get("suites-" + problem_id);
+		if (data == null) return null;
+		return new TestSuiteListWrap(new SSnapshotStore.Reader(data).readStructList(TestSuiteStruct.class));
 	}
 }
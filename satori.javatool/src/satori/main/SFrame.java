@@ -16,6 +16,8 @@ import satori.common.SView;
 import satori.common.ui.STabbedPane;
 import satori.config.SConfig;
 import satori.config.SConfigDialog;
+import satori.data.SGlobal;
+import satori.metrics.SMetricsDialog;
 import satori.problem.ui.SProblemListPane;
 import satori.session.SLoginDialog;
 import satori.session.SSession;
@@ -28,14 +30,17 @@ public class SFrame {
 	
 	private JFrame frame;
 	private JMenu session_menu, open_menu;
-	private JMenuItem login_button, logout_button, config_button;
-	private JMenuItem problems_button;
+	private JMenuItem login_button, logout_button, refresh_button, config_button;
+	private JMenuItem problems_button, activity_button, diagnostics_button;
+	
+	//views are held weakly by their models
+	private final SView session_view = new SView() {
+		@Override public void update() { updateSession(); }
+	};
 	
 	private SFrame() {
 		initialize();
-		SSession.addView(new SView() {
-			@Override public void update() { updateSession(); }
-		});
+		SSession.addView(session_view);
 	}
 	
 	public JFrame getFrame() { return frame; }
@@ -49,7 +54,12 @@ public class SFrame {
 	}
 	
 	private void loginRequest() { SLoginDialog.show(); }
-	private void logoutRequest() { SSession.logout(); }
+	private void logoutRequest() {
+		SSession.logout();
+		SGlobal.invalidate();
+	}
+	//judges, dispatchers, accumulators and reporters are cached, e.g. a judge added on the server shows up after this
+	private void refreshRequest() { SGlobal.invalidate(); }
 	private void configRequest() { SConfigDialog.show(); }
 	private void problemsRequest() {
 		SProblemListPane pane;
@@ -59,6 +69,8 @@ public class SFrame {
 		finally { handler.close(); }
 		tabs.openPane("Problems", pane);
 	}
+	private void activityRequest() { STaskManager.showActivity(); }
+	private void diagnosticsRequest() { SMetricsDialog.show(); }
 	private void closeRequest() {
 		if (tabs.hasUnsavedData() && !showWarningDialog("The window contains unsaved data.")) return;
 		tabs.closeAll();
@@ -83,6 +95,11 @@ public class SFrame {
 			@Override public void actionPerformed(ActionEvent e) { logoutRequest(); }
 		});
 		session_menu.add(logout_button);
+		refresh_button = new JMenuItem("Reload server metadata");
+		refresh_button.addActionListener(new ActionListener() {
+			@Override public void actionPerformed(ActionEvent e) { refreshRequest(); }
+		});
+		session_menu.add(refresh_button);
 		config_button = new JMenuItem("Server configuration...");
 		config_button.addActionListener(new ActionListener() {
 			@Override public void actionPerformed(ActionEvent e) { configRequest(); }
@@ -95,6 +112,16 @@ public class SFrame {
 			@Override public void actionPerformed(ActionEvent e) { problemsRequest(); }
 		});
 		open_menu.add(problems_button);
+		activity_button = new JMenuItem("Activity");
+		activity_button.addActionListener(new ActionListener() {
+			@Override public void actionPerformed(ActionEvent e) { activityRequest(); }
+		});
+		open_menu.add(activity_button);
+		diagnostics_button = new JMenuItem("Diagnostics");
+		diagnostics_button.addActionListener(new ActionListener() {
+			@Override public void actionPerformed(ActionEvent e) { diagnosticsRequest(); }
+		});
+		open_menu.add(diagnostics_button);
 		menu_bar.add(open_menu);
 		frame.setJMenuBar(menu_bar);
 		frame.addWindowListener(new WindowAdapter() {
@@ -0,0 +1,99 @@
+package satori.main;
+
+import java.io.Console;
+import java.io.File;
+
+import satori.batch.SExporter;
+import satori.batch.SImporter;
+import satori.batch.SSynchronizer;
+import satori.config.SConfig;
+import satori.data.SProblemData;
+import satori.metrics.SMetrics;
+import satori.problem.SProblemReader;
+import satori.session.SSession;
+import satori.task.SConsoleHandler;
+import satori.task.STaskException;
+import satori.task.STaskHandler;
+
+//headless entry point for bulk operations
+public class SatoriBatch {
+	private static final String USAGE =
+			"Usage: SatoriBatch [options] import|export|sync <problem id or name> <directory>\n" +
+			"Options:\n" +
+			"  -host <host>          server address\n" +
+			"  -thrift-port <port>   server Thrift port\n" +
+			"  -blobs-port <port>    server blobs port\n" +
+			"  -no-ssl               don't use SSL\n" +
+			"  -connections <n>      number of parallel connections\n" +
+			"  -user <username>      log in as the given user (password from SATORI_PASSWORD or the console)\n" +
+			"  -verbose              print the progress of every operation\n" +
+			"  -dry-run              sync: only print the changes\n" +
+			"  -keep                 sync: don't delete tests missing in the directory\n" +
+			"  -metrics              print the statistics of server calls at the end";
+	
+	private static void usage() {
+		SConsoleHandler.print(USAGE);
+		System.exit(2);
+	}
+	
+	private static long findProblem(STaskHandler handler, String arg) throws Exception {
+		if (arg.matches("[0-9]+")) return Long.valueOf(arg);
+		for (SProblemReader problem : SProblemData.list(handler)) if (problem.getName().equals(arg)) return problem.getId();
+		throw new Exception("Problem not found: " + arg);
+	}
+	
+	private static String readPassword(String username) {
+		String password = System.getenv("SATORI_PASSWORD");
+		if (password != null) return password;
+		Console console = System.console();
+		if (console == null) return "";
+		char[] chars = console.readPassword("Password for %s: ", username);
+		return chars != null ? new String(chars) : "";
+	}
+	
+	public static void main(String[] args) {
+		SConfig.load();
+		String username = null;
+		boolean verbose = false;
+		boolean dry_run = false;
+		boolean keep = false;
+		boolean metrics = false;
+		int pos = 0;
+		try {
+			for (; pos < args.length && args[pos].startsWith("-"); ++pos) {
+				String option = args[pos];
+				if (option.equals("-no-ssl")) SConfig.setUseSSL(false);
+				else if (option.equals("-verbose")) verbose = true;
+				else if (option.equals("-dry-run")) dry_run = true;
+				else if (option.equals("-keep")) keep = true;
+				else if (option.equals("-metrics")) metrics = true;
+				else if (pos + 1 == args.length) usage();
+				else if (option.equals("-host")) SConfig.setHost(args[++pos]);
+				else if (option.equals("-thrift-port")) SConfig.setThriftPort(Integer.valueOf(args[++pos]));
+				else if (option.equals("-blobs-port")) SConfig.setBlobsPort(Integer.valueOf(args[++pos]));
+				else if (option.equals("-connections")) SConfig.setConnections(Integer.valueOf(args[++pos]));
+				else if (option.equals("-user")) username = args[++pos];
+				else usage();
+			}
+		}
+		catch(NumberFormatException ex) { usage(); }
+		if (args.length - pos != 3) usage();
+		String command = args[pos];
+		if (!command.equals("import") && !command.equals("export") && !command.equals("sync")) usage();
+		STaskHandler handler = new SConsoleHandler(verbose);
+		int status = 0;
+		try {
+			if (username != null) SSession.login(handler, username, readPassword(username));
+			long problem_id = findProblem(handler, args[pos + 1]);
+			File dir = new File(args[pos + 2]);
+			if (command.equals("import")) SImporter.run(handler, problem_id, dir);
+			else if (command.equals("export")) SExporter.run(handler, problem_id, dir);
+			else SSynchronizer.run(handler, problem_id, dir, dry_run, keep);
+		}
+		catch(STaskException ex) { status = 1; }
+		catch(Exception ex) { SConsoleHandler.print(ex.getMessage() != null ? ex.getMessage() : ex.toString()); status = 1; }
+		finally { handler.close(); }
+		if (metrics) SConsoleHandler.print(SMetrics.getReport());
+		System.exit(status);
+	}
+}
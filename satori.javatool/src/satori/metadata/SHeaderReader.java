@@ -0,0 +1,60 @@
+package satori.metadata;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.LineIterator;
+
+//reads the XML header stored in "#@" lines of judges and dispatchers
+class SHeaderReader {
+	private static final ThreadLocal<XMLInputFactory> factory = new ThreadLocal<XMLInputFactory>() {
+		@Override protected XMLInputFactory initialValue() {
+			XMLInputFactory result = XMLInputFactory.newInstance();
+			result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			result.setProperty(XMLInputFactory.IS_COALESCING, true);
+			return result;
+		}
+	};
+	
+	static XMLStreamReader createReader(String xml) throws XMLStreamException {
+		return factory.get().createXMLStreamReader(new StringReader(xml));
+	}
+	
+	static String getAttribute(XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value != null ? value : "";
+	}
+	
+	private static boolean isComplete(String xml) {
+		try {
+			XMLStreamReader reader = createReader(xml);
+			try { while (reader.hasNext()) reader.next(); }
+			finally { reader.close(); }
+			return true;
+		}
+		catch(XMLStreamException ex) { return false; }
+	}
+	
+	//stops at the end of the first block of header lines that forms a complete document
+	static String read(Reader reader) {
+		StringBuilder xml = new StringBuilder();
+		LineIterator line_iter = new LineIterator(reader);
+		boolean in_header = false;
+		while (line_iter.hasNext()) {
+			String line = line_iter.next();
+			if (line.startsWith("#@")) {
+				xml.append(line.substring(2));
+				in_header = true;
+			} else if (in_header) {
+				in_header = false;
+				if (isComplete(xml.toString())) break;
+			}
+		}
+		return xml.toString();
+	}
+}
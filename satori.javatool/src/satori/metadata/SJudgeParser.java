@@ -1,24 +1,28 @@
 package satori.metadata;
 
+import static satori.metadata.SHeaderReader.createReader;
+import static satori.metadata.SHeaderReader.getAttribute;
+
+import java.io.File;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.LineIterator;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
 import satori.data.SBlob;
 import satori.task.SResultTask;
@@ -36,8 +40,8 @@ public class SJudgeParser {
 		public ParseException(String message) { super(message); }
 	}
 	
-	private static SInputMetadata parseInputParam(Element node) throws ParseException {
-		String type_str = node.getAttribute("type");
+	private static SInputMetadata parseInputParam(XMLStreamReader node) throws ParseException {
+		String type_str = getAttribute(node, "type");
 		if (type_str.isEmpty()) throw new ParseException("Input type undefined");
 		SType type;
 		if (type_str.equals("text")) type = STextType.INSTANCE;
@@ -45,21 +49,21 @@ public class SJudgeParser {
 		else if (type_str.equals("size")) type = SSizeType.INSTANCE;
 		else if (type_str.equals("blob")) type = SBlobType.INSTANCE;
 		else throw new ParseException("Unsupported input type: " + type_str);
-		String name = node.getAttribute("name");
+		String name = getAttribute(node, "name");
 		if (name.isEmpty()) throw new ParseException("Input name undefined");
-		String desc = node.getAttribute("description");
+		String desc = getAttribute(node, "description");
 		if (desc.isEmpty()) throw new ParseException("Input description undefined");
-		String required = node.getAttribute("required");
+		String required = getAttribute(node, "required");
 		if (required.isEmpty()) throw new ParseException("Input required mode undefined");
 		if (!required.equals("true") && !required.equals("false")) throw new ParseException("Invalid input required mode: " + required); 
-		String def_value = node.getAttribute("default");
+		String def_value = getAttribute(node, "default");
 		if (def_value.isEmpty()) def_value = null;
 		if (def_value != null && type == SBlobType.INSTANCE) throw new ParseException("Default value for blob inputs not supported");
 		return new SInputMetadata(name, desc, type, required.equals("true"), def_value);
 	}
 	
-	private static SOutputMetadata parseOutputParam(Element node) throws ParseException {
-		String type_str = node.getAttribute("type");
+	private static SOutputMetadata parseOutputParam(XMLStreamReader node) throws ParseException {
+		String type_str = getAttribute(node, "type");
 		if (type_str.isEmpty()) throw new ParseException("Output type undefined");
 		SType type;
 		if (type_str.equals("text")) type = STextType.INSTANCE;
@@ -67,19 +71,13 @@ public class SJudgeParser {
 		else if (type_str.equals("size")) type = SSizeType.INSTANCE;
 		else if (type_str.equals("blob")) type = SBlobType.INSTANCE;
 		else throw new ParseException("Unsupported output type: " + type_str);
-		String name = node.getAttribute("name");
+		String name = getAttribute(node, "name");
 		if (name.isEmpty()) throw new ParseException("Output name undefined");
-		String desc = node.getAttribute("description");
+		String desc = getAttribute(node, "description");
 		if (desc.isEmpty()) throw new ParseException("Output description undefined");
 		return new SOutputMetadata(name, desc, type);
 	}
 	
-	private static List<SInputMetadata> parseInputs(Element node) throws ParseException {
-		List<SInputMetadata> result = new ArrayList<SInputMetadata>();
-		NodeList children = node.getElementsByTagName("param");
-		for (int i = 0; i < children.getLength(); ++i) result.add(parseInputParam((Element)children.item(i)));
-		return Collections.unmodifiableList(result);
-	}
 	private static void verifyInputs(List<SInputMetadata> inputs) throws ParseException {
 		Set<String> names = new HashSet<String>();
 		for (SInputMetadata input : inputs) {
@@ -89,12 +87,6 @@ public class SJudgeParser {
 		}
 	}
 	
-	private static List<SOutputMetadata> parseOutputs(Element node) throws ParseException {
-		List<SOutputMetadata> result = new ArrayList<SOutputMetadata>();
-		NodeList children = node.getElementsByTagName("param");
-		for (int i = 0; i < children.getLength(); ++i) result.add(parseOutputParam((Element)children.item(i)));
-		return Collections.unmodifiableList(result);
-	}
 	private static void verifyOutputs(List<SOutputMetadata> outputs) throws ParseException {
 		Set<String> names = new HashSet<String>();
 		for (SOutputMetadata output : outputs) {
@@ -103,64 +95,140 @@ public class SJudgeParser {
 		}
 	}
 	
-	private static void parse(Document doc, SJudge judge) throws ParseException {
-		doc.normalizeDocument();
-		Element node = doc.getDocumentElement();
-		judge.setName(node.getAttribute("name"));
-		NodeList input_children = node.getElementsByTagName("input");
-		List<SInputMetadata> input_meta;
-		if (input_children.getLength() == 0) input_meta = Collections.emptyList();
-		else if (input_children.getLength() == 1) input_meta = parseInputs((Element)input_children.item(0));
-		else throw new ParseException("Too many input groups");
-		verifyInputs(input_meta);
-		NodeList output_children = node.getElementsByTagName("output");
-		judge.setInputMetadata(input_meta);
-		List<SOutputMetadata> output_meta;
-		if (output_children.getLength() == 0) output_meta = Collections.emptyList();
-		else if (output_children.getLength() == 1) output_meta = parseOutputs((Element)output_children.item(0));
-		else throw new ParseException("Too many output groups");
-		verifyOutputs(output_meta);
-		judge.setOutputMetadata(output_meta);
-	}
-	private static void parse(String str, SJudge judge) throws Exception {
-		InputSource is = new InputSource();
-		is.setCharacterStream(new StringReader(str));
-		parse(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is), judge);
-	}
-	private static void parse(Reader reader, SJudge judge) throws Exception {
-		StringBuilder xml = new StringBuilder();
-		LineIterator line_iter = new LineIterator(reader);
-		while (line_iter.hasNext()) {
-			String line = line_iter.next();
-			if (line.startsWith("#@")) xml.append(line.substring(2));
+	//judge metadata, shared by all blobs with the same content
+	static class Header {
+		private String name;
+		private List<SInputMetadata> input_meta;
+		private List<SOutputMetadata> output_meta;
+	}
+	
+	static Header parse(String str) throws Exception {
+		Header header = new Header();
+		List<SInputMetadata> input_meta = null;
+		List<SOutputMetadata> output_meta = null;
+		String group = null;
+		int depth = 0, group_depth = 0;
+		XMLStreamReader node = createReader(str);
+		try {
+			while (node.hasNext()) {
+				int event = node.next();
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					if (depth-- == group_depth) group = null;
+					continue;
+				}
+				if (event != XMLStreamConstants.START_ELEMENT) continue;
+				String tag = node.getLocalName();
+				if (++depth == 1) header.name = getAttribute(node, "name");
+				else if (tag.equals("input")) {
+					if (input_meta != null) throw new ParseException("Too many input groups");
+					input_meta = new ArrayList<SInputMetadata>();
+					group = tag;
+					group_depth = depth;
+				}
+				else if (tag.equals("output")) {
+					if (output_meta != null) throw new ParseException("Too many output groups");
+					output_meta = new ArrayList<SOutputMetadata>();
+					group = tag;
+					group_depth = depth;
+				}
+				else if (tag.equals("param") && "input".equals(group)) input_meta.add(parseInputParam(node));
+				else if (tag.equals("param") && "output".equals(group)) output_meta.add(parseOutputParam(node));
+			}
 		}
-		parse(xml.toString(), judge);
+		finally { node.close(); }
+		header.input_meta = input_meta != null ? Collections.unmodifiableList(input_meta) : Collections.<SInputMetadata>emptyList();
+		verifyInputs(header.input_meta);
+		header.output_meta = output_meta != null ? Collections.unmodifiableList(output_meta) : Collections.<SOutputMetadata>emptyList();
+		verifyOutputs(header.output_meta);
+		return header;
 	}
 	
-	private static SJudge parseJudgeAux(STaskHandler handler, SBlob judge) throws Exception {
-		SJudge result = new SJudge();
-		result.setBlob(judge);
+	private static final int MAX_HEADERS = 1024;
+	private static final Map<String, Future<Header>> headers = new LinkedHashMap<String, Future<Header>>(16, 0.75f, true) {
+		@Override protected boolean removeEldestEntry(Map.Entry<String, Future<Header>> eldest) { return size() > MAX_HEADERS; }
+	};
+	
+	private static File getHeaderFile(String hash) {
+		if (!hash.matches("[A-Za-z0-9_-]{8,}")) return null;
+		return new File(new File(new File(System.getProperty("user.home"), ".satori"), "judges"), hash + ".xml");
+	}
+	private static Header loadStoredHeader(String hash) {
+		File file = getHeaderFile(hash);
+		if (file == null || !file.isFile()) return null;
+		try { return parse(FileUtils.readFileToString(file, "UTF-8")); }
+		catch(Exception ex) { file.delete(); return null; }
+	}
+	private static void storeHeader(String hash, String xml) {
+		File file = getHeaderFile(hash);
+		if (file == null) return;
+		File temp = new File(file.getPath() + ".part");
+		try {
+			FileUtils.writeStringToFile(temp, xml, "UTF-8");
+			if (!temp.renameTo(file)) temp.delete();
+		}
+		catch(Exception ex) { temp.delete(); }
+	}
+	
+	private static Header loadHeader(STaskHandler handler, SBlob judge) throws Exception {
+		Header header = loadStoredHeader(judge.getHash());
+		if (header != null) return header;
 		handler.log(judge.getFile() != null ? "Parsing local judge file..." : "Loading and parsing judge blob...");
-		Reader reader = new InputStreamReader(judge.getStreamTask());
-		try { parse(reader, result); }
+		String xml;
+		Reader reader = new InputStreamReader(judge.getPartialStreamTask());
+		try { xml = SHeaderReader.read(reader); }
 		finally { IOUtils.closeQuietly(reader); }
-		return result;
+		header = parse(xml);
+		storeHeader(judge.getHash(), xml);
+		return header;
 	}
 	
-	private static Map<SBlob, SJudge> judges = new HashMap<SBlob, SJudge>();
+	//concurrent requests for the same content wait for a single load
+	private static Header getHeader(final STaskHandler handler, final SBlob judge) throws Exception {
+		FutureTask<Header> task = null;
+		Future<Header> future;
+		synchronized (headers) {
+			future = headers.get(judge.getHash());
+			if (future == null) {
+				task = new FutureTask<Header>(new Callable<Header>() {
+					@Override public Header call() throws Exception { return loadHeader(handler, judge); }
+				});
+				headers.put(judge.getHash(), task);
+				future = task;
+			}
+		}
+		if (task != null) task.run();
+		try { return future.get(); }
+		catch(ExecutionException ex) {
+			synchronized (headers) { if (headers.get(judge.getHash()) == future) headers.remove(judge.getHash()); }
+			if (ex.getCause() instanceof Exception) throw (Exception)ex.getCause();
+			throw ex;
+		}
+	}
+	private static Header getLoadedHeader(SBlob judge) {
+		Future<Header> future;
+		synchronized (headers) { future = headers.get(judge.getHash()); }
+		if (future == null || !future.isDone()) return null;
+		try { return future.get(); }
+		catch(Exception ex) { return null; }
+	}
 	
-	public static SJudge parseJudgeTask(STaskHandler handler, SBlob judge) throws Exception {
-		if (judges.containsKey(judge)) return judges.get(judge);
-		SJudge result = parseJudgeAux(handler, judge);
-		judges.put(judge, result);
+	private static SJudge createJudge(SBlob blob, Header header) {
+		SJudge result = new SJudge();
+		result.setBlob(blob);
+		result.setName(header.name);
+		result.setInputMetadata(header.input_meta);
+		result.setOutputMetadata(header.output_meta);
 		return result;
 	}
+	
+	public static SJudge parseJudgeTask(STaskHandler handler, SBlob judge) throws Exception {
+		return createJudge(judge, getHeader(handler, judge));
+	}
 	public static SJudge parseJudge(final STaskHandler handler, final SBlob judge) throws STaskException {
-		if (judges.containsKey(judge)) return judges.get(judge);
-		SJudge result = handler.execute(new SResultTask<SJudge>() {
-			@Override public SJudge run() throws Exception { return parseJudgeAux(handler, judge); }
+		Header header = getLoadedHeader(judge);
+		if (header != null) return createJudge(judge, header);
+		return handler.execute(new SResultTask<SJudge>() {
+			@Override public SJudge run() throws Exception { return parseJudgeTask(handler, judge); }
 		});
-		judges.put(judge, result);
-		return result;
 	}
 }
@@ -1,6 +1,8 @@
 package satori.metadata;
 
-import java.io.Reader;
+import static satori.metadata.SHeaderReader.createReader;
+import static satori.metadata.SHeaderReader.getAttribute;
+
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -10,13 +12,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.apache.commons.io.LineIterator;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 import satori.common.SPair;
 import satori.task.SResultTask;
@@ -35,8 +32,8 @@ public class SParametersParser {
 		public ParseException(String message) { super(message); }
 	}
 	
-	private static SInputMetadata parseParam(Element node) throws ParseException {
-		String type_str = node.getAttribute("type");
+	private static SInputMetadata parseParam(XMLStreamReader node) throws ParseException {
+		String type_str = getAttribute(node, "type");
 		if (type_str.isEmpty()) throw new ParseException("Parameter type undefined");
 		SType type;
 		if (type_str.equals("text")) type = STextType.INSTANCE;
@@ -45,25 +42,19 @@ public class SParametersParser {
 		else if (type_str.equals("bool")) type = SBoolType.INSTANCE;
 		else if (type_str.equals("blob")) type = SBlobType.INSTANCE;
 		else throw new ParseException("Unsupported parameter type: " + type_str);
-		String name = node.getAttribute("name");
+		String name = getAttribute(node, "name");
 		if (name.isEmpty()) throw new ParseException("Parameter name undefined");
-		String desc = node.getAttribute("description");
+		String desc = getAttribute(node, "description");
 		if (desc.isEmpty()) throw new ParseException("Parameter description undefined");
-		String required = node.getAttribute("required");
+		String required = getAttribute(node, "required");
 		if (required.isEmpty()) required = "false";//throw new ParseException("Parameter required mode undefined");
 		if (!required.equals("true") && !required.equals("false")) throw new ParseException("Invalid parameter required mode: " + required); 
-		String def_value = node.getAttribute("default");
+		String def_value = getAttribute(node, "default");
 		if (def_value.isEmpty()) def_value = null;
 		if (def_value != null && type == SBlobType.INSTANCE) throw new ParseException("Default value for blob parameters not supported");
 		return new SInputMetadata(name, desc, type, required.equals("true"), def_value);
 	}
 	
-	private static List<SInputMetadata> parseGeneral(Element node) throws ParseException {
-		List<SInputMetadata> result = new ArrayList<SInputMetadata>();
-		NodeList children = node.getElementsByTagName("param");
-		for (int i = 0; i < children.getLength(); ++i) result.add(parseParam((Element)children.item(i)));
-		return Collections.unmodifiableList(result);
-	}
 	private static void verifyGeneral(List<SInputMetadata> params) throws ParseException {
 		Set<String> names = new HashSet<String>();
 		for (SInputMetadata param : params) {
@@ -72,43 +63,48 @@ public class SParametersParser {
 		}
 	}
 	
-	private static void parse(Document doc, SParametersMetadata params) throws ParseException {
-		doc.normalizeDocument();
-		Element node = doc.getDocumentElement();
-		NodeList general_children = node.getElementsByTagName("general");
-		List<SInputMetadata> general_meta;
-		if (general_children.getLength() == 0) general_meta = Collections.emptyList();
-		else if (general_children.getLength() == 1) general_meta = parseGeneral((Element)general_children.item(0));
-		else throw new ParseException("Too many general parameter groups");
-		verifyGeneral(general_meta);
-		params.setGeneralParameters(general_meta);
-		params.setTestParameters(Collections.<SInputMetadata>emptyList());
-	}
 	private static void parse(String str, SParametersMetadata params) throws Exception {
 		if (str.isEmpty()) {
 			params.setGeneralParameters(Collections.<SInputMetadata>emptyList());
 			params.setTestParameters(Collections.<SInputMetadata>emptyList());
 			return;
 		}
-		InputSource is = new InputSource();
-		is.setCharacterStream(new StringReader(str));
-		parse(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is), params);
-	}
-	private static void parseLines(Reader reader, SParametersMetadata params) throws Exception {
-		StringBuilder xml = new StringBuilder();
-		LineIterator line_iter = new LineIterator(reader);
-		while (line_iter.hasNext()) {
-			String line = line_iter.next();
-			if (line.startsWith("#@")) xml.append(line.substring(2));
+		List<SInputMetadata> general_meta = null;
+		boolean in_general = false;
+		int depth = 0, general_depth = 0;
+		XMLStreamReader node = createReader(str);
+		try {
+			while (node.hasNext()) {
+				int event = node.next();
+				if (event == XMLStreamConstants.END_ELEMENT) {
+					if (depth-- == general_depth) in_general = false;
+					continue;
+				}
+				if (event != XMLStreamConstants.START_ELEMENT) continue;
+				String tag = node.getLocalName();
+				if (++depth == 1) continue;
+				if (tag.equals("general")) {
+					if (general_meta != null) throw new ParseException("Too many general parameter groups");
+					general_meta = new ArrayList<SInputMetadata>();
+					in_general = true;
+					general_depth = depth;
+				}
+				else if (tag.equals("param") && in_general) general_meta.add(parseParam(node));
+			}
 		}
-		parse(xml.toString(), params);
+		finally { node.close(); }
+		if (general_meta == null) general_meta = Collections.emptyList();
+		else general_meta = Collections.unmodifiableList(general_meta);
+		verifyGeneral(general_meta);
+		params.setGeneralParameters(general_meta);
+		params.setTestParameters(Collections.<SInputMetadata>emptyList());
 	}
 	
-	private static SParametersMetadata parseParametersAux(STaskHandler handler, String name, String str) throws Exception {
+	static SParametersMetadata parseParametersAux(STaskHandler handler, String name, String str) throws Exception {
 		handler.log("Parsing parameters...");
 		SParametersMetadata result = new SParametersMetadata();
 		result.setName(name);
-		parseLines(new StringReader(str), result);
+		parse(SHeaderReader.read(new StringReader(str)), result);
 		return result;
 	}
 	
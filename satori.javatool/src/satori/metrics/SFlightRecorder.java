@@ -0,0 +1,68 @@
+package satori.metrics;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//emits a satori.RemoteCall event per call when -Dsatori.jfr=true and the runtime has Flight Recorder
+//the event type is built through jdk.jfr.EventFactory, so the client still runs on older runtimes
+class SFlightRecorder {
+	private static final Object factory = createFactory();
+	private static Method new_event, begin, end, set, commit;
+	
+	private static Object createFactory() {
+		if (!Boolean.getBoolean("satori.jfr")) return null;
+		try {
+			Class<?> annotation_class = Class.forName("jdk.jfr.AnnotationElement");
+			Class<?> value_class = Class.forName("jdk.jfr.ValueDescriptor");
+			Class<?> factory_class = Class.forName("jdk.jfr.EventFactory");
+			Class<?> event_class = Class.forName("jdk.jfr.Event");
+			Constructor<?> annotation = annotation_class.getConstructor(Class.class, Object.class);
+			Constructor<?> value = value_class.getConstructor(Class.class, String.class);
+			List<Object> annotations = new ArrayList<Object>();
+			annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Name"), "satori.RemoteCall"));
+			annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Label"), "Satori Remote Call"));
+			annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Category"), new String[] { "Satori" }));
+			List<Object> fields = Arrays.<Object>asList(
+					value.newInstance(String.class, "method"),
+					value.newInstance(long.class, "bytesOut"),
+					value.newInstance(long.class, "bytesIn"),
+					value.newInstance(long.class, "waitNanos"),
+					value.newInstance(boolean.class, "failed"));
+			Object result = factory_class.getMethod("create", List.class, List.class).invoke(null, annotations, fields);
+			new_event = factory_class.getMethod("newEvent");
+			begin = event_class.getMethod("begin");
+			end = event_class.getMethod("end");
+			set = event_class.getMethod("set", int.class, Object.class);
+			commit = event_class.getMethod("commit");
+			return result;
+		}
+		catch(Exception ex) { return null; }
+	}
+	
+	//returns null if events are disabled
+	static Object begin() {
+		if (factory == null) return null;
+		try {
+			Object event = new_event.invoke(factory);
+			begin.invoke(event);
+			return event;
+		}
+		catch(Exception ex) { return null; }
+	}
+	static void commit(Object event, String method, long bytes_out, long bytes_in, long wait_nanos, boolean failed) {
+		if (event == null) return;
+		try {
+			end.invoke(event);
+			set.invoke(event, 0, method);
+			set.invoke(event, 1, bytes_out);
+			set.invoke(event, 2, bytes_in);
+			set.invoke(event, 3, wait_nanos);
+			set.invoke(event, 4, failed);
+			commit.invoke(event);
+		}
+		catch(Exception ex) {}
+	}
+}
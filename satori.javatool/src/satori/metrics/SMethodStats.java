@@ -0,0 +1,71 @@
+package satori.metrics;
+
+//statistics of a single remote method, latencies are kept in a histogram with power-of-two buckets of microseconds
+public class SMethodStats {
+	private static final int BUCKETS = 40;
+	
+	private final String method;
+	private long calls = 0;
+	private long failures = 0;
+	private long bytes_out = 0;
+	private long bytes_in = 0;
+	private long total_nanos = 0;
+	private long wait_nanos = 0;
+	private long max_nanos = 0;
+	private final long[] buckets = new long[BUCKETS];
+	
+	SMethodStats(String method) { this.method = method; }
+	private SMethodStats(SMethodStats other) {
+		method = other.method;
+		calls = other.calls;
+		failures = other.failures;
+		bytes_out = other.bytes_out;
+		bytes_in = other.bytes_in;
+		total_nanos = other.total_nanos;
+		wait_nanos = other.wait_nanos;
+		max_nanos = other.max_nanos;
+		System.arraycopy(other.buckets, 0, buckets, 0, BUCKETS);
+	}
+	
+	private static int getBucket(long nanos) {
+		long micros = nanos / 1000;
+		int bucket = 0;
+		while (micros > 0 && bucket < BUCKETS-1) { micros >>= 1; ++bucket; }
+		return bucket;
+	}
+	//upper bound of the bucket
+	private static double getBucketMillis(int bucket) { return (1L << bucket) / 1000.0; }
+	
+	synchronized void record(long nanos, long wait, long out, long in, boolean failed) {
+		++calls;
+		if (failed) ++failures;
+		bytes_out += out;
+		bytes_in += in;
+		total_nanos += nanos;
+		wait_nanos += wait;
+		max_nanos = Math.max(max_nanos, nanos);
+		++buckets[getBucket(nanos)];
+	}
+	synchronized SMethodStats copy() { return new SMethodStats(this); }
+	
+	public String getMethod() { return method; }
+	public long getCalls() { return calls; }
+	public long getFailures() { return failures; }
+	public long getBytesOut() { return bytes_out; }
+	public long getBytesIn() { return bytes_in; }
+	public double getMeanMillis() { return calls > 0 ? total_nanos / 1e6 / calls : 0; }
+	public double getMaxMillis() { return max_nanos / 1e6; }
+	//time between sending the request and receiving the response, i.e. the server and the network
+	public double getMeanWaitMillis() { return calls > 0 ? wait_nanos / 1e6 / calls : 0; }
+	//estimated from the histogram, so accurate up to a factor of two
+	public double getPercentileMillis(double percentile) {
+		if (calls == 0) return 0;
+		long rank = (long)Math.ceil(percentile / 100 * calls);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			seen += buckets[i];
+			if (seen >= rank) return Math.min(getBucketMillis(i), getMaxMillis());
+		}
+		return getMaxMillis();
+	}
+}
@@ -0,0 +1,97 @@
+package satori.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+//per-method statistics of the calls to the server, both Thrift and blob transfers
+//available in the diagnostics window and through JMX as satori:type=Metrics
+public class SMetrics {
+	private static final Map<String, SMethodStats> stats = new TreeMap<String, SMethodStats>();
+	
+	static { register(); }
+	
+	//a single call, finish() must be called exactly once
+	public static class Call {
+		private final String method;
+		private final long start = System.nanoTime();
+		private final Object event = SFlightRecorder.begin();
+		private long sent = -1, received = -1;
+		private long bytes_out = 0, bytes_in = 0;
+		private boolean finished = false;
+		
+		private Call(String method) { this.method = method; }
+		
+		public void addBytesOut(long count) { bytes_out += count; }
+		public void addBytesIn(long count) { bytes_in += count; }
+		//the request was sent completely
+		public void markSent() { sent = System.nanoTime(); }
+		//the first part of the response arrived
+		public void markReceived() { if (received == -1) received = System.nanoTime(); }
+		
+		public void finish(boolean success) {
+			if (finished) return;
+			finished = true;
+			long wait = sent != -1 && received != -1 ? received - sent : 0;
+			getStats(method).record(System.nanoTime() - start, wait, bytes_out, bytes_in, !success);
+			SFlightRecorder.commit(event, method, bytes_out, bytes_in, wait, !success);
+		}
+	}
+	
+	public static Call start(String method) { return new Call(method); }
+	
+	private static synchronized SMethodStats getStats(String method) {
+		SMethodStats result = stats.get(method);
+		if (result == null) {
+			result = new SMethodStats(method);
+			stats.put(method, result);
+		}
+		return result;
+	}
+	//copies, sorted by method name
+	public static synchronized List<SMethodStats> getStats() {
+		List<SMethodStats> result = new ArrayList<SMethodStats>();
+		for (SMethodStats method_stats : stats.values()) result.add(method_stats.copy());
+		return result;
+	}
+	private static synchronized SMethodStats findStats(String method) {
+		SMethodStats result = stats.get(method);
+		return result != null ? result.copy() : new SMethodStats(method);
+	}
+	public static synchronized void reset() { stats.clear(); }
+	
+	public static String getReport() {
+		StringBuilder result = new StringBuilder();
+		result.append(String.format("%-40s %8s %6s %10s %10s %9s %9s %9s %9s %9s%n", "Method", "Calls", "Failed", "Out KiB", "In KiB", "Mean ms", "Wait ms", "p50 ms", "p99 ms", "Max ms"));
+		for (SMethodStats s : getStats()) result.append(String.format("%-40s %8d %6d %10.1f %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+				s.getMethod(), s.getCalls(), s.getFailures(), s.getBytesOut() / 1024.0, s.getBytesIn() / 1024.0,
+				s.getMeanMillis(), s.getMeanWaitMillis(), s.getPercentileMillis(50), s.getPercentileMillis(99), s.getMaxMillis()));
+		return result.toString();
+	}
+	
+	private static void register() {
+		SMetricsMBean bean = new SMetricsMBean() {
+			@Override public String[] getMethods() {
+				List<String> result = new ArrayList<String>();
+				for (SMethodStats s : getStats()) result.add(s.getMethod());
+				return result.toArray(new String[result.size()]);
+			}
+			@Override public String getReport() { return SMetrics.getReport(); }
+			@Override public long getCalls(String method) { return findStats(method).getCalls(); }
+			@Override public long getFailures(String method) { return findStats(method).getFailures(); }
+			@Override public long getBytesOut(String method) { return findStats(method).getBytesOut(); }
+			@Override public long getBytesIn(String method) { return findStats(method).getBytesIn(); }
+			@Override public double getMeanMillis(String method) { return findStats(method).getMeanMillis(); }
+			@Override public double getMeanWaitMillis(String method) { return findStats(method).getMeanWaitMillis(); }
+			@Override public double getPercentileMillis(String method, double percentile) { return findStats(method).getPercentileMillis(percentile); }
+			@Override public void reset() { SMetrics.reset(); }
+		};
+		try { ManagementFactory.getPlatformMBeanServer().registerMBean(new StandardMBean(bean, SMetricsMBean.class), new ObjectName("satori:type=Metrics")); }
+		catch(Exception ex) {} //only diagnostics
+	}
+}
@@ -0,0 +1,117 @@
+package satori.metrics;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import satori.main.SFrame;
+
+//non-modal table of SMetrics, refreshed while visible
+public class SMetricsDialog {
+	private static final int REFRESH_PERIOD = 1000;
+	private static final String[] COLUMNS = { "Method", "Calls", "Failed", "Out KiB", "In KiB", "Mean ms", "Wait ms", "p50 ms", "p90 ms", "p99 ms", "Max ms" };
+	
+	@SuppressWarnings("serial")
+	private static class Model extends AbstractTableModel {
+		private List<SMethodStats> stats = Collections.emptyList();
+		
+		public void refresh() {
+			stats = SMetrics.getStats();
+			fireTableDataChanged();
+		}
+		
+		@Override public int getRowCount() { return stats.size(); }
+		@Override public int getColumnCount() { return COLUMNS.length; }
+		@Override public String getColumnName(int column) { return COLUMNS[column]; }
+		@Override public Class<?> getColumnClass(int column) { return column == 0 ? String.class : column <= 2 ? Long.class : Double.class; }
+		@Override public Object getValueAt(int row, int column) {
+			SMethodStats s = stats.get(row);
+			switch (column) {
+			case 0: return s.getMethod();
+			case 1: return s.getCalls();
+			case 2: return s.getFailures();
+			case 3: return round(s.getBytesOut() / 1024.0);
+			case 4: return round(s.getBytesIn() / 1024.0);
+			case 5: return round(s.getMeanMillis());
+			case 6: return round(s.getMeanWaitMillis());
+			case 7: return round(s.getPercentileMillis(50));
+			case 8: return round(s.getPercentileMillis(90));
+			case 9: return round(s.getPercentileMillis(99));
+			default: return round(s.getMaxMillis());
+			}
+		}
+		private static double round(double value) { return Math.round(value * 100) / 100.0; }
+	}
+	
+	private JDialog dialog;
+	private final Model model = new Model();
+	private final Timer timer = new Timer(REFRESH_PERIOD, new ActionListener() {
+		@Override public void actionPerformed(ActionEvent e) {
+			if (dialog.isVisible()) model.refresh();
+			else timer.stop();
+		}
+	});
+	
+	private SMetricsDialog() { initialize(); }
+	
+	private void initialize() {
+		dialog = new JDialog(SFrame.get().getFrame(), "Diagnostics", false);
+		dialog.getContentPane().setLayout(new BorderLayout());
+		JTable table = new JTable(model);
+		table.setAutoCreateRowSorter(true);
+		table.getColumnModel().getColumn(0).setPreferredWidth(240);
+		dialog.getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+		JPanel button_pane = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+		JButton copy = new JButton("Copy");
+		copy.setToolTipText("Copy the report to the clipboard");
+		copy.addActionListener(new ActionListener() {
+			@Override public void actionPerformed(ActionEvent e) {
+				Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(SMetrics.getReport()), null);
+			}
+		});
+		button_pane.add(copy);
+		JButton reset = new JButton("Reset");
+		reset.addActionListener(new ActionListener() {
+			@Override public void actionPerformed(ActionEvent e) {
+				SMetrics.reset();
+				model.refresh();
+			}
+		});
+		button_pane.add(reset);
+		JButton close = new JButton("Close");
+		close.addActionListener(new ActionListener() {
+			@Override public void actionPerformed(ActionEvent e) { dialog.setVisible(false); }
+		});
+		button_pane.add(close);
+		dialog.getContentPane().add(button_pane, BorderLayout.SOUTH);
+		dialog.setSize(900, 300);
+		dialog.setLocationRelativeTo(SFrame.get().getFrame());
+		dialog.setDefaultCloseOperation(JDialog.HIDE_ON_CLOSE);
+	}
+	
+	private void showDialog() {
+		model.refresh();
+		dialog.setVisible(true);
+		timer.start();
+	}
+	
+	private static SMetricsDialog instance = null;
+	
+	public static void show() {
+		if (instance == null) instance = new SMetricsDialog();
+		instance.showDialog();
+	}
+}
@@ -0,0 +1,15 @@
+package satori.metrics;
+
+//management interface, registered as satori:type=Metrics
+public interface SMetricsMBean {
+	String[] getMethods();
+	String getReport();
+	long getCalls(String method);
+	long getFailures(String method);
+	long getBytesOut(String method);
+	long getBytesIn(String method);
+	double getMeanMillis(String method);
+	double getMeanWaitMillis(String method);
+	double getPercentileMillis(String method, double percentile);
+	void reset();
+}
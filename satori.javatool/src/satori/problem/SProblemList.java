@@ -6,9 +6,12 @@ import java.util.Map;
 
 import satori.common.SListView;
 import satori.data.SProblemData;
+import satori.task.SBackgroundTask;
 import satori.task.SResultTask;
+import satori.task.STaskCallback;
 import satori.task.STaskException;
 import satori.task.STaskHandler;
+import satori.task.STaskManager;
 
 public class SProblemList {
 	private Map<Long, SProblemSnap> problems = null;
@@ -32,12 +35,7 @@ public class SProblemList {
 		if (pane != null) pane.add(problems.values());
 	}
 	
-	public void reload(final STaskHandler handler) throws STaskException {
-		List<SProblemReader> list = handler.execute(new SResultTask<List<SProblemReader>>() {
-			@Override public List<SProblemReader> run() throws Exception {
-				return SProblemData.list(handler);
-			}
-		});
+	private void load(List<SProblemReader> list) {
 		Map<Long, SProblemSnap> new_problems = new HashMap<Long, SProblemSnap>();
 		for (SProblemReader problem : list) {
 			SProblemSnap current = problems != null ? problems.get(problem.getId()) : null;
@@ -52,12 +50,38 @@ public class SProblemList {
 		problems = new_problems;
 		if (pane != null) pane.add(problems.values());
 	}
+	public void reload(final STaskHandler handler) throws STaskException {
+		load(handler.execute(new SResultTask<List<SProblemReader>>() {
+			@Override public List<SProblemReader> run() throws Exception {
+				return SProblemData.list(handler);
+			}
+		}));
+	}
+	private void reloadLater() {
+		STaskManager.submit("Reloading problem list", new SBackgroundTask<List<SProblemReader>>() {
+			@Override public List<SProblemReader> run(STaskHandler handler) throws Exception { return SProblemData.list(handler); }
+		}, new STaskCallback<List<SProblemReader>>() {
+			@Override public void succeeded(List<SProblemReader> list) { load(list); }
+			@Override public void failed() {}
+		});
+	}
+	
+	private static List<SProblemReader> loadSnapshot() {
+		try { return SProblemData.listSnapshot(); }
+		catch(Exception ex) { return null; }
+	}
 	
 	private static SProblemList instance = null;
 	
 	public static SProblemList get(STaskHandler handler) throws STaskException {
 		if (instance == null) instance = new SProblemList();
-		instance.reload(handler);
+		//the last known list is shown at once and replaced when the server answers
+		List<SProblemReader> snapshot = instance.problems == null ? loadSnapshot() : null;
+		if (instance.problems == null && snapshot == null) instance.reload(handler);
+		else {
+			if (snapshot != null) instance.load(snapshot);
+			instance.reloadLater();
+		}
 		return instance;
 	}
 }
@@ -7,6 +7,7 @@ import satori.common.SAssert;
 import satori.common.SModel;
 import satori.common.SReference;
 import satori.common.SView;
+import satori.common.SViewList;
 
 public class SProblemSnap implements SProblemReader, SModel {
 	private long id;
@@ -16,7 +17,7 @@ public class SProblemSnap implements SProblemReader, SModel {
 	private STestList test_list = null;
 	private STestSuiteList suite_list = null;
 	
-	private final List<SView> views = new ArrayList<SView>();
+	private final SViewList views = new SViewList();
 	private final List<SReference> refs = new ArrayList<SReference>();
 	
 	@Override public boolean hasId() { return true; }
@@ -49,7 +50,7 @@ public class SProblemSnap implements SProblemReader, SModel {
 	}*/
 	
 	private void notifyModified() {
-		for (SView view : views) view.update();
+		views.update();
 		for (SReference ref : refs) ref.notifyModified();
 	}
 	public void notifyDeleted() {
@@ -11,12 +11,16 @@ import satori.common.SModel;
 import satori.common.SPair;
 import satori.common.SReference;
 import satori.common.SView;
+import satori.common.SViewList;
 import satori.data.STestSuiteData;
 import satori.metadata.SInputMetadata;
 import satori.metadata.SParametersMetadata;
+import satori.task.SBackgroundTask;
 import satori.task.SResultTask;
+import satori.task.STaskCallback;
 import satori.task.STaskException;
 import satori.task.STaskHandler;
+import satori.task.STaskManager;
 import satori.test.STestBasicReader;
 import satori.test.STestSnap;
 
@@ -34,7 +38,7 @@ public class STestSuiteSnap implements STestSuiteReader, SModel {
 	private Map<SInputMetadata, Object> general_params;
 	private Map<SPair<SInputMetadata, Long>, Object> test_params;
 	
-	private final List<SView> views = new ArrayList<SView>();
+	private final SViewList views = new SViewList();
 	private final List<SReference> refs = new ArrayList<SReference>();
 	private final SListener1<STestSnap> test_deleted_listener = new SListener1<STestSnap>() {
 		@Override public void call(STestSnap test) { testDeleted(test); }
@@ -132,6 +136,22 @@ public class STestSuiteSnap implements STestSuiteReader, SModel {
 		}));
 	}
 	
+	//shows the snapshot at once, the server data marks the users of the suite as outdated if it differs
+	public void load(final STaskHandler handler) throws STaskException {
+		STestSuiteReader snapshot;
+		try { snapshot = STestSuiteData.loadSnapshot(handler, getId()); }
+		catch(Exception ex) { snapshot = null; }
+		if (snapshot == null) { reload(handler); return; }
+		set(snapshot);
+		final long id = getId();
+		STaskManager.submit("Reloading test suite " + name, new SBackgroundTask<STestSuiteReader>() {
+			@Override public STestSuiteReader run(STaskHandler handler) throws Exception { return STestSuiteData.load(handler, id); }
+		}, new STaskCallback<STestSuiteReader>() {
+			@Override public void succeeded(STestSuiteReader source) { set(source); }
+			@Override public void failed() {}
+		});
+	}
+	
 	private void testDeleted(STestSnap test) {
 		tests.remove(test);
 		//for (SView view : views) view.update(); //TODO: is this necessary?
@@ -139,7 +159,7 @@ public class STestSuiteSnap implements STestSuiteReader, SModel {
 	}
 	
 	private void notifyModified() {
-		for (SView view : views) view.update();
+		views.update();
 		for (SReference ref : refs) ref.notifyModified();
 	}
 	public void notifyDeleted() {
@@ -1,6 +1,5 @@
 package satori.problem.impl;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import satori.common.SAssert;
@@ -9,6 +8,7 @@ import satori.common.SId;
 import satori.common.SListener1;
 import satori.common.SReference;
 import satori.common.SView;
+import satori.common.SViewList;
 import satori.data.SProblemData;
 import satori.data.STestData;
 import satori.data.STestSuiteData;
@@ -19,10 +19,13 @@ import satori.problem.SProblemSnap;
 import satori.problem.STestList;
 import satori.problem.STestSuiteBasicReader;
 import satori.problem.STestSuiteList;
+import satori.task.SBackgroundTask;
 import satori.task.SResultTask;
 import satori.task.STask;
+import satori.task.STaskCallback;
 import satori.task.STaskException;
 import satori.task.STaskHandler;
+import satori.task.STaskManager;
 import satori.test.STestBasicReader;
 
 public class SProblemImpl implements SProblemReader, SParentProblem {
@@ -30,11 +33,12 @@ public class SProblemImpl implements SProblemReader, SParentProblem {
 	
 	private SProblemSnap snap = null;
 	private SId id = SId.unset();
+	private boolean closed = false;
 	private String name = "";
 	private String desc = "";
 	
 	private final SDataStatus status = new SDataStatus();
-	private final List<SView> views = new ArrayList<SView>();
+	private final SViewList views = new SViewList();
 	private final SReference reference = new SReference() {
 		@Override public void notifyModified() { snapModified(); }
 		@Override public void notifyDeleted() { snapDeleted(); }
@@ -65,7 +69,12 @@ public class SProblemImpl implements SProblemReader, SParentProblem {
 		self.snap = snap;
 		snap.addReference(self.reference);
 		self.id = new SId(snap.getId());
-		self.reload(handler);
+		FullProblem snapshot = self.loadSnapshot();
+		if (snapshot == null) self.reload(handler);
+		else {
+			self.load(snapshot);
+			self.reloadLater();
+		}
 		return self;
 	}
 	
@@ -124,6 +133,7 @@ public class SProblemImpl implements SProblemReader, SParentProblem {
 	}
 	
 	public void close() {
+		closed = true;
 		if (snap == null) return;
 		snap.removeReference(reference);
 		if (test_list_listener != null) test_list_listener.call(null);
@@ -132,7 +142,7 @@ public class SProblemImpl implements SProblemReader, SParentProblem {
 	
 	public void addView(SView view) { views.add(view); }
 	public void removeView(SView view) { views.remove(view); }
-	private void updateViews() { for (SView view : views) view.update(); }
+	private void updateViews() { views.update(); }
 	
 	private static class FullProblem {
 		private final SProblemReader problem;
@@ -147,15 +157,23 @@ public class SProblemImpl implements SProblemReader, SParentProblem {
 			this.suites = suites;
 		}
 	}
-	public void reload(final STaskHandler handler) throws STaskException {
-		FullProblem source = handler.execute(new SResultTask<FullProblem>() {
-			@Override public FullProblem run() throws Exception {
-				SProblemReader problem = SProblemData.load(handler, getId());
-				List<STestBasicReader> tests = STestData.list(handler, getId());
-				List<STestSuiteBasicReader> suites = STestSuiteData.list(handler, getId());
-				return new FullProblem(problem, tests, suites);
-			}
-		});
+	private static FullProblem loadFull(STaskHandler handler, long id) throws Exception {
+		SProblemReader problem = SProblemData.load(handler, id);
+		List<STestBasicReader> tests = STestData.list(handler, id);
+		List<STestSuiteBasicReader> suites = STestSuiteData.list(handler, id);
+		return new FullProblem(problem, tests, suites);
+	}
+	private FullProblem loadSnapshot() {
+		try {
+			SProblemReader problem = SProblemData.loadSnapshot(getId());
+			List<STestBasicReader> tests = STestData.listSnapshot(getId());
+			List<STestSuiteBasicReader> suites = STestSuiteData.listSnapshot(getId());
+			if (problem == null || tests == null || suites == null) return null;
+			return new FullProblem(problem, tests, suites);
+		}
+		catch(Exception ex) { return null; }
+	}
+	private void load(FullProblem source) {
 		name = source.getProblem().getName();
 		desc = source.getProblem().getDescription();
 		notifyUpToDate();
@@ -164,6 +182,27 @@ public class SProblemImpl implements SProblemReader, SParentProblem {
 		snap.getTestList().load(source.getTests());
 		snap.getTestSuiteList().load(source.getTestSuites());
 	}
+	public void reload(final STaskHandler handler) throws STaskException {
+		load(handler.execute(new SResultTask<FullProblem>() {
+			@Override public FullProblem run() throws Exception { return loadFull(handler, getId()); }
+		}));
+	}
+	//local changes are kept, the problem is only marked as outdated then
+	private void reloadLater() {
+		final long id = getId();
+		STaskManager.submit("Reloading problem " + name, new SBackgroundTask<FullProblem>() {
+			@Override public FullProblem run(STaskHandler handler) throws Exception { return loadFull(handler, id); }
+		}, new STaskCallback<FullProblem>() {
+			@Override public void succeeded(FullProblem source) {
+				if (closed || snap == null) return;
+				if (!isModified()) { load(source); return; }
+				snap.set(source.getProblem());
+				snap.getTestList().load(source.getTests());
+				snap.getTestSuiteList().load(source.getTestSuites());
+			}
+			@Override public void failed() {}
+		});
+	}
 	public void create(final STaskHandler handler) throws STaskException {
 		id = handler.execute(new SResultTask<SId>() {
 			@Override public SId run() throws Exception {
@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import satori.common.SAssert;
 import satori.common.SDataStatus;
@@ -15,6 +16,7 @@ import satori.common.SListener0;
 import satori.common.SPair;
 import satori.common.SReference;
 import satori.common.SView;
+import satori.common.SViewList;
 import satori.data.STestSuiteData;
 import satori.metadata.SInputMetadata;
 import satori.metadata.SParametersMetadata;
@@ -41,14 +43,14 @@ public class STestSuiteImpl implements STestSuiteReader {
 	private Map<SPair<SInputMetadata, Long>, Object> test_params;
 	
 	private final SDataStatus status = new SDataStatus();
-	private final List<SView> views = new ArrayList<SView>();
+	private final SViewList views = new SViewList();
 	private final List<SListener0> metadata_modified_listeners = new ArrayList<SListener0>();
 	private final SReference reference = new SReference() {
 		@Override public void notifyModified() { snapModified(); }
 		@Override public void notifyDeleted() { snapDeleted(); }
 	};
 	private final SListener0 base_modified_listener = new SListener0() {
-		@Override public void call() { notifyModified(); }
+		@Override public void call() { notifyModified("tests"); }
 	};
 	
 	public STestSuiteSnap getSnap() { return snap; }
@@ -78,7 +80,7 @@ public class STestSuiteImpl implements STestSuiteReader {
 	private STestSuiteImpl() {}
 	
 	public static STestSuiteImpl create(STaskHandler handler, STestSuiteSnap snap, SParentProblem problem) throws STaskException {
-		if (!snap.isComplete()) snap.reload(handler);
+		if (!snap.isComplete()) snap.load(handler);
 		STestSuiteImpl self = new STestSuiteImpl();
 		self.snap = snap;
 		self.snap.addReference(self.reference);
@@ -120,7 +122,7 @@ public class STestSuiteImpl implements STestSuiteReader {
 		if (iter1.hasNext() || iter2.hasNext()) return true;
 		return false;
 	}
-	private boolean check(STestSuiteReader source) {
+	boolean check(STestSuiteReader source) {
 		SAssert.assertEquals(source.getId(), getId(), "Test suite ids don't match");
 		SAssert.assertEquals(source.getProblemId(), getProblemId(), "Problem ids don't match");
 		if (!source.getName().equals(name)) return true;
@@ -149,12 +151,12 @@ public class STestSuiteImpl implements STestSuiteReader {
 	public void setName(String name) {
 		if (this.name.equals(name)) return;
 		this.name = name;
-		notifyModified();
+		notifyModified(STestSuiteData.NAME_FIELD);
 	}
 	public void setDescription(String desc) {
 		if (this.desc.equals(desc)) return;
 		this.desc = desc;
-		notifyModified();
+		notifyModified(STestSuiteData.DESCRIPTION_FIELD);
 	}
 	
 	/*public boolean hasTest(long id) {
@@ -193,9 +195,10 @@ public class STestSuiteImpl implements STestSuiteReader {
 		if (dispatcher != null) for (SInputMetadata im : dispatcher.getGeneralParameters()) {
 			Object value = im.getDefaultValue();
 			if (value != null) general_params.put(im, value);
+			status.markModified(STestSuiteData.getParamField(im));
 		}
 		this.dispatcher = dispatcher;
-		notifyModified();
+		notifyModified("dispatcher");
 		callMetadataModifiedListeners();
 	}
 	public void setAccumulators(List<SParametersMetadata> accumulators) {
@@ -206,9 +209,10 @@ public class STestSuiteImpl implements STestSuiteReader {
 			for (SInputMetadata im : pm.getGeneralParameters()) {
 				Object value = im.getDefaultValue();
 				if (value != null) general_params.put(im, value);
+				status.markModified(STestSuiteData.getParamField(im));
 			}
 		this.accumulators = accumulators;
-		notifyModified();
+		notifyModified("accumulators");
 		callMetadataModifiedListeners();
 	}
 	public void setReporter(SParametersMetadata reporter) {
@@ -218,9 +222,10 @@ public class STestSuiteImpl implements STestSuiteReader {
 		if (reporter != null) for (SInputMetadata im : reporter.getGeneralParameters()) {
 			Object value = im.getDefaultValue();
 			if (value != null) general_params.put(im, value);
+			status.markModified(STestSuiteData.getParamField(im));
 		}
 		this.reporter = reporter;
-		notifyModified();
+		notifyModified("reporter");
 		callMetadataModifiedListeners();
 	}
 	
@@ -230,7 +235,7 @@ public class STestSuiteImpl implements STestSuiteReader {
 		if (value != null && value.equals(old_value)) return;
 		if (value != null) general_params.put(meta, value);
 		else general_params.remove(meta);
-		notifyModified();
+		notifyModified(STestSuiteData.getParamField(meta));
 	}
 	public void setTestParameter(SInputMetadata meta, long test, Object value) {
 		SPair<SInputMetadata, Long> key = new SPair<SInputMetadata, Long>(meta, test);
@@ -239,11 +244,11 @@ public class STestSuiteImpl implements STestSuiteReader {
 		if (value != null && value.equals(old_value)) return;
 		if (value != null) test_params.put(key, value);
 		else test_params.remove(key);
-		notifyModified();
+		notifyModified("test_params");
 	}
 	
-	private void notifyModified() {
-		status.markModified();
+	private void notifyModified(String field) {
+		status.markModified(field);
 		updateViews();
 	}
 	private void notifyOutdated() {
@@ -261,7 +266,7 @@ public class STestSuiteImpl implements STestSuiteReader {
 	
 	public void addView(SView view) { views.add(view); }
 	public void removeView(SView view) { views.remove(view); }
-	private void updateViews() { for (SView view : views) view.update(); }
+	private void updateViews() { views.update(); }
 	
 	public void reload(STaskHandler handler) throws STaskException {
 		snap.reload(handler); //calls snapModified //TODO
@@ -287,10 +292,13 @@ public class STestSuiteImpl implements STestSuiteReader {
 		snap.addReference(reference);
 		problem.getTestSuiteList().addTestSuite(snap);
 	}
+	//only the name and description are sent if nothing else was modified since the last sync
 	public void save(final STaskHandler handler) throws STaskException {
+		if (!isModified()) return;
+		final Set<String> fields = status.getModifiedFields();
 		handler.execute(new STask() {
 			@Override public void run() throws Exception {
-				STestSuiteData.save(handler, STestSuiteImpl.this);
+				STestSuiteData.save(handler, STestSuiteImpl.this, fields);
 			}
 		});
 		notifyUpToDate();
@@ -1,6 +1,7 @@
 package satori.problem.ui;
 
 import java.awt.Dimension;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.Box;
@@ -31,6 +32,7 @@ public class SParametersPane implements SPane {
 	private final STestSuiteImpl suite;
 	
 	private JComponent pane;
+	private final List<SPaneView> views = new ArrayList<SPaneView>(); //the suite holds them weakly
 	
 	public SParametersPane(STestSuiteImpl suite) {
 		this.suite = suite;
@@ -96,6 +98,7 @@ public class SParametersPane implements SPane {
 			if (im.getType() == SBlobType.INSTANCE) view = new SBlobInputView(new BlobInput(im, suite));
 			else view = new SStringInputView(new StringInput(im, suite));
 			suite.addView(view);
+			views.add(view);
 			view.getPane().setPreferredSize(itemDim);
 			view.getPane().setMinimumSize(itemDim);
 			view.getPane().setMaximumSize(itemDim);
@@ -5,7 +5,6 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -91,12 +90,11 @@ public class SProblemPane implements STabPane, SView {
 	};
 	private final SListener1<List<STestSnap>> open_tests_listener = new SListener1<List<STestSnap>>() {
 		@Override public void call(List<STestSnap> snaps) {
-			List<STestImpl> tests = new ArrayList<STestImpl>();
+			List<STestImpl> tests;
 			STaskHandler handler = STaskManager.getHandler();
-			try { for (STestSnap snap : snaps) {
-				try { tests.add(STestImpl.createRemote(handler, problem, snap)); }
-				catch(STaskException ex) { return; }
-			} } finally { handler.close(); }
+			try { tests = STestSuiteBase.createTestList(handler, problem, snaps); }
+			catch(STaskException ex) { return; }
+			finally { handler.close(); }
 			STestSuitePane.openTests(tabs, problem, STestSuiteBase.createNew(tests));
 		}
 	};
@@ -83,6 +83,7 @@ public class STestSuitePane implements STabPane, SView {
 		return suite != null && suite.isModified() || test_pane.getBase().hasModifiedTests();
 	}
 	@Override public void close() {
+		test_pane.close();
 		test_pane.getBase().closeTests();
 		if (suite != null) suite.close();
 	}
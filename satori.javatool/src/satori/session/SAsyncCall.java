@@ -0,0 +1,33 @@
+package satori.session;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClient;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingTransport;
+
+//one call of a service for SSession.callAsync, made on the generated AsyncClient or, with SSL, on the blocking Client
+//e.g. for Test_get_struct A is Test.AsyncClient, C is Test.AsyncClient.Test_get_struct_call and T is TestStruct
+public abstract class SAsyncCall<A extends TAsyncClient, C, T> {
+	//creates the AsyncClient of a service, e.g. return new Test.AsyncClient(protocol_factory, manager, transport)
+	public interface Service<A extends TAsyncClient> {
+		A createClient(TProtocolFactory protocol_factory, TAsyncClientManager manager, TNonblockingTransport transport);
+	}
+	
+	private final Service<A> service;
+	
+	protected SAsyncCall(Service<A> service) { this.service = service; }
+	
+	A createClient(TProtocolFactory protocol_factory, TAsyncClientManager manager, TNonblockingTransport transport) {
+		return service.createClient(protocol_factory, manager, transport);
+	}
+	
+	//sends the call, e.g. client.Test_get_struct(token, id, callback)
+	protected abstract void start(A client, AsyncMethodCallback<C> callback) throws TException;
+	//the result of the completed call, e.g. return call.getResult()
+	protected abstract T getResult(C call) throws Exception;
+	//the same call on the blocking Client, e.g. return new Test.Client(protocol).Test_get_struct(token, id)
+	protected abstract T run(TProtocol protocol) throws Exception;
+}
@@ -0,0 +1,224 @@
+package satori.session;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.async.AsyncMethodCallback;
+import org.apache.thrift.async.TAsyncClient;
+import org.apache.thrift.async.TAsyncClientManager;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.transport.TNonblockingSocket;
+import org.apache.thrift.transport.TTransport;
+
+import satori.config.SConfig;
+import satori.metrics.SMetrics;
+import satori.task.STaskExecutor;
+
+//asynchronous calls on Thrift's non-blocking client, all connections are served by the selector thread of one TAsyncClientManager
+//a connection carries one call at a time, at most SConfig.getConnections() calls are in flight and the others wait in a queue
+//Thrift has no non-blocking TLS, so with SSL the calls run blocking on connections of the SConnectionPool instead
+class SAsyncPool {
+	private static final int TIMEOUT = 10000;
+	private static final long MAX_IDLE_TIME = 60000;
+	
+	private static class Request<T> {
+		private final SAsyncCall<?, ?, T> call;
+		private final CompletableFuture<T> future = new CompletableFuture<T>();
+		private volatile SMetrics.Call metrics = null; //started when the call is written
+		
+		public Request(SAsyncCall<?, ?, T> call) { this.call = call; }
+		
+		public void finish(boolean success) { if (metrics != null) metrics.finish(success); }
+	}
+	
+	//binary protocol which starts recording the call of the request in SMetrics when its message is written
+	@SuppressWarnings("serial")
+	private static class MeteredFactory implements TProtocolFactory {
+		private final Request<?> request;
+		public MeteredFactory(Request<?> request) { this.request = request; }
+		@Override public TProtocol getProtocol(TTransport transport) {
+			return new TBinaryProtocol(transport) {
+				@Override public void writeMessageBegin(TMessage message) throws TException {
+					if (request.metrics == null) request.metrics = SMetrics.start("thrift:" + message.name);
+					super.writeMessageBegin(message);
+				}
+			};
+		}
+	}
+	
+	private static class Connection {
+		private final String address;
+		private final TNonblockingSocket transport;
+		private long released;
+		
+		public Connection(String address) throws IOException {
+			this.address = address;
+			this.transport = new TNonblockingSocket(SConfig.getHost(), SConfig.getThriftPort(), TIMEOUT);
+		}
+		
+		public boolean isExpired(long now) { return now - released > MAX_IDLE_TIME; }
+		
+		//an idle connection must have nothing to read
+		public boolean isHealthy() {
+			if (!transport.isOpen()) return false;
+			try { return transport.read(ByteBuffer.allocate(1)) == 0; }
+			catch(IOException ex) { return false; }
+		}
+		
+		public void close() { transport.close(); }
+	}
+	
+	private final Deque<Connection> idle = new ArrayDeque<Connection>();
+	private final Deque<Request<?>> waiting = new ArrayDeque<Request<?>>();
+	private int running = 0;
+	private TAsyncClientManager manager = null;
+	private ExecutorService executor = null;
+	private final SConnectionPool blocking_pool;
+	
+	public SAsyncPool(SConnectionPool blocking_pool) { this.blocking_pool = blocking_pool; }
+	
+	private static String getAddress() { return SConfig.getHost() + ":" + SConfig.getThriftPort(); }
+	
+	private synchronized TAsyncClientManager getManager() throws IOException {
+		if (manager == null || !manager.isRunning()) manager = new TAsyncClientManager();
+		return manager;
+	}
+	//completes the futures, so that their dependent stages never run on the selector thread, and runs the blocking calls
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) executor = STaskExecutor.createUnbounded("Satori async call");
+		return executor;
+	}
+	
+	public <T> CompletableFuture<T> call(SAsyncCall<?, ?, T> call) {
+		final Request<T> request = new Request<T>(call);
+		synchronized (this) {
+			if (running >= SConfig.getConnections()) {
+				waiting.addLast(request);
+				return request.future;
+			}
+			++running;
+		}
+		if (SConfig.getUseSSL()) getExecutor().execute(new Runnable() {
+			@Override public void run() { runBlocking(request); }
+		});
+		else start(request);
+		return request.future;
+	}
+	
+	//hands the slot of a finished call to the next waiting one, which is started on the executor and not on the selector thread
+	private void next() {
+		final Request<?> request;
+		synchronized (this) {
+			request = waiting.pollFirst();
+			if (request == null) { --running; return; }
+		}
+		getExecutor().execute(new Runnable() {
+			@Override public void run() { start(request); }
+		});
+	}
+	
+	private void fail(final Request<?> request, final Throwable error) {
+		getExecutor().execute(new Runnable() {
+			@Override public void run() { request.future.completeExceptionally(error); }
+		});
+	}
+	
+	private <T> void start(Request<T> request) {
+		if (SConfig.getUseSSL()) { runBlocking(request); return; }
+		Connection connection;
+		try {
+			connection = takeIdle();
+			if (connection == null) connection = new Connection(getAddress());
+		}
+		catch(Exception ex) {
+			next();
+			fail(request, ex);
+			return;
+		}
+		startAsync(connection, request, request.call);
+	}
+	
+	private <T> void runBlocking(Request<T> request) {
+		TProtocol protocol = null;
+		try {
+			protocol = blocking_pool.acquire(null);
+			T result = request.call.run(protocol);
+			blocking_pool.release(protocol);
+			next();
+			request.future.complete(result);
+		}
+		catch(Exception ex) {
+			if (protocol != null) blocking_pool.discard(protocol);
+			next();
+			request.future.completeExceptionally(ex);
+		}
+	}
+	
+	private <A extends TAsyncClient, C, T> void startAsync(final Connection connection, final Request<T> request, final SAsyncCall<A, C, T> call) {
+		AsyncMethodCallback<C> callback = new AsyncMethodCallback<C>() {
+			@Override public void onComplete(final C response) {
+				release(connection);
+				next();
+				getExecutor().execute(new Runnable() {
+					@Override public void run() {
+						T result;
+						try { result = call.getResult(response); }
+						catch(Exception ex) {
+							request.finish(false);
+							request.future.completeExceptionally(ex);
+							return;
+						}
+						request.finish(true);
+						request.future.complete(result);
+					}
+				});
+			}
+			@Override public void onError(Exception ex) {
+				request.finish(false);
+				connection.close();
+				next();
+				fail(request, ex);
+			}
+		};
+		try {
+			A client = call.createClient(new MeteredFactory(request), getManager(), connection.transport);
+			client.setTimeout(TIMEOUT);
+			call.start(client, callback);
+		}
+		catch(Exception ex) {
+			request.finish(false);
+			connection.close();
+			next();
+			fail(request, ex);
+		}
+	}
+	
+	private synchronized Connection takeIdle() {
+		String address = getAddress();
+		long now = System.currentTimeMillis();
+		while (!idle.isEmpty()) {
+			Connection connection = idle.pollLast();
+			if (connection.address.equals(address) && !connection.isExpired(now) && connection.isHealthy()) return connection;
+			connection.close();
+		}
+		return null;
+	}
+	private synchronized void release(Connection connection) {
+		if (!connection.address.equals(getAddress()) || idle.size() >= SConfig.getConnections()) { connection.close(); return; }
+		connection.released = System.currentTimeMillis();
+		idle.addLast(connection);
+	}
+	
+	public synchronized void clear() {
+		for (Connection connection : idle) connection.close();
+		idle.clear();
+	}
+}
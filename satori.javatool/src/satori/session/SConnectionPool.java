@@ -0,0 +1,178 @@
+package satori.session;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+
+import satori.config.SConfig;
+import satori.task.STaskHandler;
+
+class SConnectionPool {
+	private static final int SO_TIMEOUT = 10000;
+	private static final int MAX_IDLE = 8;
+	private static final long MAX_IDLE_TIME = 60000;
+	private static final long EVICT_PERIOD = 15000;
+	
+	private static class Connection {
+		private final String address;
+		private final Socket socket;
+		private final SMeteredProtocol protocol;
+		private long released;
+		
+		public Connection(String address, Socket socket) throws Exception {
+			this.address = address;
+			this.socket = socket;
+			this.protocol = new SMeteredProtocol(new TFramedTransport(new TSocket(socket)));
+		}
+		
+		public boolean isExpired(long now) { return now - released > MAX_IDLE_TIME; }
+		
+		//an idle connection must have nothing to read
+		public boolean isHealthy() {
+			if (socket.isClosed() || !socket.isConnected() || socket.isInputShutdown() || socket.isOutputShutdown()) return false;
+			try {
+				socket.setSoTimeout(1);
+				try { socket.getInputStream().read(); return false; }
+				catch(SocketTimeoutException ex) { return true; }
+				finally { socket.setSoTimeout(SO_TIMEOUT); }
+			}
+			catch(IOException ex) { return false; }
+		}
+		
+		public void close() {
+			protocol.abandon();
+			protocol.getTransport().close();
+		}
+	}
+	
+	private final Deque<Connection> idle = new ArrayDeque<Connection>();
+	private final Map<TProtocol, Connection> active = new IdentityHashMap<TProtocol, Connection>();
+	private SSLSocketFactory ssl_factory = null;
+	private Timer evict_timer = null;
+	
+	private static String getAddress() {
+		return (SConfig.getUseSSL() ? "ssl:" : "tcp:") + SConfig.getHost() + ":" + SConfig.getThriftPort();
+	}
+	
+	//shared, so that new sockets resume the cached TLS session
+	private synchronized SSLSocketFactory getSSLFactory() throws Exception {
+		if (ssl_factory != null) return ssl_factory;
+		SSLContext context = SSLContext.getInstance("TLSv1");
+		context.init(null, new TrustManager[] { new X509TrustManager() {
+			@Override public X509Certificate[] getAcceptedIssuers() { return null; }
+			@Override public void checkClientTrusted(X509Certificate[] certs, String authType) {}
+			@Override public void checkServerTrusted(X509Certificate[] certs, String authType) {}
+		} }, new SecureRandom());
+		ssl_factory = context.getSocketFactory();
+		return ssl_factory;
+	}
+	
+	private Socket createUnsecureSocket() throws Exception {
+		return new Socket(SConfig.getHost(), SConfig.getThriftPort());
+	}
+	private Socket createSecureSocket() throws Exception {
+		SSLSocket socket = (SSLSocket)getSSLFactory().createSocket(SConfig.getHost(), SConfig.getThriftPort());
+		socket.setEnabledProtocols(new String[] { "TLSv1" });
+		return socket;
+	}
+	private Connection connect(String address) throws Exception {
+		Socket socket = SConfig.getUseSSL() ? createSecureSocket() : createUnsecureSocket();
+		socket.setSoTimeout(SO_TIMEOUT);
+		socket.setKeepAlive(true);
+		socket.setTcpNoDelay(true);
+		return new Connection(address, socket);
+	}
+	
+	private synchronized Connection takeIdle(String address) {
+		while (!idle.isEmpty()) {
+			Connection connection = idle.pollLast();
+			if (connection.address.equals(address) && !connection.isExpired(System.currentTimeMillis())) return connection;
+			connection.close();
+		}
+		return null;
+	}
+	
+	public TProtocol acquire(STaskHandler handler) throws Exception {
+		String address = getAddress();
+		Connection connection;
+		while ((connection = takeIdle(address)) != null) {
+			if (connection.isHealthy()) break;
+			connection.close();
+		}
+		if (connection == null) {
+			if (handler != null) handler.log("Connecting to server...");
+			connection = connect(address);
+		}
+		synchronized (this) { active.put(connection.protocol, connection); }
+		return connection.protocol;
+	}
+	public void release(TProtocol protocol) {
+		Connection connection;
+		synchronized (this) {
+			connection = active.remove(protocol);
+			if (connection != null && connection.address.equals(getAddress()) && idle.size() < MAX_IDLE) {
+				connection.released = System.currentTimeMillis();
+				idle.addLast(connection);
+				startEvictTimer();
+				return;
+			}
+		}
+		if (connection != null) connection.close();
+		else protocol.getTransport().close();
+	}
+	public void discard(TProtocol protocol) {
+		Connection connection;
+		synchronized (this) { connection = active.remove(protocol); }
+		if (connection != null) connection.close();
+		else protocol.getTransport().close();
+	}
+	
+	public synchronized void clear() {
+		for (Connection connection : idle) connection.close();
+		idle.clear();
+		ssl_factory = null;
+	}
+	
+	private synchronized void evictExpired() {
+		long now = System.currentTimeMillis();
+		Iterator<Connection> iter = idle.iterator();
+		while (iter.hasNext()) {
+			Connection connection = iter.next();
+			if (!connection.isExpired(now)) continue;
+			iter.remove();
+			connection.close();
+		}
+		if (idle.isEmpty()) stopEvictTimer();
+	}
+	private void startEvictTimer() {
+		if (evict_timer != null) return;
+		evict_timer = new Timer("Satori connection pool", true);
+		evict_timer.schedule(new TimerTask() {
+			@Override public void run() { evictExpired(); }
+		}, EVICT_PERIOD, EVICT_PERIOD);
+	}
+	private void stopEvictTimer() {
+		if (evict_timer == null) return;
+		evict_timer.cancel();
+		evict_timer = null;
+	}
+}
@@ -0,0 +1,89 @@
+package satori.session;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+import satori.metrics.SMetrics;
+
+//binary protocol which records every call in SMetrics
+//a call lasts from writeMessageBegin to readMessageEnd, with SPipeline several calls are in flight and their responses are expected in order
+class SMeteredProtocol extends TBinaryProtocol {
+	private static class CountingTransport extends TTransport {
+		private final TTransport transport;
+		private SMetrics.Call writing = null; //the call whose request is written
+		private SMetrics.Call reading = null; //the oldest call in flight
+		
+		public CountingTransport(TTransport transport) { this.transport = transport; }
+		
+		@Override public boolean isOpen() { return transport.isOpen(); }
+		@Override public boolean peek() { return transport.peek(); }
+		@Override public void open() throws TTransportException { transport.open(); }
+		@Override public void close() { transport.close(); }
+		@Override public int read(byte[] buf, int off, int len) throws TTransportException {
+			int count = transport.read(buf, off, len);
+			if (reading != null && count > 0) reading.addBytesIn(count);
+			return count;
+		}
+		@Override public void write(byte[] buf, int off, int len) throws TTransportException {
+			transport.write(buf, off, len);
+			if (writing != null) writing.addBytesOut(len);
+		}
+		@Override public void flush() throws TTransportException {
+			transport.flush();
+			if (writing != null) writing.markSent();
+		}
+		@Override public byte[] getBuffer() { return transport.getBuffer(); }
+		@Override public int getBufferPosition() { return transport.getBufferPosition(); }
+		@Override public int getBytesRemainingInBuffer() { return transport.getBytesRemainingInBuffer(); }
+		@Override public void consumeBuffer(int len) {
+			transport.consumeBuffer(len);
+			if (reading != null) reading.addBytesIn(len);
+		}
+	}
+	
+	private final CountingTransport counter;
+	private final Deque<SMetrics.Call> calls = new ArrayDeque<SMetrics.Call>();
+	private boolean failed = false; //the server returned an application exception
+	
+	private SMeteredProtocol(CountingTransport counter) {
+		super(counter);
+		this.counter = counter;
+	}
+	public SMeteredProtocol(TTransport transport) { this(new CountingTransport(transport)); }
+	
+	private void finishCall(boolean success) {
+		SMetrics.Call call = calls.pollFirst();
+		if (call == null) return;
+		call.finish(success);
+		if (counter.writing == call) counter.writing = null;
+		counter.reading = calls.peekFirst();
+	}
+	
+	@Override public void writeMessageBegin(TMessage message) throws TException {
+		SMetrics.Call call = SMetrics.start("thrift:" + message.name);
+		calls.addLast(call);
+		counter.writing = call;
+		counter.reading = calls.peekFirst();
+		super.writeMessageBegin(message);
+	}
+	@Override public TMessage readMessageBegin() throws TException {
+		TMessage message = super.readMessageBegin();
+		if (counter.reading != null) counter.reading.markReceived();
+		failed = message.type == TMessageType.EXCEPTION;
+		return message;
+	}
+	@Override public void readMessageEnd() {
+		super.readMessageEnd();
+		finishCall(!failed);
+	}
+	
+	//the calls in progress, if any, did not complete
+	public void abandon() { while (!calls.isEmpty()) finishCall(false); }
+}
@@ -0,0 +1,96 @@
+package satori.session;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TMemoryInputTransport;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+//several calls in flight on one framed connection, e.g. for the clients a and b over two protocols of the pipeline
+//a.send_X(...); b.send_Y(...); a.recv_X(); b.recv_Y(); costs one round trip instead of two
+//the requests get sequence ids unique on the connection, the responses are matched by them in whatever order they arrive
+//meant for small requests, a large one could fill the socket buffers while the responses are not read yet
+public class SPipeline {
+	private static class Response {
+		private final TMessage message;
+		private final byte[] body;
+		public Response(TMessage message, byte[] body) {
+			this.message = message;
+			this.body = body;
+		}
+	}
+	
+	//writes go to the connection, reads come from the response of the call
+	private static class CallTransport extends TTransport {
+		private final TTransport connection;
+		private TMemoryInputTransport response = null;
+		
+		public CallTransport(TTransport connection) { this.connection = connection; }
+		
+		@Override public boolean isOpen() { return connection.isOpen(); }
+		@Override public void open() throws TTransportException { connection.open(); }
+		@Override public void close() {}
+		@Override public int read(byte[] buf, int off, int len) throws TTransportException {
+			if (response == null) throw new TTransportException("No response to read");
+			return response.read(buf, off, len);
+		}
+		@Override public void write(byte[] buf, int off, int len) throws TTransportException { connection.write(buf, off, len); }
+		@Override public void flush() throws TTransportException { connection.flush(); }
+	}
+	
+	private class CallProtocol extends TBinaryProtocol {
+		private final CallTransport transport;
+		private int seqid = -1, client_seqid = -1;
+		
+		private CallProtocol(CallTransport transport) {
+			super(transport);
+			this.transport = transport;
+		}
+		
+		@Override public void writeMessageBegin(TMessage message) throws TException {
+			client_seqid = message.seqid;
+			seqid = ++last_seqid;
+			transport.response = null;
+			connection.writeMessageBegin(new TMessage(message.name, message.type, seqid));
+		}
+		@Override public TMessage readMessageBegin() throws TException {
+			Response response = receive(seqid);
+			transport.response = new TMemoryInputTransport(response.body);
+			return new TMessage(response.message.name, response.message.type, client_seqid);
+		}
+		@Override public void readMessageEnd() { transport.response = null; }
+	}
+	
+	private final TProtocol connection;
+	private int last_seqid = 0;
+	private final Map<Integer, Response> received = new HashMap<Integer, Response>();
+	
+	public SPipeline(TProtocol connection) { this.connection = connection; }
+	
+	//a protocol for the calls of one client, each of its calls must be received before the next one is sent
+	public TProtocol createProtocol() { return new CallProtocol(new CallTransport(connection.getTransport())); }
+	
+	//reads whole responses from the connection until the one with the sequence id, keeping the others for their calls
+	private Response receive(int seqid) throws TException {
+		Response result = received.remove(seqid);
+		while (result == null) {
+			TMessage message = connection.readMessageBegin();
+			TTransport transport = connection.getTransport();
+			int length = transport.getBytesRemainingInBuffer();
+			if (length < 0) throw new TTransportException("Pipelined calls need a framed transport");
+			int offset = transport.getBufferPosition();
+			Response response = new Response(message, Arrays.copyOfRange(transport.getBuffer(), offset, offset + length));
+			transport.consumeBuffer(length);
+			connection.readMessageEnd();
+			if (message.seqid == seqid) result = response;
+			else received.put(message.seqid, response);
+		}
+		return result;
+	}
+}
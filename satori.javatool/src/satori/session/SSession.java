@@ -1,24 +1,11 @@
 package satori.session;
 
-import java.net.Socket;
-import java.security.SecureRandom;
-import java.security.cert.X509Certificate;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocket;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
-
-import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.protocol.TProtocol;
-import org.apache.thrift.transport.TFramedTransport;
-import org.apache.thrift.transport.TSocket;
 
 import satori.common.SView;
-import satori.config.SConfig;
+import satori.common.SViewList;
 import satori.task.STask;
 import satori.task.STaskException;
 import satori.task.STaskHandler;
@@ -29,31 +16,20 @@ public class SSession {
 	private String password = null;
 	private String token = "";
 	
-	private static Socket createUnsecureSocket() throws Exception {
-		return new Socket(SConfig.getHost(), SConfig.getThriftPort());
-	}
-	private static Socket createSecureSocket() throws Exception {
-		SSLContext context = SSLContext.getInstance("TLSv1");
-		context.init(null, new TrustManager[] { new X509TrustManager() {
-			@Override public X509Certificate[] getAcceptedIssuers() { return null; }
-			@Override public void checkClientTrusted(X509Certificate[] certs, String authType) {}
-			@Override public void checkServerTrusted(X509Certificate[] certs, String authType) {}
-		} }, new SecureRandom());
-		SSLSocketFactory socket_factory = context.getSocketFactory();
-		SSLSocket socket = (SSLSocket)socket_factory.createSocket(SConfig.getHost(), SConfig.getThriftPort());
-		socket.setEnabledProtocols(new String[] { "TLSv1" });
-		return socket;
-	}
-	public static TProtocol getProtocol(STaskHandler handler) throws Exception {
-		handler.log("Connecting to server...");
-		Socket socket = SConfig.getUseSSL() ? createSecureSocket() : createUnsecureSocket();
-		socket.setSoTimeout(10000);
-		return new TBinaryProtocol(new TFramedTransport(new TSocket(socket)));
-	}
-	public static void closeProtocol(TProtocol protocol) { protocol.getTransport().close(); }
+	private static final SConnectionPool pool = new SConnectionPool();
+	
+	public static TProtocol getProtocol(STaskHandler handler) throws Exception { return pool.acquire(handler); }
+	public static void closeProtocol(TProtocol protocol) { pool.release(protocol); }
+	public static void discardProtocol(TProtocol protocol) { pool.discard(protocol); }
+	
+	private static final SAsyncPool async_pool = new SAsyncPool(pool);
+	
+	//makes the call on the generated AsyncClient of its service, see SAsyncCall
+	//the future is completed with the result, or with the exception thrown by the method, never on the selector thread
+	public static <T> CompletableFuture<T> callAsync(SAsyncCall<?, ?, T> call) { return async_pool.call(call); }
 	
 	private static volatile SSession instance = new SSession();
-	private static final List<SView> views = new ArrayList<SView>();
+	private static final SViewList views = new SViewList();
 	
 	private static class LoginTask implements STask {
 		private final STaskHandler handler;
@@ -84,6 +60,8 @@ public class SSession {
 	}
 	public static void logout() {
 		instance = new SSession();
+		pool.clear();
+		async_pool.clear();
 		updateViews();
 	}
 	
@@ -93,5 +71,5 @@ public class SSession {
 	
 	public static void addView(SView view) { views.add(view); }
 	public static void removeView(SView view) { views.remove(view); }
-	private static void updateViews() { for (SView view : views) view.update(); }
+	private static void updateViews() { views.update(); }
 }
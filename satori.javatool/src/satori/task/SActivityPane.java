@@ -0,0 +1,112 @@
+package satori.task;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.BorderFactory;
+import javax.swing.Box;
+import javax.swing.BoxLayout;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+
+//non-modal list of background tasks, accessed on the event dispatch thread
+class SActivityPane {
+	private final JFrame frame;
+	private JDialog dialog = null;
+	private Box entry_pane;
+	private int entries = 0;
+	
+	class Entry {
+		private final JPanel pane;
+		private final JLabel status_label;
+		private final JButton button;
+		private final StringBuilder log = new StringBuilder();
+		private Runnable cancel_listener = null;
+		private boolean finished = false;
+		
+		private Entry(String title) {
+			pane = new JPanel(new BorderLayout());
+			pane.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+			JPanel label_pane = new JPanel(new BorderLayout());
+			label_pane.add(new JLabel(title), BorderLayout.NORTH);
+			status_label = new JLabel(" ");
+			label_pane.add(status_label, BorderLayout.SOUTH);
+			pane.add(label_pane, BorderLayout.CENTER);
+			button = new JButton("Cancel");
+			button.addActionListener(new ActionListener() {
+				@Override public void actionPerformed(ActionEvent e) { buttonPressed(); }
+			});
+			JPanel button_pane = new JPanel(new FlowLayout(FlowLayout.CENTER, 5, 0));
+			button_pane.add(button);
+			pane.add(button_pane, BorderLayout.EAST);
+			pane.setMaximumSize(new Dimension(Integer.MAX_VALUE, pane.getPreferredSize().height));
+		}
+		
+		public void setCancelListener(Runnable listener) { cancel_listener = listener; }
+		
+		private void buttonPressed() {
+			if (!finished) {
+				button.setEnabled(false);
+				if (cancel_listener != null) cancel_listener.run();
+			} else removeEntry(this);
+		}
+		
+		public void log(String message) {
+			if (finished) return;
+			log.append(message + "\n");
+			status_label.setText(message);
+			status_label.setToolTipText("<html>" + log.toString().replace("&", "&amp;").replace("<", "&lt;").replace("\n", "<br>") + "</html>");
+		}
+		public void finish(boolean success, String message) {
+			if (!success) log(message);
+			finished = true;
+			if (success) { removeEntry(this); return; }
+			button.setText("Dismiss");
+			button.setEnabled(true);
+		}
+	}
+	
+	public SActivityPane(JFrame frame) { this.frame = frame; }
+	
+	private void initialize() {
+		dialog = new JDialog(frame, "Activity", false);
+		dialog.setAutoRequestFocus(false);
+		dialog.getContentPane().setLayout(new BorderLayout());
+		entry_pane = new Box(BoxLayout.Y_AXIS);
+		JPanel scroll_content = new JPanel(new BorderLayout());
+		scroll_content.add(entry_pane, BorderLayout.NORTH);
+		dialog.getContentPane().add(new JScrollPane(scroll_content), BorderLayout.CENTER);
+		dialog.setSize(400, 250);
+		dialog.setLocationRelativeTo(frame);
+		dialog.setDefaultCloseOperation(JDialog.HIDE_ON_CLOSE);
+	}
+	
+	private void removeEntry(Entry entry) {
+		entry_pane.remove(entry.pane);
+		entry_pane.revalidate();
+		entry_pane.repaint();
+		if (--entries == 0) dialog.setVisible(false);
+	}
+	
+	public Entry addEntry(String title) {
+		if (dialog == null) initialize();
+		Entry entry = new Entry(title);
+		entry_pane.add(entry.pane);
+		entry_pane.revalidate();
+		++entries;
+		if (!dialog.isVisible()) dialog.setVisible(true);
+		return entry;
+	}
+	
+	public void show() {
+		if (dialog == null) initialize();
+		dialog.setVisible(true);
+	}
+}
@@ -0,0 +1,5 @@
+package satori.task;
+
+public interface SBackgroundTask<T> {
+	T run(STaskHandler handler) throws Exception;
+}
@@ -0,0 +1,43 @@
+package satori.task;
+
+import org.apache.thrift.protocol.TProtocol;
+
+import satori.session.SSession;
+
+//for running tasks without the user interface, messages go to the standard error
+public class SConsoleHandler implements STaskHandler {
+	private static final Object output_lock = new Object();
+	
+	private final boolean verbose;
+	private TProtocol protocol = null;
+	
+	public SConsoleHandler(boolean verbose) { this.verbose = verbose; }
+	
+	public static void print(String message) {
+		synchronized (output_lock) { System.err.println(message); }
+	}
+	
+	@Override public synchronized TProtocol getProtocol() throws Exception {
+		if (protocol == null) protocol = SSession.getProtocol(this);
+		return protocol;
+	}
+	
+	@Override public void log(String message) { if (verbose) print(message); }
+	@Override public void execute(STask task) throws STaskException {
+		try { task.run(); }
+		catch(Exception ex) { print(ex.toString()); discardProtocol(); throw new STaskException(); }
+	}
+	@Override public <T> T execute(SResultTask<T> task) throws STaskException {
+		try { return task.run(); }
+		catch(Exception ex) { print(ex.toString()); discardProtocol(); throw new STaskException(); }
+	}
+	
+	private synchronized void discardProtocol() {
+		if (protocol != null) SSession.discardProtocol(protocol);
+		protocol = null;
+	}
+	@Override public synchronized void close() {
+		if (protocol != null) SSession.closeProtocol(protocol);
+		protocol = null;
+	}
+}
@@ -0,0 +1,7 @@
+package satori.task;
+
+//called on the event dispatch thread
+public interface STaskCallback<T> {
+	void succeeded(T result);
+	void failed();
+}
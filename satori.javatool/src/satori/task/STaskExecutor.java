@@ -0,0 +1,47 @@
+package satori.task;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class STaskExecutor {
+	private static final long KEEP_ALIVE = 60;
+	
+	private static ThreadFactory createVirtualFactory(String name) {
+		try {
+			Class<?> builder_class = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builder_class.getMethod("name", String.class, long.class).invoke(builder, name + " ", 1L);
+			return (ThreadFactory)builder_class.getMethod("factory").invoke(builder);
+		}
+		catch(Exception ex) { return null; }
+	}
+	private static ThreadFactory createPlatformFactory(final String name) {
+		final AtomicInteger count = new AtomicInteger(0);
+		return new ThreadFactory() {
+			@Override public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, name + " " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+	//virtual threads where the runtime has them
+	static ThreadFactory createThreadFactory(String name) {
+		ThreadFactory factory = createVirtualFactory(name);
+		return factory != null ? factory : createPlatformFactory(name);
+	}
+	
+	public static ExecutorService createBounded(String name, int threads) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), createThreadFactory(name));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	public static ExecutorService createUnbounded(String name) {
+		return Executors.newCachedThreadPool(createThreadFactory(name));
+	}
+}
@@ -4,6 +4,12 @@ import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -18,13 +24,15 @@ import org.apache.thrift.protocol.TProtocol;
 import satori.session.SSession;
 
 public class STaskManager {
+	private static final int BACKGROUND_WORKERS = 8;
+	
 	private static abstract class AbstractMonitor {
 		private final JDialog dialog;
 		private final JTextArea log_area;
 		private final JButton abort_button, close_button;
 		private final StringBuilder log = new StringBuilder();
 		
-		private Thread thread;
+		private Future<?> future;
 		private boolean success;
 		
 		protected AbstractMonitor(JFrame frame) {
@@ -53,7 +61,7 @@ public class STaskManager {
 		}
 		
 		private synchronized void abortTask() {
-			if (thread != null) thread.interrupt();
+			if (future != null) future.cancel(true);
 		}
 		private synchronized void updateLog() {
 			log_area.setText(log.toString());
@@ -77,7 +85,7 @@ public class STaskManager {
 		}
 		
 		private synchronized void finishSuccess() {
-			thread = null;
+			future = null;
 			success = true;
 			SwingUtilities.invokeLater(new Runnable() {
 				@Override public void run() { closeDialog(); }
@@ -85,21 +93,20 @@ public class STaskManager {
 		}
 		private synchronized void finishFailure(String message) {
 			log.append(message + "\n");
-			thread = null;
+			future = null;
 			success = false;
 			SwingUtilities.invokeLater(new Runnable() {
 				@Override public void run() { updateAfterFailure(); }
 			});
 		}
 		private synchronized void runThread() {
-			thread = new Thread(new Runnable() {
+			future = getModalExecutor().submit(new Runnable() {
 				@Override public void run() {
 					try { runTask(); }
 					catch(Throwable t) { finishFailure(t.toString()); return; }
 					finishSuccess();
 				}
 			});
-			thread.start();
 		}
 		private synchronized void checkSuccess() throws STaskException {
 			if (!success) throw new STaskException();
@@ -135,6 +142,22 @@ public class STaskManager {
 	
 	private static volatile AbstractMonitor monitor = null;
 	private static JFrame frame = null;
+	private static ExecutorService modal_executor = null;
+	private static ExecutorService background_executor = null;
+	private static SActivityPane activity = null;
+	
+	private static synchronized ExecutorService getModalExecutor() {
+		if (modal_executor == null) modal_executor = STaskExecutor.createUnbounded("Satori task");
+		return modal_executor;
+	}
+	private static synchronized ExecutorService getBackgroundExecutor() {
+		if (background_executor == null) background_executor = STaskExecutor.createBounded("Satori background task", BACKGROUND_WORKERS);
+		return background_executor;
+	}
+	private static SActivityPane getActivity() {
+		if (activity == null) activity = new SActivityPane(frame);
+		return activity;
+	}
 	
 	private static class Handler implements STaskHandler {
 		private TProtocol protocol = null;
@@ -147,21 +170,132 @@ public class STaskManager {
 		@Override public void log(String message) { monitor.log(message); }
 		@Override public void execute(STask task) throws STaskException {
 			monitor = new Monitor(frame, task);
-			monitor.execute();
+			try { monitor.execute(); }
+			catch(STaskException ex) { discardProtocol(); throw ex; }
 		}
 		@Override public <T> T execute(SResultTask<T> task) throws STaskException {
 			ResultMonitor<T> mon = new ResultMonitor<T>(frame, task);
 			monitor = mon;
-			monitor.execute();
+			try { monitor.execute(); }
+			catch(STaskException ex) { discardProtocol(); throw ex; }
 			return mon.getResult();
 		}
 		
+		//a failed task may have left the connection in the middle of a call
+		private void discardProtocol() {
+			if (protocol != null) SSession.discardProtocol(protocol);
+			protocol = null;
+		}
 		@Override public void close() {
 			if (protocol != null) SSession.closeProtocol(protocol);
+			protocol = null;
+		}
+	}
+	
+	private static class BackgroundHandler implements STaskHandler {
+		private final SActivityPane.Entry entry;
+		private TProtocol protocol = null;
+		private boolean finished = false;
+		
+		public BackgroundHandler(SActivityPane.Entry entry) { this.entry = entry; }
+		
+		@Override public synchronized TProtocol getProtocol() throws Exception {
+			if (finished) throw new InterruptedException();
+			if (protocol == null) protocol = SSession.getProtocol(this);
+			return protocol;
+		}
+		
+		@Override public void log(final String message) {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override public void run() { entry.log(message); }
+			});
+		}
+		@Override public void execute(STask task) throws STaskException {
+			try { task.run(); }
+			catch(Exception ex) { log(ex.toString()); throw new STaskException(); }
+		}
+		@Override public <T> T execute(SResultTask<T> task) throws STaskException {
+			try { return task.run(); }
+			catch(Exception ex) { log(ex.toString()); throw new STaskException(); }
+		}
+		
+		//closing the connection of a cancelled task also breaks its pending call
+		public synchronized void finish(boolean success) {
+			finished = true;
+			if (protocol != null && success) SSession.closeProtocol(protocol);
+			else if (protocol != null) SSession.discardProtocol(protocol);
+			protocol = null;
+		}
+		@Override public void close() {}
+	}
+	
+	private static class SilentHandler implements STaskHandler {
+		private TProtocol protocol = null;
+		
+		@Override public TProtocol getProtocol() throws Exception {
+			if (protocol == null) protocol = SSession.getProtocol(this);
+			return protocol;
+		}
+		
+		@Override public void log(String message) {}
+		@Override public void execute(STask task) throws STaskException {
+			try { task.run(); }
+			catch(Exception ex) { discardProtocol(); throw new STaskException(); }
+		}
+		@Override public <T> T execute(SResultTask<T> task) throws STaskException {
+			try { return task.run(); }
+			catch(Exception ex) { discardProtocol(); throw new STaskException(); }
+		}
+		
+		private void discardProtocol() {
+			if (protocol != null) SSession.discardProtocol(protocol);
+			protocol = null;
+		}
+		@Override public void close() {
+			if (protocol != null) SSession.closeProtocol(protocol);
+			protocol = null;
 		}
 	}
 	
 	public static STaskHandler getHandler() { return new Handler(); }
+	//for periodic work that is not shown to the user
+	public static STaskHandler getSilentHandler() { return new SilentHandler(); }
+	
+	//runs the task in the background, must be called on the event dispatch thread
+	public static <T> Future<T> submit(String title, final SBackgroundTask<T> task, final STaskCallback<T> callback) {
+		final SActivityPane.Entry entry = getActivity().addEntry(title);
+		final BackgroundHandler handler = new BackgroundHandler(entry);
+		final FutureTask<T> future = new FutureTask<T>(new Callable<T>() {
+			@Override public T call() throws Exception { return task.run(handler); }
+		}) {
+			@Override protected void done() {
+				T result = null;
+				String message = null;
+				try { result = get(); }
+				catch(CancellationException ex) { message = "Cancelled"; }
+				catch(ExecutionException ex) { message = ex.getCause().toString(); }
+				catch(InterruptedException ex) { message = "Cancelled"; }
+				handler.finish(message == null);
+				final T final_result = result;
+				final String final_message = message;
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override public void run() {
+						entry.finish(final_message == null, final_message);
+						if (callback == null) return;
+						if (final_message == null) callback.succeeded(final_result);
+						else callback.failed();
+					}
+				});
+			}
+		};
+		entry.setCancelListener(new Runnable() {
+			@Override public void run() { future.cancel(true); }
+		});
+		getBackgroundExecutor().execute(future);
+		return future;
+	}
+	
+	public static void showActivity() { getActivity().show(); }
 	
 	public static void setFrame(JFrame frame) { STaskManager.frame = frame; }
 }
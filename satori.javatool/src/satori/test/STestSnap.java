@@ -10,6 +10,7 @@ import satori.common.SListener1;
 import satori.common.SModel;
 import satori.common.SReference;
 import satori.common.SView;
+import satori.common.SViewList;
 import satori.metadata.SInputMetadata;
 import satori.metadata.SJudge;
 
@@ -22,7 +23,7 @@ public class STestSnap implements STestReader, SModel {
 	private Map<SInputMetadata, Object> input;
 	private boolean complete;
 	
-	private final List<SView> views = new ArrayList<SView>();
+	private final SViewList views = new SViewList();
 	private final List<SReference> refs = new ArrayList<SReference>();
 	private final List<SListener1<STestSnap>> deleted_listeners = new ArrayList<SListener1<STestSnap>>();
 	
@@ -78,7 +79,7 @@ public class STestSnap implements STestReader, SModel {
 	}
 	
 	private void notifyModified() {
-		for (SView view : views) view.update();
+		views.update();
 		for (SReference ref : refs) ref.notifyModified();
 	}
 	public void notifyDeleted() {
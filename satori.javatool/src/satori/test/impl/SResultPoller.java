@@ -0,0 +1,137 @@
+package satori.test.impl;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import satori.data.STemporarySubmitData;
+import satori.metadata.SOutputMetadata;
+import satori.task.SResultTask;
+import satori.task.STaskException;
+import satori.task.STaskHandler;
+import satori.task.STaskManager;
+import satori.test.STemporarySubmitReader;
+
+//polls pending temporary submits in batches, backing off while nothing finishes
+class SResultPoller {
+	private static final long MIN_DELAY = 1000;
+	private static final long MAX_DELAY = 30000;
+	private static final long MAX_AGE = 3600000;
+	
+	private static class Entry {
+		private final STestResult result;
+		private final int generation;
+		private final long id;
+		private final List<SOutputMetadata> meta;
+		private final long started = System.currentTimeMillis();
+		
+		public Entry(STestResult result, int generation, long id, List<SOutputMetadata> meta) {
+			this.result = result;
+			this.generation = generation;
+			this.id = id;
+			this.meta = meta;
+		}
+	}
+	
+	private static final Map<STestResult, Entry> entries = new IdentityHashMap<STestResult, Entry>();
+	private static final Random random = new Random();
+	private static ScheduledExecutorService scheduler = null;
+	private static ScheduledFuture<?> next = null;
+	private static boolean polling = false;
+	private static long delay = MIN_DELAY;
+	
+	private static ScheduledExecutorService getScheduler() {
+		if (scheduler == null) scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Satori result poller");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		return scheduler;
+	}
+	
+	//must be called with the class locked
+	private static void schedule() {
+		if (next != null) next.cancel(false);
+		next = null;
+		if (entries.isEmpty() || polling) return;
+		long jitter = delay / 4;
+		long time = delay - jitter + (long)(random.nextDouble() * 2 * jitter);
+		next = getScheduler().schedule(new Runnable() {
+			@Override public void run() { poll(); }
+		}, time, TimeUnit.MILLISECONDS);
+	}
+	
+	static synchronized void add(STestResult result, int generation, long id, List<SOutputMetadata> meta) {
+		Entry entry = entries.get(result);
+		if (entry != null && entry.generation == generation && entry.id == id) return;
+		entries.put(result, new Entry(result, generation, id, meta));
+		delay = MIN_DELAY;
+		schedule();
+	}
+	static synchronized void remove(STestResult result) {
+		entries.remove(result);
+	}
+	
+	private static synchronized List<Entry> startPoll() {
+		next = null;
+		polling = true;
+		long now = System.currentTimeMillis();
+		List<Entry> list = new ArrayList<Entry>();
+		for (Entry entry : new ArrayList<Entry>(entries.values())) {
+			if (now - entry.started > MAX_AGE) entries.remove(entry.result);
+			else list.add(entry);
+		}
+		return list;
+	}
+	private static synchronized void finishPoll(List<Entry> finished) {
+		for (Entry entry : finished) if (entries.get(entry.result) == entry) entries.remove(entry.result);
+		polling = false;
+		if (!finished.isEmpty()) delay = MIN_DELAY;
+		else delay = Math.min(2 * delay, MAX_DELAY);
+		schedule();
+	}
+	
+	private static void poll() {
+		final List<Entry> list = startPoll();
+		final List<Long> ids = new ArrayList<Long>();
+		final List<List<SOutputMetadata>> metas = new ArrayList<List<SOutputMetadata>>();
+		for (Entry entry : list) {
+			ids.add(entry.id);
+			metas.add(entry.meta);
+		}
+		List<Entry> finished = new ArrayList<Entry>();
+		final STaskHandler handler = STaskManager.getSilentHandler();
+		try {
+			if (!list.isEmpty()) {
+				final List<STemporarySubmitReader> submits = handler.execute(new SResultTask<List<STemporarySubmitReader>>() {
+					@Override public List<STemporarySubmitReader> run() throws Exception { return STemporarySubmitData.load(handler, ids, metas); }
+				});
+				for (int i = 0; i < list.size(); ++i) if (!submits.get(i).getPending()) finished.add(list.get(i));
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override public void run() {
+						for (int i = 0; i < list.size(); ++i) {
+							Entry entry = list.get(i);
+							if (entry.result.getGeneration() == entry.generation && !submits.get(i).getPending()) entry.result.setResult(submits.get(i));
+						}
+					}
+				});
+			}
+		}
+		catch(STaskException ex) {}
+		finally {
+			handler.close();
+			finishPoll(finished);
+		}
+	}
+}
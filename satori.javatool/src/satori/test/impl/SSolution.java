@@ -6,13 +6,14 @@ import java.util.List;
 import satori.common.SInput;
 import satori.common.SListener0;
 import satori.common.SView;
+import satori.common.SViewList;
 import satori.data.SBlob;
 import satori.task.STaskHandler;
 
 public class SSolution implements SInput<SBlob> {
 	private SBlob blob;
 	private final List<SListener0> modified_listeners = new ArrayList<SListener0>();
-	private final List<SView> views = new ArrayList<SView>();
+	private final SViewList views = new SViewList();
 	
 	@Override public SBlob get() { return blob; }
 	@Override public String getText() { return blob != null ? blob.getName() : null; }
@@ -32,5 +33,5 @@ public class SSolution implements SInput<SBlob> {
 	
 	public void addView(SView view) { views.add(view); }
 	public void removeView(SView view) { views.remove(view); }
-	private void updateViews() { for (SView view : views) view.update(); }
+	private void updateViews() { views.update(); }
 }
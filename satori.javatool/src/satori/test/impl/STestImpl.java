@@ -5,6 +5,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import satori.common.SAssert;
 import satori.common.SDataStatus;
@@ -12,6 +13,7 @@ import satori.common.SId;
 import satori.common.SListener0;
 import satori.common.SReference;
 import satori.common.SView;
+import satori.common.SViewList;
 import satori.data.SBlob;
 import satori.data.STestData;
 import satori.metadata.SInputMetadata;
@@ -38,7 +40,7 @@ public class STestImpl implements STestReader {
 	private final SDataStatus status = new SDataStatus();
 	private final List<SListener0> data_modified_listeners = new ArrayList<SListener0>();
 	private final List<SListener0> metadata_modified_listeners = new ArrayList<SListener0>();
-	private final List<SView> views = new ArrayList<SView>();
+	private final SViewList views = new SViewList();
 	private final SReference reference = new SReference() {
 		@Override public void notifyModified() { snapModified(); }
 		@Override public void notifyDeleted() { snapDeleted(); }
@@ -54,6 +56,7 @@ public class STestImpl implements STestReader {
 	public Object getInput(SInputMetadata meta) { return input.get(meta); }
 	public boolean isRemote() { return hasId(); }
 	public boolean isModified() { return status.isModified(); }
+	public Set<String> getModifiedFields() { return status.getModifiedFields(); }
 	public boolean isOutdated() { return status.isOutdated(); }
 	public boolean isProblemRemote() { return problem.hasId(); }
 	
@@ -64,25 +67,26 @@ public class STestImpl implements STestReader {
 	public static STestImpl createNew(SParentProblem problem) {
 		return new STestImpl(problem);
 	}
-	public static STestImpl createRemote(STaskHandler handler, SParentProblem problem, STestSnap snap) throws STaskException {
+	public static STestImpl createRemote(SParentProblem problem, STestSnap snap, STestReader source) {
 		STestImpl self = new STestImpl(problem);
 		self.snap = snap;
 		self.snap.addReference(self.reference);
 		self.id = new SId(snap.getId());
-		self.reload(handler);
+		self.load(source);
 		return self;
 	}
 	
-	private boolean check(STestReader source) {
-		SAssert.assertEquals(source.getId(), getId(), "Test ids don't match");
-		SAssert.assertEquals(source.getProblemId(), getProblemId(), "Problem ids don't match");
-		if (!source.getName().equals(name)) return true;
-		if (!source.getDescription().equals(desc)) return true;
-		if (source.getJudge() == null && judge != null) return true;
-		if (source.getJudge() != null && !source.getJudge().equals(judge)) return true;
-		if (!input.equals(source.getInput())) return true;
+	private static boolean check(STestReader test, STestReader source) {
+		SAssert.assertEquals(source.getId(), test.getId(), "Test ids don't match");
+		SAssert.assertEquals(source.getProblemId(), test.getProblemId(), "Problem ids don't match");
+		if (!source.getName().equals(test.getName())) return true;
+		if (!source.getDescription().equals(test.getDescription())) return true;
+		if (source.getJudge() == null && test.getJudge() != null) return true;
+		if (source.getJudge() != null && !source.getJudge().equals(test.getJudge())) return true;
+		if (!test.getInput().equals(source.getInput())) return true;
 		return false;
 	}
+	private boolean check(STestReader source) { return check(this, source); }
 	
 	private void snapModified() {
 		if (!check(snap)) return;
@@ -97,12 +101,12 @@ public class STestImpl implements STestReader {
 	public void setName(String name) {
 		if (this.name.equals(name)) return;
 		this.name = name;
-		notifyModified();
+		notifyModified(STestData.NAME_FIELD);
 	}
 	public void setDescription(String desc) {
 		if (this.desc.equals(desc)) return;
 		this.desc = desc;
-		notifyModified();
+		notifyModified(STestData.DESCRIPTION_FIELD);
 	}
 	private static SInputMetadata getInputMetadataByName(List<SInputMetadata> list, String name) {
 		for (SInputMetadata meta : list) if (meta.getName().equals(name)) return meta;
@@ -122,12 +126,13 @@ public class STestImpl implements STestReader {
 				Object value = old_meta != null ? old_input.get(old_meta) : null;
 				if (value == null) value = meta.getDefaultValue();
 				if (value != null) input.put(meta, value);
+				status.markModified(STestData.getDataField(meta.getName()));
 			}
 		} else {
 			judge = null;
 			input = Collections.emptyMap();
 		}
-		notifyModified();
+		notifyModified(STestData.getDataField("judge"));
 		callMetadataModifiedListeners();
 		callDataModifiedListeners();
 	}
@@ -137,12 +142,12 @@ public class STestImpl implements STestReader {
 		if (value != null && value.equals(old_value)) return;
 		if (value != null) input.put(meta, value);
 		else input.remove(meta);
-		notifyModified();
+		notifyModified(STestData.getDataField(meta.getName()));
 		callDataModifiedListeners();
 	}
 	
-	private void notifyModified() {
-		status.markModified();
+	private void notifyModified(String field) {
+		status.markModified(field);
 		updateViews();
 	}
 	private void notifyOutdated() {
@@ -164,14 +169,9 @@ public class STestImpl implements STestReader {
 	
 	public void addView(SView view) { views.add(view); }
 	public void removeView(SView view) { views.remove(view); }
-	private void updateViews() { for (SView view : views) view.update(); }
+	private void updateViews() { views.update(); }
 	
-	public void reload(final STaskHandler handler) throws STaskException {
-		STestReader source = handler.execute(new SResultTask<STestReader>() {
-			@Override public STestReader run() throws Exception {
-				return STestData.load(handler, getId());
-			}
-		});
+	private void load(STestReader source) {
 		name = source.getName();
 		judge = source.getJudge();
 		desc = source.getDescription();
@@ -181,6 +181,20 @@ public class STestImpl implements STestReader {
 		callDataModifiedListeners();
 		snap.set(this);
 	}
+	public void reload(final STaskHandler handler) throws STaskException {
+		load(handler.execute(new SResultTask<STestReader>() {
+			@Override public STestReader run() throws Exception {
+				return STestData.load(handler, getId());
+			}
+		}));
+	}
+	//the test loaded again in the background, only a difference is applied
+	//local changes are kept, the test is only marked as outdated then
+	void reloaded(STestReader source) {
+		if (snap == null) return;
+		if (!isModified()) { if (check(source)) load(source); }
+		else if (check(snap, source)) snap.set(source);
+	}
 	public void create(final STaskHandler handler) throws STaskException {
 		id = handler.execute(new SResultTask<SId>() {
 			@Override public SId run() throws Exception {
@@ -192,10 +206,13 @@ public class STestImpl implements STestReader {
 		snap.addReference(reference);
 		problem.getTestList().addTest(snap);
 	}
+	//only the fields modified since the last sync are sent
 	public void save(final STaskHandler handler) throws STaskException {
+		if (!isModified()) return;
+		final Set<String> fields = status.getModifiedFields();
 		handler.execute(new STask() {
 			@Override public void run() throws Exception {
-				STestData.save(handler, STestImpl.this);
+				STestData.save(handler, STestImpl.this, fields);
 			}
 		});
 		notifyUpToDate();
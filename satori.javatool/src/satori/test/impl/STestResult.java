@@ -2,19 +2,29 @@ package satori.test.impl;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.swing.SwingUtilities;
+
 import satori.common.SId;
 import satori.common.SListener0;
+import satori.common.SListener1;
+import satori.common.SPair;
 import satori.common.SView;
+import satori.common.SViewList;
+import satori.data.SBlob;
 import satori.data.STemporarySubmitData;
+import satori.metadata.SInputMetadata;
+import satori.metadata.SJudge;
 import satori.metadata.SOutputMetadata;
-import satori.task.SResultTask;
-import satori.task.STask;
-import satori.task.STaskException;
+import satori.task.SBackgroundTask;
+import satori.task.STaskCallback;
 import satori.task.STaskHandler;
+import satori.task.STaskManager;
 import satori.test.STemporarySubmitReader;
+import satori.test.STestReader;
 
 public class STestResult {
 	public static enum Status { NOT_TESTED, PENDING, FINISHED };
@@ -25,8 +35,9 @@ public class STestResult {
 	
 	private Status status = Status.NOT_TESTED;
 	private Map<SOutputMetadata, Object> output = Collections.emptyMap();
+	private int generation = 0; //results of background tasks started before a change are dropped
 	
-	private final List<SView> views = new ArrayList<SView>();
+	private final SViewList views = new SViewList();
 	private final SListener0 clear_listener = new SListener0() {
 		@Override public void call() { clear(); }
 	};
@@ -42,7 +53,11 @@ public class STestResult {
 	public Status getStatus() { return status; }
 	public Object getOutput(SOutputMetadata meta) { return output.get(meta); }
 	
+	int getGeneration() { return generation; }
+	
 	private void clear() {
+		SResultPoller.remove(this);
+		++generation;
 		id = SId.unset();
 		status = Status.NOT_TESTED;
 		output = Collections.emptyMap();
@@ -51,39 +66,117 @@ public class STestResult {
 	
 	public void addView(SView view) { views.add(view); }
 	public void removeView(SView view) { views.remove(view); }
-	private void updateViews() { for (SView view : views) view.update(); }
+	private void updateViews() { views.update(); }
+	
+	//copy of the test data, safe to read in a background task
+	private static class TestCopy implements STestReader {
+		private final STestReader test;
+		private final String name, desc;
+		private final SJudge judge;
+		private final Map<SInputMetadata, Object> input;
+		
+		public TestCopy(STestReader test) {
+			this.test = test;
+			this.name = test.getName();
+			this.desc = test.getDescription();
+			this.judge = test.getJudge();
+			this.input = new HashMap<SInputMetadata, Object>(test.getInput());
+		}
+		
+		@Override public boolean hasId() { return false; }
+		@Override public long getId() { return test.getId(); }
+		@Override public long getProblemId() { return test.getProblemId(); }
+		@Override public String getName() { return name; }
+		@Override public String getDescription() { return desc; }
+		@Override public SJudge getJudge() { return judge; }
+		@Override public Map<SInputMetadata, Object> getInput() { return input; }
+	}
+	
+	private static String getTitle(String action, List<STestResult> results) {
+		if (results.size() == 1) return action + " test " + results.get(0).test.getName();
+		return action + " " + results.size() + " tests";
+	}
 	
-	public void run(final STaskHandler handler) throws STaskException {
-		if (solution.get() == null) return;
-		if (test.getJudge() == null) return;
-		handler.execute(new STask() {
-			@Override public void run() throws Exception {
-				id = new SId(STemporarySubmitData.create(handler, solution.get(), test));
+	public static void run(List<STestResult> results) {
+		final List<STestResult> started = new ArrayList<STestResult>();
+		final List<Integer> generations = new ArrayList<Integer>();
+		final List<SBlob> submits = new ArrayList<SBlob>();
+		final List<STestReader> tests = new ArrayList<STestReader>();
+		for (STestResult result : results) {
+			if (result.solution.get() == null || result.test.getJudge() == null) continue;
+			started.add(result);
+			generations.add(result.generation);
+			submits.add(result.solution.get());
+			tests.add(new TestCopy(result.test));
+		}
+		if (started.isEmpty()) return;
+		final SListener1<SPair<Integer, Long>> created_listener = new SListener1<SPair<Integer, Long>>() {
+			@Override public void call(final SPair<Integer, Long> created) {
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override public void run() {
+						STestResult result = started.get(created.first);
+						if (result.generation != generations.get(created.first)) return;
+						result.id = new SId(created.second);
+						result.status = Status.PENDING;
+						result.output = Collections.emptyMap();
+						result.updateViews();
+						SResultPoller.add(result, result.generation, created.second, tests.get(created.first).getJudge().getOutputMetadata());
+					}
+				});
 			}
-		});
-		status = Status.PENDING;
-		output = Collections.emptyMap();
-		updateViews();
+		};
+		STaskManager.submit(getTitle("Running", started), new SBackgroundTask<List<Long>>() {
+			@Override public List<Long> run(STaskHandler handler) throws Exception {
+				return STemporarySubmitData.create(handler, submits, tests, created_listener);
+			}
+		}, null);
 	}
 	
-	public void refresh(final STaskHandler handler) throws STaskException {
-		if (!id.isSet()) return;
-		STemporarySubmitReader submit = handler.execute(new SResultTask<STemporarySubmitReader>() {
-			@Override public STemporarySubmitReader run() throws Exception {
-				return STemporarySubmitData.load(handler, id.get(), test.getJudge().getOutputMetadata());
+	public static void refresh(List<STestResult> results) {
+		final List<STestResult> started = new ArrayList<STestResult>();
+		final List<Integer> generations = new ArrayList<Integer>();
+		final List<Long> ids = new ArrayList<Long>();
+		final List<List<SOutputMetadata>> metas = new ArrayList<List<SOutputMetadata>>();
+		for (STestResult result : results) {
+			if (!result.id.isSet()) continue;
+			started.add(result);
+			generations.add(result.generation);
+			ids.add(result.id.get());
+			metas.add(result.test.getJudge().getOutputMetadata());
+		}
+		if (started.isEmpty()) return;
+		STaskManager.submit(getTitle("Refreshing", started), new SBackgroundTask<List<STemporarySubmitReader>>() {
+			@Override public List<STemporarySubmitReader> run(STaskHandler handler) throws Exception {
+				return STemporarySubmitData.load(handler, ids, metas);
+			}
+		}, new STaskCallback<List<STemporarySubmitReader>>() {
+			@Override public void succeeded(List<STemporarySubmitReader> submits) {
+				for (int i = 0; i < started.size(); ++i) {
+					STestResult result = started.get(i);
+					if (result.generation != generations.get(i)) continue;
+					result.setResult(submits.get(i));
+				}
 			}
+			@Override public void failed() {}
 		});
+	}
+	
+	void setResult(STemporarySubmitReader submit) {
 		if (submit.getPending()) {
 			status = Status.PENDING;
 			output = Collections.emptyMap();
+			SResultPoller.add(this, generation, id.get(), test.getJudge().getOutputMetadata());
 		} else {
 			status = Status.FINISHED;
 			output = submit.getResult();
+			SResultPoller.remove(this);
 		}
 		updateViews();
 	}
 	
 	public void close() {
+		SResultPoller.remove(this);
+		++generation;
 		test.removeDataModifiedListener(clear_listener);
 		solution.removeModifiedListener(clear_listener);
 	}
@@ -3,12 +3,20 @@ package satori.test.impl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import satori.common.SAssert;
 import satori.common.SListener0;
+import satori.data.STestData;
 import satori.problem.SParentProblem;
+import satori.task.SBackgroundTask;
+import satori.task.SResultTask;
+import satori.task.STask;
+import satori.task.STaskCallback;
 import satori.task.STaskException;
 import satori.task.STaskHandler;
+import satori.task.STaskManager;
+import satori.test.STestReader;
 import satori.test.STestSnap;
 
 public class STestSuiteBase {
@@ -29,11 +37,50 @@ public class STestSuiteBase {
 	
 	private STestSuiteBase() {}
 	
-	public static List<STestImpl> createTestList(STaskHandler handler, SParentProblem problem, List<STestSnap> source) throws STaskException {
+	public static List<STestImpl> createTestList(final STaskHandler handler, SParentProblem problem, List<STestSnap> source) throws STaskException {
 		List<STestImpl> tests = new ArrayList<STestImpl>();
-		for (STestSnap snap : source) tests.add(STestImpl.createRemote(handler, problem, snap));
+		if (source.isEmpty()) return tests;
+		final List<Long> ids = new ArrayList<Long>();
+		for (STestSnap snap : source) ids.add(snap.getId());
+		//the last known tests are shown at once and replaced when the server answers
+		List<STestReader> snapshot = loadSnapshot(handler, ids);
+		if (snapshot != null) {
+			for (int i = 0; i < source.size(); ++i) tests.add(STestImpl.createRemote(problem, source.get(i), snapshot.get(i)));
+			reloadLater(tests, ids);
+			return tests;
+		}
+		List<STestReader> loaded = handler.execute(new SResultTask<List<STestReader>>() {
+			@Override public List<STestReader> run() throws Exception {
+				return STestData.load(handler, ids);
+			}
+		});
+		for (int i = 0; i < source.size(); ++i) tests.add(STestImpl.createRemote(problem, source.get(i), loaded.get(i)));
 		return tests;
 	}
+	//returns null unless every test has a snapshot
+	private static List<STestReader> loadSnapshot(STaskHandler handler, List<Long> ids) {
+		List<STestReader> result = new ArrayList<STestReader>();
+		try {
+			for (long id : ids) {
+				STestReader test = STestData.loadSnapshot(handler, id);
+				if (test == null) return null;
+				result.add(test);
+			}
+		}
+		catch(Exception ex) { return null; }
+		return result;
+	}
+	//all tests in one batch, see STestImpl.reloaded
+	private static void reloadLater(final List<STestImpl> tests, final List<Long> ids) {
+		STaskManager.submit("Reloading tests", new SBackgroundTask<List<STestReader>>() {
+			@Override public List<STestReader> run(STaskHandler handler) throws Exception { return STestData.load(handler, ids); }
+		}, new STaskCallback<List<STestReader>>() {
+			@Override public void succeeded(List<STestReader> list) {
+				for (int i = 0; i < tests.size(); ++i) tests.get(i).reloaded(list.get(i));
+			}
+			@Override public void failed() {}
+		});
+	}
 	public static STestSuiteBase create(STaskHandler handler, SParentProblem problem, List<STestSnap> source) throws STaskException {
 		STestSuiteBase self = new STestSuiteBase();
 		self.tests = createTestList(handler, problem, source);
@@ -91,6 +138,24 @@ public class STestSuiteBase {
 		if (modified_listener != null) modified_listener.call();
 	}
 	
+	//only the blobs that are going to be sent, unmodified remote tests are skipped when saved and the others send only their modified fields
+	public void saveBlobs(final STaskHandler handler) throws STaskException {
+		final List<STestImpl> unsaved = new ArrayList<STestImpl>();
+		final List<Set<String>> fields = new ArrayList<Set<String>>();
+		for (STestImpl test : tests) {
+			Set<String> test_fields = test.isRemote() ? test.getModifiedFields() : Collections.<String>emptySet();
+			if (test.isRemote() && (!test.isModified() || !STestData.isDataModified(test_fields))) continue;
+			unsaved.add(test);
+			fields.add(test_fields);
+		}
+		if (unsaved.isEmpty()) return;
+		handler.execute(new STask() {
+			@Override public void run() throws Exception {
+				STestData.saveBlobs(handler, unsaved, fields);
+			}
+		});
+	}
+	
 	public boolean hasModifiedTests() {
 		for (STestImpl test : tests) if (test.isModified()) return true;
 		return false;
@@ -0,0 +1,55 @@
+package satori.test.ui;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+
+import satori.common.ui.SPane;
+
+//a cell of the test grid, its content exists only while the cell is close to the visible area
+abstract class SGridCell implements SPane {
+	interface Content extends SPane {
+		void close();
+	}
+	
+	@SuppressWarnings("serial")
+	private class Slot extends JPanel {
+		public Slot() {
+			super(new BorderLayout());
+			setOpaque(false);
+			setAlignmentY(0.0f);
+		}
+		@Override public Dimension getPreferredSize() { return content != null ? content.getPane().getPreferredSize() : getPlaceholderSize(); }
+		@Override public Dimension getMinimumSize() { return getPreferredSize(); }
+		@Override public Dimension getMaximumSize() { return getPreferredSize(); }
+	}
+	
+	private final Slot pane = new Slot();
+	private Content content = null;
+	
+	protected abstract Content createContent();
+	//the size of the content before it is created
+	protected abstract Dimension getPlaceholderSize();
+	
+	@Override public JComponent getPane() { return pane; }
+	
+	public void show() {
+		if (content != null) return;
+		content = createContent();
+		pane.add(content.getPane(), BorderLayout.CENTER);
+		pane.revalidate(); pane.repaint();
+	}
+	public void hide() {
+		if (content == null) return;
+		content.close();
+		content = null;
+		pane.removeAll();
+		pane.revalidate(); pane.repaint();
+	}
+	
+	static Dimension getItemSize(int lines) {
+		return new Dimension(SDimension.itemWidth, Math.max(lines, 1) * SDimension.height);
+	}
+}
@@ -0,0 +1,49 @@
+package satori.test.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.Box;
+import javax.swing.BoxLayout;
+import javax.swing.JComponent;
+
+import satori.common.ui.SPane;
+
+//a row of the test grid: a label followed by one cell per test
+class SGridRow implements SPane {
+	private final JComponent pane;
+	private final List<SGridCell> cells = new ArrayList<SGridCell>();
+	private int first = 0, last = -1;
+	
+	//the trailing component (if any) follows the last cell
+	public SGridRow(JComponent label, JComponent trailing) {
+		pane = new Box(BoxLayout.X_AXIS);
+		pane.add(label);
+		if (trailing != null) pane.add(trailing);
+		pane.add(Box.createHorizontalGlue());
+	}
+	public SGridRow(JComponent label) { this(label, null); }
+	
+	@Override public JComponent getPane() { return pane; }
+	
+	public void addCell(SGridCell cell, int index) {
+		cells.add(index, cell);
+		pane.add(cell.getPane(), index+1);
+		if (index >= first && index <= last) cell.show();
+	}
+	public void removeCell(int index) {
+		cells.remove(index).hide();
+		pane.remove(index+1);
+	}
+	public void setVisibleColumns(int first, int last) {
+		this.first = first;
+		this.last = last;
+		for (int i = 0; i < cells.size(); ++i) {
+			if (i >= first && i <= last) cells.get(i).show();
+			else cells.get(i).hide();
+		}
+	}
+	public void close() {
+		for (SGridCell cell : cells) cell.hide();
+	}
+}
@@ -6,4 +6,6 @@ import satori.test.impl.STestImpl;
 public interface SRow extends SPane {
 	void addColumn(STestImpl test, int index);
 	void removeColumn(int index);
+	void setVisibleColumns(int first, int last);
+	void close();
 }
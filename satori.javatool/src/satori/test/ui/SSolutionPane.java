@@ -1,10 +1,12 @@
 package satori.test.ui;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.swing.Box;
@@ -18,14 +20,10 @@ import satori.common.SListener1;
 import satori.common.SView;
 import satori.common.ui.SBlobInputView;
 import satori.common.ui.SBlobOutputView;
-import satori.common.ui.SPane;
 import satori.common.ui.SPaneView;
 import satori.common.ui.SStringOutputView;
 import satori.metadata.SJudge;
 import satori.metadata.SOutputMetadata;
-import satori.task.STaskException;
-import satori.task.STaskHandler;
-import satori.task.STaskManager;
 import satori.test.impl.SBlobOutput;
 import satori.test.impl.SSolution;
 import satori.test.impl.SStringOutput;
@@ -51,35 +49,15 @@ public class SSolutionPane implements SRow {
 	
 	@Override public JComponent getPane() { return pane; }
 	
-	private void runRequest(STestResult result) {
-		STaskHandler handler = STaskManager.getHandler();
-		try { result.run(handler); }
-		catch(STaskException ex) {}
-		finally { handler.close(); }
-	}
-	private void runAllRequest() {
-		STaskHandler handler = STaskManager.getHandler();
-		try { for (STestResult result : results) result.run(handler); }
-		catch(STaskException ex) {}
-		finally { handler.close(); }
-	}
-	private void refreshRequest(STestResult result) {
-		STaskHandler handler = STaskManager.getHandler();
-		try { result.refresh(handler); }
-		catch(STaskException ex) {}
-		finally { handler.close(); }
-	}
-	private void refreshAllRequest() {
-		STaskHandler handler = STaskManager.getHandler();
-		try { for (STestResult result : results) result.refresh(handler); }
-		catch(STaskException ex) {}
-		finally { handler.close(); }
-	}
+	private void runRequest(STestResult result) { STestResult.run(Collections.singletonList(result)); }
+	private void runAllRequest() { STestResult.run(results); }
+	private void refreshRequest(STestResult result) { STestResult.refresh(Collections.singletonList(result)); }
+	private void refreshAllRequest() { STestResult.refresh(results); }
 	
 //
 //  ButtonItem
 //
-	private class ButtonItem implements SPane {
+	private class ButtonItem implements SGridCell.Content {
 		private final STestResult result;
 		
 		private JComponent pane;
@@ -116,20 +94,21 @@ public class SSolutionPane implements SRow {
 			pane.add(refresh_button);
 			pane.add(Box.createHorizontalGlue());
 		}
+		
+		@Override public void close() {}
 	}
 	
 //
 //  ButtonRow
 //
 	private class ButtonRow implements SSolutionRow {
-		private JComponent pane;
+		private SGridRow row;
 		
 		public ButtonRow() { initialize(); }
 		
-		@Override public JComponent getPane() { return pane; }
+		@Override public JComponent getPane() { return row.getPane(); }
 		
 		private void initialize() {
-			pane = new Box(BoxLayout.X_AXIS);
 			Box label_pane = new Box(BoxLayout.X_AXIS);
 			SDimension.setButtonLabelSize(label_pane);
 			JButton run_button = new JButton(SIcons.runIcon);
@@ -153,30 +132,33 @@ public class SSolutionPane implements SRow {
 			});
 			label_pane.add(refresh_button);
 			label_pane.add(Box.createHorizontalGlue());
-			pane.add(label_pane);
-			pane.add(Box.createHorizontalGlue());
+			row = new SGridRow(label_pane);
 		}
 		
-		@Override public void addColumn(STestResult result, int index) {
-			int pane_index = (index+1 < pane.getComponentCount()) ? index+1 : -1;
-			pane.add(new ButtonItem(result).getPane(), pane_index);
-		}
-		@Override public void removeColumn(int index) {
-			pane.remove(index+1);
+		@Override public void addColumn(final STestResult result, int index) {
+			row.addCell(new SGridCell() {
+				@Override protected Content createContent() { return new ButtonItem(result); }
+				@Override protected Dimension getPlaceholderSize() { return SDimension.buttonItemDim; }
+			}, index);
 		}
+		@Override public void removeColumn(int index) { row.removeCell(index); }
+		@Override public void setVisibleColumns(int first, int last) { row.setVisibleColumns(first, last); }
+		@Override public void close() { row.close(); }
 	}
 	
 //
 //  ResultItem
 //
-	private class ResultItem implements SPane, SView {
+	private class ResultItem implements SGridCell.Content, SView {
 		private final STestResult result;
 		
 		private JComponent pane;
 		private Color default_color;
+		private final List<SView> views = new ArrayList<SView>();
 		
 		private final SListener0 meta_listener = new SListener0() {
 			@Override public void call() {
+				removeViews();
 				pane.removeAll();
 				fillPane();
 				pane.revalidate(); pane.repaint();
@@ -198,6 +180,7 @@ public class SSolutionPane implements SRow {
 				if (om.getType() == SBlobType.INSTANCE) view = new SBlobOutputView(new SBlobOutput(om, result));
 				else view = new SStringOutputView(new SStringOutput(om, result));
 				result.addView(view);
+				views.add(view);
 				view.getPane().setPreferredSize(SDimension.itemDim);
 				view.getPane().setMinimumSize(SDimension.itemDim);
 				view.getPane().setMaximumSize(SDimension.itemDim);
@@ -205,6 +188,10 @@ public class SSolutionPane implements SRow {
 			}
 			if (pane.getComponentCount() == 0) pane.add(Box.createHorizontalStrut(SDimension.itemWidth));
 		}
+		private void removeViews() {
+			for (SView view : views) result.removeView(view);
+			views.clear();
+		}
 		private void initialize() {
 			pane = new Box(BoxLayout.Y_AXIS);
 			pane.setOpaque(true);
@@ -212,10 +199,13 @@ public class SSolutionPane implements SRow {
 			fillPane();
 			result.getTest().addMetadataModifiedListener(meta_listener);
 			default_color = pane.getBackground();
+			update();
 		}
 		
-		public void close() {
+		@Override public void close() {
 			result.getTest().removeMetadataModifiedListener(meta_listener);
+			removeViews();
+			result.removeView(this);
 		}
 		
 		@Override public void update() {
@@ -234,37 +224,33 @@ public class SSolutionPane implements SRow {
 //  ResultRow
 //
 	private class ResultRow implements SSolutionRow {
-		private List<ResultItem> items = new ArrayList<ResultItem>();
-		private JComponent pane;
+		private SGridRow row;
 		
 		public ResultRow() { initialize(); }
 		
-		@Override public JComponent getPane() { return pane; }
+		@Override public JComponent getPane() { return row.getPane(); }
 		
 		private void initialize() {
-			pane = new Box(BoxLayout.X_AXIS);
 			JLabel label = new JLabel("Result");
 			SDimension.setLabelSize(label);
 			Box label_box = new Box(BoxLayout.Y_AXIS);
 			label_box.setAlignmentY(0.0f);
 			label_box.add(label);
-			pane.add(label_box);
-			pane.add(Box.createHorizontalGlue());
+			row = new SGridRow(label_box);
 		}
 		
-		public void close() { for (ResultItem item : items) item.close(); }
-		
-		@Override public void addColumn(STestResult result, int index) {
-			ResultItem item = new ResultItem(result);
-			items.add(index, item);
-			int pane_index = (index+1 < pane.getComponentCount()) ? index+1 : -1;
-			pane.add(item.getPane(), pane_index);
-		}
-		@Override public void removeColumn(int index) {
-			//items.get(index).close(); // TODO: necessary?
-			items.remove(index);
-			pane.remove(index+1);
+		@Override public void addColumn(final STestResult result, int index) {
+			row.addCell(new SGridCell() {
+				@Override protected Content createContent() { return new ResultItem(result); }
+				@Override protected Dimension getPlaceholderSize() {
+					SJudge judge = result.getTest().getJudge();
+					return getItemSize(judge != null ? judge.getOutputMetadata().size() : 0);
+				}
+			}, index);
 		}
+		@Override public void removeColumn(int index) { row.removeCell(index); }
+		@Override public void setVisibleColumns(int first, int last) { row.setVisibleColumns(first, last); }
+		@Override public void close() { row.close(); }
 	}
 	
 	private void initialize() {
@@ -286,7 +272,6 @@ public class SSolutionPane implements SRow {
 		remove_button.setFocusable(false);
 		remove_button.addActionListener(new ActionListener() {
 			@Override public void actionPerformed(ActionEvent e) {
-				result_row.close();
 				remove_listener.call(SSolutionPane.this);
 			}
 		});
@@ -305,6 +290,14 @@ public class SSolutionPane implements SRow {
 		button_row.addColumn(result, index);
 		result_row.addColumn(result, index);
 	}
+	@Override public void setVisibleColumns(int first, int last) {
+		button_row.setVisibleColumns(first, last);
+		result_row.setVisibleColumns(first, last);
+	}
+	@Override public void close() {
+		button_row.close();
+		result_row.close();
+	}
 	@Override public void removeColumn(int index) {
 		button_row.removeColumn(index);
 		result_row.removeColumn(index);
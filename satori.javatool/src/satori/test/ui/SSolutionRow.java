@@ -6,4 +6,6 @@ import satori.test.impl.STestResult;
 public interface SSolutionRow extends SPane {
 	void addColumn(STestResult result, int index);
 	void removeColumn(int index);
+	void setVisibleColumns(int first, int last);
+	void close();
 }
@@ -1,6 +1,7 @@
 package satori.test.ui;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Graphics;
 import java.awt.Insets;
@@ -15,8 +16,13 @@ import java.awt.dnd.DropTargetEvent;
 import java.awt.dnd.DropTargetListener;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
+import java.awt.event.HierarchyBoundsAdapter;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
 import java.io.IOException;
@@ -32,6 +38,7 @@ import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.TransferHandler;
 
 import satori.common.SListener0;
@@ -151,13 +158,12 @@ public class STestPane implements SPane {
 				try { data = (STestSnapTransfer)t.getTransferData(STestSnapTransfer.flavor); }
 				catch(UnsupportedFlavorException ex) { return false; }
 				catch(IOException ex) { return false; }
-				List<STestImpl> new_tests = new ArrayList<STestImpl>();
+				List<STestSnap> new_snaps = new ArrayList<STestSnap>();
+				for (STestSnap snap : data.get()) if (!hasTest(snap.getId())) new_snaps.add(snap);
+				List<STestImpl> new_tests;
 				STaskHandler handler = STaskManager.getHandler();
-				try { for (STestSnap snap : data.get()) {
-					if (hasTest(snap.getId())) continue;
-					try { new_tests.add(STestImpl.createRemote(handler, problem, snap)); }
-					catch(STaskException ex) { return false; }
-				} }
+				try { new_tests = STestSuiteBase.createTestList(handler, problem, new_snaps); }
+				catch(STaskException ex) { return false; }
 				finally { handler.close(); }
 				int index = getDropIndex(support.getDropLocation().getDropPoint());
 				base.addTests(new_tests, index);
@@ -226,6 +232,8 @@ public class STestPane implements SPane {
 	private void saveAllTestsRequest() {
 		if (!problem.hasId()) { SFrame.showErrorDialog("Cannot save: the problem does not exist remotely"); return; }
 		STaskHandler handler = STaskManager.getHandler();
+		try { base.saveBlobs(handler); }
+		catch(STaskException ex) { handler.close(); return; }
 		try { for (STestImpl test : base.getTests()) {
 			try { if (test.isRemote()) test.save(handler); else test.create(handler); }
 			catch(STaskException ex) { return; }
@@ -269,7 +277,7 @@ public class STestPane implements SPane {
 //
 //  ButtonItem
 //
-	private class ButtonItem implements SPane {
+	private class ButtonItem implements SGridCell.Content {
 		private final STestImpl test;
 		
 		private JComponent pane;
@@ -340,20 +348,21 @@ public class STestPane implements SPane {
 			pane.add(remove_button);
 			pane.add(Box.createHorizontalGlue());
 		}
+		
+		@Override public void close() {}
 	}
 	
 //
 //  ButtonRow
 //
 	private class ButtonRow implements SRow {
-		private JComponent pane;
+		private SGridRow row;
 		
 		public ButtonRow() { initialize(); }
 		
-		@Override public JComponent getPane() { return pane; }
+		@Override public JComponent getPane() { return row.getPane(); }
 		
 		private void initialize() {
-			pane = new Box(BoxLayout.X_AXIS);
 			Box label_pane = new Box(BoxLayout.X_AXIS);
 			SDimension.setButtonLabelSize(label_pane);
 			JButton save_button = new JButton(SIcons.saveIcon);
@@ -377,7 +386,6 @@ public class STestPane implements SPane {
 			});
 			label_pane.add(reload_button);
 			label_pane.add(Box.createHorizontalGlue());
-			pane.add(label_pane);
 			JButton add_button = new JButton(SIcons.addIcon);
 			add_button.setMargin(new Insets(0, 0, 0, 0));
 			SDimension.setButtonSize(add_button);
@@ -385,23 +393,24 @@ public class STestPane implements SPane {
 			add_button.addActionListener(new ActionListener() {
 				@Override public void actionPerformed(ActionEvent e) { addNewTestRequest(); }
 			});
-			pane.add(add_button);
-			pane.add(Box.createHorizontalGlue());
+			row = new SGridRow(label_pane, add_button);
 		}
 		
-		@Override public void addColumn(STestImpl test, int index) {
-			int pane_index = (index+1 < pane.getComponentCount()) ? index+1 : -1;
-			pane.add(new ButtonItem(test).getPane(), pane_index);
-		}
-		@Override public void removeColumn(int index) {
-			pane.remove(index+1);
+		@Override public void addColumn(final STestImpl test, int index) {
+			row.addCell(new SGridCell() {
+				@Override protected Content createContent() { return new ButtonItem(test); }
+				@Override protected Dimension getPlaceholderSize() { return SDimension.buttonItemDim; }
+			}, index);
 		}
+		@Override public void removeColumn(int index) { row.removeCell(index); }
+		@Override public void setVisibleColumns(int first, int last) { row.setVisibleColumns(first, last); }
+		@Override public void close() { row.close(); }
 	};
 	
 //
 //  StatusItem
 //
-	private class StatusItem implements SPane, SView {
+	private class StatusItem implements SGridCell.Content, SView {
 		private final STestImpl test;
 		
 		private JLabel label;
@@ -420,6 +429,8 @@ public class STestPane implements SPane {
 			update();
 		}
 		
+		@Override public void close() { test.removeView(this); }
+		
 		@Override public void update() {
 			String status_text = "";
 			if (test.isRemote()) {
@@ -441,38 +452,39 @@ public class STestPane implements SPane {
 //  StatusRow
 //
 	private class StatusRow implements SRow {
-		private JComponent pane;
+		private SGridRow row;
 		
 		public StatusRow() { initialize(); }
 		
-		@Override public JComponent getPane() { return pane; }
+		@Override public JComponent getPane() { return row.getPane(); }
 		
 		private void initialize() {
-			pane = new Box(BoxLayout.X_AXIS);
 			JLabel label = new JLabel("Status");
 			SDimension.setLabelSize(label);
-			pane.add(label);
-			pane.add(Box.createHorizontalGlue());
+			row = new SGridRow(label);
 		}
 		
-		@Override public void addColumn(STestImpl test, int index) {
-			int pane_index = (index+1 < pane.getComponentCount()) ? index+1 : -1;
-			pane.add(new StatusItem(test).getPane(), pane_index);
-		}
-		@Override public void removeColumn(int index) {
-			pane.remove(index+1);
+		@Override public void addColumn(final STestImpl test, int index) {
+			row.addCell(new SGridCell() {
+				@Override protected Content createContent() { return new StatusItem(test); }
+				@Override protected Dimension getPlaceholderSize() { return SDimension.itemDim; }
+			}, index);
 		}
+		@Override public void removeColumn(int index) { row.removeCell(index); }
+		@Override public void setVisibleColumns(int first, int last) { row.setVisibleColumns(first, last); }
+		@Override public void close() { row.close(); }
 	}
 	
 //
 //  InfoItem
 //
-	private class InfoItem implements SPane, SView {
+	private class InfoItem implements SGridCell.Content, SView {
 		private final STestImpl test;
 		
 		private JComponent pane;
 		private JTextField name_field;
 		private JTextField desc_field;
+		private SBlobInputView judge_view;
 		
 		public InfoItem(STestImpl test) {
 			this.test = test;
@@ -507,7 +519,7 @@ public class STestPane implements SPane {
 				@Override public void focusLost(FocusEvent e) { updateDescription(); }
 			});
 			pane.add(desc_field);
-			SBlobInputView judge_view = new SBlobInputView(new SJudgeInput(test), new SBlobInputView.BlobLoader() {
+			judge_view = new SBlobInputView(new SJudgeInput(test), new SBlobInputView.BlobLoader() {
 				private Map<String, SBlob> blobs = null;
 				@Override public Map<String, SBlob> getBlobs(STaskHandler handler) throws STaskException {
 					if (blobs == null) blobs = SGlobal.getJudges(handler);
@@ -522,6 +534,11 @@ public class STestPane implements SPane {
 			update();
 		}
 		
+		@Override public void close() {
+			test.removeView(judge_view);
+			test.removeView(this);
+		}
+		
 		@Override public void update() {
 			name_field.setText(test.getName());
 			desc_field.setText(test.getDescription());
@@ -532,14 +549,13 @@ public class STestPane implements SPane {
 //  InfoRow
 //
 	private class InfoRow implements SRow {
-		private JComponent pane;
+		private SGridRow row;
 		
 		public InfoRow() { initialize(); }
 		
-		@Override public JComponent getPane() { return pane; }
+		@Override public JComponent getPane() { return row.getPane(); }
 		
 		private void initialize() {
-			pane = new Box(BoxLayout.X_AXIS);
 			JLabel name_label = new JLabel("Name");
 			SDimension.setLabelSize(name_label);
 			JLabel desc_label = new JLabel("Description");
@@ -547,29 +563,41 @@ public class STestPane implements SPane {
 			JLabel judge_label = new JLabel("Judge");
 			SDimension.setLabelSize(judge_label);
 			Box label_box = new Box(BoxLayout.Y_AXIS);
+			label_box.setAlignmentY(0.0f);
 			label_box.add(name_label);
 			label_box.add(desc_label);
 			label_box.add(judge_label);
-			pane.add(label_box);
-			pane.add(Box.createHorizontalGlue());
+			row = new SGridRow(label_box);
 		}
 		
-		@Override public void addColumn(STestImpl test, int index) {
-			int pane_index = (index+1 < pane.getComponentCount()) ? index+1 : -1;
-			pane.add(new InfoItem(test).getPane(), pane_index);
-		}
-		@Override public void removeColumn(int index) {
-			pane.remove(index+1);
+		@Override public void addColumn(final STestImpl test, int index) {
+			row.addCell(new SGridCell() {
+				@Override protected Content createContent() { return new InfoItem(test); }
+				@Override protected Dimension getPlaceholderSize() { return getItemSize(3); }
+			}, index);
 		}
+		@Override public void removeColumn(int index) { row.removeCell(index); }
+		@Override public void setVisibleColumns(int first, int last) { row.setVisibleColumns(first, last); }
+		@Override public void close() { row.close(); }
 	}
 	
 //
 //  DataItem
 //
-	private class DataItem implements SPane {
+	private class DataItem implements SGridCell.Content {
 		private final STestImpl test;
 		
 		private JComponent pane;
+		private final List<SView> views = new ArrayList<SView>();
+		
+		private final SListener0 meta_listener = new SListener0() {
+			@Override public void call() {
+				removeViews();
+				pane.removeAll();
+				fillPane();
+				pane.revalidate(); pane.repaint();
+			}
+		};
 		
 		public DataItem(STestImpl test) {
 			this.test = test;
@@ -585,6 +613,7 @@ public class STestPane implements SPane {
 				if (im.getType() == SBlobType.INSTANCE) view = new SBlobInputView(new SBlobInput(im, test));
 				else view = new SStringInputView(new SStringInput(im, test));
 				test.addView(view);
+				views.add(view);
 				view.getPane().setPreferredSize(SDimension.itemDim);
 				view.getPane().setMinimumSize(SDimension.itemDim);
 				view.getPane().setMaximumSize(SDimension.itemDim);
@@ -592,17 +621,20 @@ public class STestPane implements SPane {
 			}
 			if (pane.getComponentCount() == 0) pane.add(Box.createHorizontalStrut(SDimension.itemWidth));
 		}
+		private void removeViews() {
+			for (SView view : views) test.removeView(view);
+			views.clear();
+		}
 		private void initialize() {
 			pane = new Box(BoxLayout.Y_AXIS);
 			pane.setAlignmentY(0.0f);
 			fillPane();
-			test.addMetadataModifiedListener(new SListener0() {
-				@Override public void call() {
-					pane.removeAll();
-					fillPane();
-					pane.revalidate(); pane.repaint();
-				}
-			});
+			test.addMetadataModifiedListener(meta_listener);
+		}
+		
+		@Override public void close() {
+			test.removeMetadataModifiedListener(meta_listener);
+			removeViews();
 		}
 	}
 	
@@ -610,30 +642,33 @@ public class STestPane implements SPane {
 //  DataRow
 //
 	private class DataRow implements SRow {
-		private JComponent pane;
+		private SGridRow row;
 		
 		public DataRow() { initialize(); }
 		
-		@Override public JComponent getPane() { return pane; }
+		@Override public JComponent getPane() { return row.getPane(); }
 		
 		private void initialize() {
-			pane = new Box(BoxLayout.X_AXIS);
 			JLabel label = new JLabel("Data");
 			SDimension.setLabelSize(label);
 			Box label_box = new Box(BoxLayout.Y_AXIS);
 			label_box.setAlignmentY(0.0f);
 			label_box.add(label);
-			pane.add(label_box);
-			pane.add(Box.createHorizontalGlue());
+			row = new SGridRow(label_box);
 		}
 		
-		@Override public void addColumn(STestImpl test, int index) {
-			int pane_index = (index+1 < pane.getComponentCount()) ? index+1 : -1;
-			pane.add(new DataItem(test).getPane(), pane_index);
-		}
-		@Override public void removeColumn(int index) {
-			pane.remove(index+1);
+		@Override public void addColumn(final STestImpl test, int index) {
+			row.addCell(new SGridCell() {
+				@Override protected Content createContent() { return new DataItem(test); }
+				@Override protected Dimension getPlaceholderSize() {
+					SJudge judge = test.getJudge();
+					return getItemSize(judge != null ? judge.getInputMetadata().size() : 0);
+				}
+			}, index);
 		}
+		@Override public void removeColumn(int index) { row.removeCell(index); }
+		@Override public void setVisibleColumns(int first, int last) { row.setVisibleColumns(first, last); }
+		@Override public void close() { row.close(); }
 	}
 	
 //
@@ -652,6 +687,47 @@ public class STestPane implements SPane {
 		for (SRow row : input_rows) row.removeColumn(index);
 	}
 	
+//
+//  Visible columns
+//
+	private boolean visible_update_pending = false;
+	
+	//columns within one screen width of the visible area are kept
+	private void updateVisibleColumns() {
+		visible_update_pending = false;
+		Rectangle rect = input_pane.getVisibleRect();
+		int first = 0, last = -1;
+		if (!rect.isEmpty()) {
+			int count = rect.width / SDimension.itemWidth + 1;
+			first = (rect.x - SDimension.labelWidth) / SDimension.itemWidth - count;
+			last = (rect.x + rect.width - SDimension.labelWidth) / SDimension.itemWidth + count;
+		}
+		for (SRow row : input_rows) row.setVisibleColumns(first, last);
+		for (SRow row : solution_panes) row.setVisibleColumns(first, last);
+	}
+	private void scheduleVisibleColumnsUpdate() {
+		if (visible_update_pending) return;
+		visible_update_pending = true;
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override public void run() { updateVisibleColumns(); }
+		});
+	}
+	private void addVisibilityListeners() {
+		main_pane.addComponentListener(new ComponentAdapter() {
+			@Override public void componentMoved(ComponentEvent e) { scheduleVisibleColumnsUpdate(); }
+			@Override public void componentResized(ComponentEvent e) { scheduleVisibleColumnsUpdate(); }
+		});
+		main_pane.addHierarchyBoundsListener(new HierarchyBoundsAdapter() {
+			@Override public void ancestorMoved(HierarchyEvent e) { scheduleVisibleColumnsUpdate(); }
+			@Override public void ancestorResized(HierarchyEvent e) { scheduleVisibleColumnsUpdate(); }
+		});
+		main_pane.addHierarchyListener(new HierarchyListener() {
+			@Override public void hierarchyChanged(HierarchyEvent e) {
+				if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) scheduleVisibleColumnsUpdate();
+			}
+		});
+	}
+	
 //
 //  Solution panes
 //
@@ -663,8 +739,10 @@ public class STestPane implements SPane {
 		int index = 0;
 		for (STestImpl test : base.getTests()) new_pane.addColumn(test, index++);
 		pane.revalidate(); pane.repaint();
+		scheduleVisibleColumnsUpdate();
 	}
 	private void removeSolutionPane(SSolutionPane removed_pane) {
+		removed_pane.close();
 		for (int index = base.getSize()-1; index >= 0; --index) removed_pane.removeColumn(index);
 		pane.remove(solution_panes.indexOf(removed_pane)+1);
 		solution_panes.remove(removed_pane);
@@ -696,6 +774,7 @@ public class STestPane implements SPane {
 		main_pane.setTransferHandler(transfer_handler);
 		try { main_pane.getDropTarget().addDropTargetListener(drop_listener); }
 		catch(TooManyListenersException ex) {}
+		addVisibilityListeners();
 	}
 	
 	private void addColumn(STestImpl test, int index) {
@@ -714,24 +793,27 @@ public class STestPane implements SPane {
 	
 	private STestSuiteBase.View list_view = new STestSuiteBase.View() {
 		@Override public void add(STestImpl test, int index) {
-			addParentViews(test);
+			test.addView(test_view);
 			addColumn(test, index);
 			pane.revalidate(); pane.repaint();
+			scheduleVisibleColumnsUpdate();
 		}
 		@Override public void add(Iterable<STestImpl> tests, int index) {
 			for (STestImpl test : tests) {
-				addParentViews(test);
+				test.addView(test_view);
 				addColumn(test, index++);
 			}
 			pane.revalidate(); pane.repaint();
+			scheduleVisibleColumnsUpdate();
 		}
 		@Override public void remove(STestImpl test, int index) {
-			removeParentViews(test);
+			test.removeView(test_view);
 			removeColumn(index);
 			pane.revalidate(); pane.repaint();
+			scheduleVisibleColumnsUpdate();
 		}
 		@Override public void removeAll() {
-			for (STestImpl test : base.getTests()) removeParentViews(test);
+			for (STestImpl test : base.getTests()) test.removeView(test_view);
 			for (int i = base.getSize()-1; i >= 0; --i) removeColumn(i);
 			pane.revalidate(); pane.repaint();
 		}
@@ -739,21 +821,22 @@ public class STestPane implements SPane {
 			removeColumn(old_index);
 			addColumn(test, old_index < new_index ? new_index-1 : new_index);
 			pane.revalidate(); pane.repaint();
+			scheduleVisibleColumnsUpdate();
 		}
 	};
 	
-	public void addParentView(SView view) {
-		for (STestImpl test : base.getTests()) test.addView(view);
-		parent_views.add(view);
-	}
-	public void removeParentView(SView view) {
-		parent_views.remove(view);
-		for (STestImpl test : base.getTests()) test.removeView(view);
-	}
-	private void addParentViews(STestImpl test) {
-		for (SView view : parent_views) test.addView(view);
-	}
-	private void removeParentViews(STestImpl test) {
-		for (SView view : parent_views) test.removeView(view);
+	//a single view on every test, updates of a batch of tests are coalesced into one
+	private final SView test_view = new SView() {
+		@Override public void update() {
+			for (SView view : parent_views) view.update();
+		}
+	};
+	
+	public void close() {
+		for (SRow row : input_rows) row.close();
+		for (SRow row : solution_panes) row.close();
 	}
+	
+	public void addParentView(SView view) { parent_views.add(view); }
+	public void removeParentView(SView view) { parent_views.remove(view); }
 }
@@ -0,0 +1,235 @@
+package satori.stub;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+//stand-in for the blob part of the server, storing blobs in a temporary directory
+public class SStubBlobServer {
+	private static final Pattern HASH_PATTERN = Pattern.compile("[-_a-zA-Z0-9]+=*");
+	private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-");
+	
+	private final HttpServer server;
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final File root;
+	private final SStubFaults faults;
+	private volatile long fail_after = -1;
+	
+	public SStubBlobServer(int port) throws IOException { this(port, new SStubFaults()); }
+	public SStubBlobServer(int port, SStubFaults faults) throws IOException {
+		this.faults = faults;
+		root = File.createTempFile("satori-blobs", "");
+		if (!root.delete() || !root.mkdir()) throw new IOException("Cannot create blob directory");
+		new File(root, "partial").mkdir();
+		server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		server.createContext("/blob/upload", new HttpHandler() {
+			@Override public void handle(HttpExchange exchange) throws IOException {
+				try { if (!injectFault(exchange)) handleUpload(exchange); }
+				finally { exchange.close(); }
+			}
+		});
+		server.createContext("/blob/download/", new HttpHandler() {
+			@Override public void handle(HttpExchange exchange) throws IOException {
+				try { if (!injectFault(exchange)) handleDownload(exchange); }
+				finally { exchange.close(); }
+			}
+		});
+		server.setExecutor(executor);
+	}
+	
+	public int getPort() { return server.getAddress().getPort(); }
+	public File getFile(String hash) { return new File(root, hash); }
+	public boolean exists(String hash) { return HASH_PATTERN.matcher(hash).matches() && getFile(hash).isFile(); }
+	//the next transfer is broken after the given number of bytes
+	public void failAfter(long bytes) { fail_after = bytes; }
+	//stores the data without going through HTTP, returns its hash code
+	public String put(byte[] data) throws Exception {
+		File temp = File.createTempFile("upload", "", root);
+		FileUtils.writeByteArrayToFile(temp, data);
+		return store(temp);
+	}
+	
+	public void start() { server.start(); }
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+		FileUtils.deleteQuietly(root);
+	}
+	
+	private long takeFailure() {
+		long result = fail_after;
+		fail_after = -1;
+		return result;
+	}
+	//returns true if the request was answered with an injected failure
+	private boolean injectFault(HttpExchange exchange) throws IOException {
+		faults.delay();
+		if (!faults.fail()) return false;
+		sendText(exchange, HttpURLConnection.HTTP_UNAVAILABLE, "Injected failure");
+		return true;
+	}
+	private static void sendText(HttpExchange exchange, int code, String text) throws IOException {
+		byte[] data = text.getBytes("UTF-8");
+		//-1 means no body, 0 would mean chunked encoding
+		exchange.sendResponseHeaders(code, data.length > 0 ? data.length : -1);
+		if (data.length > 0) exchange.getResponseBody().write(data);
+	}
+	private static String encodeHash(MessageDigest digest) {
+		return Base64.encodeBase64URLSafeString(digest.digest());
+	}
+	
+	//returns false if the transfer was broken on purpose
+	private boolean receive(HttpExchange exchange, File file, boolean append, MessageDigest digest, CRC32 crc) throws IOException {
+		long length = Long.parseLong(exchange.getRequestHeaders().getFirst("Content-Length"));
+		long fail = takeFailure();
+		InputStream in = exchange.getRequestBody();
+		OutputStream out = new FileOutputStream(file, append);
+		try {
+			byte[] buf = new byte[64 * 1024];
+			while (length > 0) {
+				int count = in.read(buf, 0, (int)Math.min(buf.length, length));
+				if (count < 0) throw new IOException("Unexpected end of request");
+				if (fail >= 0 && count >= fail) {
+					out.write(buf, 0, (int)fail);
+					return false;
+				}
+				if (fail >= 0) fail -= count;
+				out.write(buf, 0, count);
+				faults.throttle(count);
+				if (digest != null) digest.update(buf, 0, count);
+				if (crc != null) crc.update(buf, 0, count);
+				length -= count;
+			}
+		}
+		finally { IOUtils.closeQuietly(out); }
+		return true;
+	}
+	private String store(File temp) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-384");
+		InputStream in = new FileInputStream(temp);
+		try {
+			byte[] buf = new byte[64 * 1024];
+			int count;
+			while ((count = in.read(buf)) > 0) digest.update(buf, 0, count);
+		}
+		finally { IOUtils.closeQuietly(in); }
+		String hash = encodeHash(digest);
+		File file = getFile(hash);
+		if (!file.exists() && !temp.renameTo(file)) throw new IOException("Cannot store blob");
+		temp.delete();
+		return hash;
+	}
+	
+	private void handleUpload(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		try {
+			if (path.equals("/blob/upload")) {
+				if (!exchange.getRequestMethod().equals("PUT")) { sendText(exchange, HttpURLConnection.HTTP_BAD_METHOD, ""); return; }
+				File temp = File.createTempFile("upload", "", root);
+				if (!receive(exchange, temp, false, null, null)) { temp.delete(); return; }
+				sendText(exchange, HttpURLConnection.HTTP_OK, store(temp));
+				return;
+			}
+			String hash = path.substring("/blob/upload/".length());
+			if (!HASH_PATTERN.matcher(hash).matches()) { sendText(exchange, HttpURLConnection.HTTP_NOT_FOUND, ""); return; }
+			File partial = new File(new File(root, "partial"), hash);
+			if (exchange.getRequestMethod().equals("GET")) { sendText(exchange, HttpURLConnection.HTTP_OK, String.valueOf(partial.length())); return; }
+			if (!exchange.getRequestMethod().equals("PUT")) { sendText(exchange, HttpURLConnection.HTTP_BAD_METHOD, ""); return; }
+			long offset = Long.parseLong(exchange.getRequestHeaders().getFirst("Offset"));
+			long total = Long.parseLong(exchange.getRequestHeaders().getFirst("Blob-Length"));
+			long checksum = Long.parseLong(exchange.getRequestHeaders().getFirst("Chunk-Crc32"));
+			long length = Long.parseLong(exchange.getRequestHeaders().getFirst("Content-Length"));
+			synchronized (this) {
+				if (offset != partial.length() || offset + length > total) { sendText(exchange, HttpURLConnection.HTTP_CONFLICT, String.valueOf(partial.length())); return; }
+				CRC32 crc = new CRC32();
+				if (!receive(exchange, partial, true, null, crc)) return;
+				if (crc.getValue() != checksum) {
+					truncate(partial, offset);
+					sendText(exchange, HttpURLConnection.HTTP_CONFLICT, String.valueOf(offset));
+					return;
+				}
+				if (partial.length() < total) { sendText(exchange, HttpURLConnection.HTTP_OK, String.valueOf(partial.length())); return; }
+				String stored = store(partial);
+				if (!stored.equals(hash)) {
+					getFile(stored).delete();
+					sendText(exchange, HttpURLConnection.HTTP_CONFLICT, "0");
+					return;
+				}
+				sendText(exchange, HttpURLConnection.HTTP_OK, stored);
+			}
+		}
+		catch(IOException ex) { throw ex; }
+		catch(Exception ex) { sendText(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR, ex.toString()); }
+	}
+	private static void truncate(File file, long length) throws IOException {
+		FileOutputStream out = new FileOutputStream(file, true);
+		try { out.getChannel().truncate(length); }
+		finally { IOUtils.closeQuietly(out); }
+	}
+	
+	private void handleDownload(HttpExchange exchange) throws IOException {
+		String hash = exchange.getRequestURI().getPath().substring("/blob/download/".length());
+		if (!exchange.getRequestMethod().equals("GET")) { sendText(exchange, HttpURLConnection.HTTP_BAD_METHOD, ""); return; }
+		if (!exists(hash)) { sendText(exchange, HttpURLConnection.HTTP_NOT_FOUND, ""); return; }
+		File file = getFile(hash);
+		long length = file.length();
+		long start = 0;
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		Matcher matcher = range != null ? RANGE_PATTERN.matcher(range) : null;
+		if (matcher != null && matcher.matches()) {
+			start = Long.parseLong(matcher.group(1));
+			if (start > 0 && start >= length) {
+				exchange.getResponseHeaders().set("Content-Range", "bytes */" + length);
+				sendText(exchange, 416, "");
+				return;
+			}
+			exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (length - 1) + "/" + length);
+		}
+		exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+		exchange.sendResponseHeaders(start > 0 ? HttpURLConnection.HTTP_PARTIAL : HttpURLConnection.HTTP_OK, length - start > 0 ? length - start : -1);
+		long fail = takeFailure();
+		InputStream in = new FileInputStream(file);
+		try {
+			IOUtils.skipFully(in, start);
+			OutputStream out = exchange.getResponseBody();
+			byte[] buf = new byte[64 * 1024];
+			int count;
+			while ((count = in.read(buf)) > 0) {
+				if (fail >= 0 && count >= fail) {
+					out.write(buf, 0, (int)fail);
+					out.flush();
+					return;
+				}
+				if (fail >= 0) fail -= count;
+				out.write(buf, 0, count);
+				faults.throttle(count);
+			}
+		}
+		finally { IOUtils.closeQuietly(in); }
+	}
+	
+	public static void main(String[] args) throws Exception {
+		SStubBlobServer server = new SStubBlobServer(args.length > 0 ? Integer.parseInt(args[0]) : 0);
+		server.start();
+		System.out.println("Blob server listening on port " + server.getPort());
+	}
+}
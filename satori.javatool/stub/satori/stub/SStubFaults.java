@@ -0,0 +1,52 @@
+package satori.stub;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+//delays and failures injected by the stand-in servers
+public class SStubFaults {
+	static final String USAGE =
+			"  -latency <ms>         delay added to every request\n" +
+			"  -bandwidth <KiB/s>    transfer rate of every connection\n" +
+			"  -errors <rate>        fraction of requests that fail, between 0 and 1\n";
+	
+	private volatile long latency = 0;
+	private volatile long bandwidth = 0;
+	private volatile double error_rate = 0;
+	
+	public long getLatency() { return latency; }
+	public long getBandwidth() { return bandwidth; }
+	public double getErrorRate() { return error_rate; }
+	
+	//milliseconds added to every request
+	public void setLatency(long millis) { latency = Math.max(millis, 0); }
+	//bytes per second of every connection, 0 means unlimited
+	public void setBandwidth(long bytes) { bandwidth = Math.max(bytes, 0); }
+	//fraction of requests that fail
+	public void setErrorRate(double rate) { error_rate = Math.min(Math.max(rate, 0), 1); }
+	
+	//returns false if the option is not a fault option
+	public boolean parseOption(String option, String value) {
+		if (option.equals("-latency")) setLatency(Long.valueOf(value));
+		else if (option.equals("-bandwidth")) setBandwidth(Long.valueOf(value) * 1024);
+		else if (option.equals("-errors")) setErrorRate(Double.valueOf(value));
+		else return false;
+		return true;
+	}
+	
+	private static void sleep(long millis) {
+		if (millis <= 0) return;
+		try { Thread.sleep(millis); }
+		catch(InterruptedException ex) { Thread.currentThread().interrupt(); }
+	}
+	
+	public void delay() { sleep(latency); }
+	//called after transferring the given number of bytes
+	public void throttle(long bytes) {
+		long rate = bandwidth;
+		if (rate > 0) sleep(bytes * 1000 / rate);
+	}
+	public boolean fail() {
+		double rate = error_rate;
+		return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+	}
+}
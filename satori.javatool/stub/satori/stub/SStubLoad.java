@@ -0,0 +1,201 @@
+package satori.stub;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import satori.config.SConfig;
+import satori.data.SBlob;
+import satori.data.STemporarySubmitData;
+import satori.data.STestData;
+import satori.data.STestSuiteData;
+import satori.metadata.SOutputMetadata;
+import satori.metrics.SMethodStats;
+import satori.metrics.SMetrics;
+import satori.problem.STestSuiteReader;
+import satori.session.SSession;
+import satori.task.SConsoleHandler;
+import satori.task.SResultTask;
+import satori.task.STaskException;
+import satori.task.STaskHandler;
+import satori.test.STemporarySubmitReader;
+import satori.test.STestBasicReader;
+import satori.test.STestReader;
+
+//load driver: concurrent client sessions against an in-process SStubServer
+//every session repeatedly opens a test suite, saves it and runs all its tests with a new submit
+//the operations are timed as load:open, load:save and load:run next to the server calls in SMetrics
+public class SStubLoad {
+	private static final String USAGE =
+			"Usage: SStubLoad [options]\n" +
+			"Options:\n" +
+			"  -sessions <n>         number of concurrent sessions\n" +
+			"  -duration <s>         length of the run in seconds\n" +
+			"  -suites <n>           number of test suites, shared by the sessions\n" +
+			"  -tests <n>            number of tests in every suite\n" +
+			"  -blob-size <bytes>    size of test input and hint files\n" +
+			"  -judge-time <ms>      time until a temporary submit is judged\n" +
+			"  -connections <n>      number of parallel connections of every operation\n" +
+			"  -verbose              print the progress of every operation\n" +
+			SStubFaults.USAGE;
+	private static final long POLL_DELAY = 1000;
+	
+	private static class Session implements Runnable {
+		private final STaskHandler handler;
+		private final long suite_id;
+		private final long deadline;
+		private final File dir;
+		private int runs = 0;
+		
+		public Session(STaskHandler handler, long suite_id, long deadline, File dir) {
+			this.handler = handler;
+			this.suite_id = suite_id;
+			this.deadline = deadline;
+			this.dir = dir;
+		}
+		
+		private <T> T measure(String name, SResultTask<T> task) throws STaskException {
+			SMetrics.Call call = SMetrics.start("load:" + name);
+			boolean success = false;
+			try {
+				T result = handler.execute(task);
+				success = true;
+				return result;
+			}
+			finally { call.finish(success); }
+		}
+		
+		private List<STestReader> open() throws STaskException {
+			return measure("open", new SResultTask<List<STestReader>>() {
+				@Override public List<STestReader> run() throws Exception {
+					STestSuiteReader suite = STestSuiteData.load(handler, suite_id);
+					List<Long> ids = new ArrayList<Long>();
+					for (STestBasicReader test : suite.getTests()) ids.add(test.getId());
+					return STestData.load(handler, ids);
+				}
+			});
+		}
+		private void save(final List<STestReader> tests) throws STaskException {
+			measure("save", new SResultTask<Void>() {
+				@Override public Void run() throws Exception {
+					STestSuiteData.save(handler, STestSuiteData.load(handler, suite_id));
+					if (!tests.isEmpty()) STestData.save(handler, tests.get(runs % tests.size()));
+					return null;
+				}
+			});
+		}
+		private void runAll(final List<STestReader> tests) throws STaskException {
+			measure("run", new SResultTask<Void>() {
+				@Override public Void run() throws Exception {
+					File file = new File(dir, "submit" + ++runs + ".cpp");
+					FileUtils.writeStringToFile(file, "//" + file.getAbsolutePath() + "\nint main() { return 0; }\n", "UTF-8");
+					try {
+						SBlob submit = SBlob.createLocalTask(handler, file);
+						List<Long> ids = STemporarySubmitData.create(handler, Collections.nCopies(tests.size(), submit), tests, null);
+						List<List<SOutputMetadata>> meta = new ArrayList<List<SOutputMetadata>>();
+						for (STestReader test : tests) meta.add(test.getJudge().getOutputMetadata());
+						while (true) {
+							boolean pending = false;
+							for (STemporarySubmitReader result : STemporarySubmitData.load(handler, ids, meta)) pending |= result.getPending();
+							if (!pending) return null;
+							Thread.sleep(POLL_DELAY);
+						}
+					}
+					finally { file.delete(); }
+				}
+			});
+		}
+		
+		@Override public void run() {
+			try {
+				while (System.currentTimeMillis() < deadline) {
+					try {
+						List<STestReader> tests = open();
+						save(tests);
+						runAll(tests);
+					}
+					catch(STaskException ex) {} //reported by the handler
+				}
+			}
+			finally { handler.close(); }
+		}
+	}
+	
+	private static void usage() {
+		SConsoleHandler.print(USAGE);
+		System.exit(2);
+	}
+	
+	public static void main(String[] args) throws Exception {
+		SStubFaults faults = new SStubFaults();
+		int sessions = 8, suites = 4, tests = 20, blob_size = 1024;
+		long duration = 30, judge_time = 500;
+		boolean verbose = false;
+		try {
+			for (int pos = 0; pos < args.length; ++pos) {
+				String option = args[pos];
+				if (option.equals("-verbose")) { verbose = true; continue; }
+				if (pos + 1 == args.length) usage();
+				String value = args[++pos];
+				if (option.equals("-sessions")) sessions = Integer.valueOf(value);
+				else if (option.equals("-duration")) duration = Long.valueOf(value);
+				else if (option.equals("-suites")) suites = Integer.valueOf(value);
+				else if (option.equals("-tests")) tests = Integer.valueOf(value);
+				else if (option.equals("-blob-size")) blob_size = Integer.valueOf(value);
+				else if (option.equals("-judge-time")) judge_time = Long.valueOf(value);
+				else if (option.equals("-connections")) SConfig.setConnections(Integer.valueOf(value));
+				else if (!faults.parseOption(option, value)) usage();
+			}
+		}
+		catch(NumberFormatException ex) { usage(); }
+		if (sessions < 1 || suites < 1) usage();
+		
+		SConsoleHandler.print("Preparing " + suites + " test suites of " + tests + " tests...");
+		SStubServer server = new SStubServer(0, 0, faults);
+		server.getService().setJudgeTime(judge_time);
+		long problem = server.getService().addProblem("Load test");
+		List<Long> suite_ids = new ArrayList<Long>();
+		for (int i = 0; i < suites; ++i) suite_ids.add(server.getService().addSuite(problem, "suite" + i, tests, blob_size));
+		server.start();
+		SConfig.setHost("localhost");
+		SConfig.setThriftPort(server.getThriftPort());
+		SConfig.setBlobsPort(server.getBlobsPort());
+		SConfig.setUseSSL(false);
+		File dir = File.createTempFile("satori-load", "");
+		if (!dir.delete() || !dir.mkdir()) throw new Exception("Cannot create submit directory");
+		
+		int status = 0;
+		STaskHandler handler = new SConsoleHandler(verbose);
+		try { SSession.login(handler, "load", ""); }
+		catch(STaskException ex) { status = 1; }
+		finally { handler.close(); }
+		if (status == 0) {
+			SConsoleHandler.print("Running " + sessions + " sessions for " + duration + " s...");
+			SMetrics.reset();
+			long start = System.currentTimeMillis();
+			long deadline = start + duration * 1000;
+			List<Thread> threads = new ArrayList<Thread>();
+			for (int i = 0; i < sessions; ++i) {
+				File session_dir = new File(dir, String.valueOf(i));
+				session_dir.mkdir();
+				threads.add(new Thread(new Session(new SConsoleHandler(verbose), suite_ids.get(i % suites), deadline, session_dir), "Satori load session " + i));
+			}
+			for (Thread thread : threads) thread.start();
+			for (Thread thread : threads) thread.join();
+			double seconds = (System.currentTimeMillis() - start) / 1000.0;
+			StringBuilder summary = new StringBuilder();
+			for (SMethodStats stats : SMetrics.getStats()) {
+				if (!stats.getMethod().startsWith("load:")) continue;
+				summary.append(String.format("%-10s %8d done %6d failed %8.2f per second%n", stats.getMethod(), stats.getCalls() - stats.getFailures(), stats.getFailures(), (stats.getCalls() - stats.getFailures()) / seconds));
+			}
+			SConsoleHandler.print(summary.toString());
+			SConsoleHandler.print(SMetrics.getReport());
+		}
+		server.stop();
+		FileUtils.deleteQuietly(dir);
+		System.exit(status);
+	}
+}
@@ -0,0 +1,202 @@
+package satori.stub;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
+import org.apache.thrift.protocol.TProtocolUtil;
+import org.apache.thrift.protocol.TType;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TServerSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.apache.thrift.transport.TTransportFactory;
+
+import satori.thrift.gen.Blob;
+import satori.thrift.gen.Global;
+import satori.thrift.gen.Problem;
+import satori.thrift.gen.TemporarySubmit;
+import satori.thrift.gen.Test;
+import satori.thrift.gen.TestSuite;
+import satori.thrift.gen.User;
+
+//stand-in for the server, answering the Thrift calls of the client from SStubService and the blob requests from SStubBlobServer
+//all services share one port, as in the real server, and calls are routed by the prefix of the method name
+public class SStubServer {
+	private static final String USAGE =
+			"Usage: SStubServer [options]\n" +
+			"Options:\n" +
+			"  -thrift-port <port>   Thrift port, a free one by default\n" +
+			"  -blobs-port <port>    blobs port, a free one by default\n" +
+			"  -suites <n>           number of test suites to create\n" +
+			"  -tests <n>            number of tests in every suite\n" +
+			"  -blob-size <bytes>    size of test input and hint files\n" +
+			"  -judge-time <ms>      time until a temporary submit is judged\n" +
+			SStubFaults.USAGE;
+	
+	private final SStubFaults faults;
+	private final SStubBlobServer blob_server;
+	private final SStubService service;
+	private final TServerSocket socket;
+	private final TServer server;
+	private final Map<String, TProcessor> processors = new HashMap<String, TProcessor>();
+	
+	//replays the message header read by the dispatcher to the processor of the service
+	private static class Protocol extends TBinaryProtocol {
+		private TMessage replay = null;
+		
+		public Protocol(TTransport transport) { super(transport); }
+		
+		public void replay(TMessage message) { replay = message; }
+		
+		@Override public TMessage readMessageBegin() throws TException {
+			if (replay == null) return super.readMessageBegin();
+			TMessage result = replay;
+			replay = null;
+			return result;
+		}
+	}
+	
+	private class ThrottledTransport extends TTransport {
+		private final TTransport transport;
+		
+		public ThrottledTransport(TTransport transport) { this.transport = transport; }
+		
+		@Override public boolean isOpen() { return transport.isOpen(); }
+		@Override public void open() throws TTransportException { transport.open(); }
+		@Override public void close() { transport.close(); }
+		@Override public int read(byte[] buf, int off, int len) throws TTransportException {
+			int count = transport.read(buf, off, len);
+			faults.throttle(count);
+			return count;
+		}
+		@Override public void write(byte[] buf, int off, int len) throws TTransportException {
+			transport.write(buf, off, len);
+			faults.throttle(len);
+		}
+		@Override public void flush() throws TTransportException { transport.flush(); }
+	}
+	
+	private class Dispatcher implements TProcessor {
+		@Override public boolean process(TProtocol in, TProtocol out) throws TException {
+			TMessage message = in.readMessageBegin();
+			faults.delay();
+			int split = message.name.indexOf('_');
+			TProcessor processor = split != -1 ? processors.get(message.name.substring(0, split)) : null;
+			if (processor != null && !faults.fail()) {
+				((Protocol)in).replay(message);
+				return processor.process(in, out);
+			}
+			TProtocolUtil.skip(in, TType.STRUCT);
+			in.readMessageEnd();
+			TApplicationException ex = processor == null
+					? new TApplicationException(TApplicationException.UNKNOWN_METHOD, "Invalid method name: '" + message.name + "'")
+					: new TApplicationException(TApplicationException.INTERNAL_ERROR, "Injected failure");
+			out.writeMessageBegin(new TMessage(message.name, TMessageType.EXCEPTION, message.seqid));
+			ex.write(out);
+			out.writeMessageEnd();
+			out.getTransport().flush();
+			return true;
+		}
+	}
+	
+	public SStubServer(int thrift_port, int blobs_port, SStubFaults faults) throws Exception {
+		this.faults = faults;
+		blob_server = new SStubBlobServer(blobs_port, faults);
+		service = new SStubService(blob_server);
+		processors.put("Blob", new Blob.Processor(createIface(Blob.Iface.class)));
+		processors.put("Global", new Global.Processor(createIface(Global.Iface.class)));
+		processors.put("Problem", new Problem.Processor(createIface(Problem.Iface.class)));
+		processors.put("TemporarySubmit", new TemporarySubmit.Processor(createIface(TemporarySubmit.Iface.class)));
+		processors.put("Test", new Test.Processor(createIface(Test.Iface.class)));
+		processors.put("TestSuite", new TestSuite.Processor(createIface(TestSuite.Iface.class)));
+		processors.put("User", new User.Processor(createIface(User.Iface.class)));
+		socket = new TServerSocket(new InetSocketAddress("localhost", thrift_port));
+		server = new TThreadPoolServer(new TThreadPoolServer.Args(socket)
+				.processor(new Dispatcher())
+				.transportFactory(new TTransportFactory() {
+					@Override public TTransport getTransport(TTransport transport) { return new TFramedTransport(new ThrottledTransport(transport)); }
+				})
+				.protocolFactory(new TProtocolFactory() {
+					@Override public TProtocol getProtocol(TTransport transport) { return new Protocol(transport); }
+				}));
+	}
+	
+	//methods missing in SStubService fail with an unknown method error
+	private <T> T createIface(Class<T> iface) {
+		final Map<String, Method> methods = new HashMap<String, Method>();
+		for (Method method : SStubService.class.getMethods()) if (method.getDeclaringClass() == SStubService.class) methods.put(method.getName(), method);
+		return iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] { iface }, new InvocationHandler() {
+			@Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getDeclaringClass() == Object.class) return method.invoke(this, args);
+				Method impl = methods.get(method.getName());
+				if (impl == null) throw new TApplicationException(TApplicationException.UNKNOWN_METHOD, "Not supported by the stand-in server: " + method.getName());
+				try { return impl.invoke(service, args); }
+				catch(InvocationTargetException ex) { throw ex.getCause(); }
+			}
+		}));
+	}
+	
+	public SStubService getService() { return service; }
+	public SStubBlobServer getBlobServer() { return blob_server; }
+	public int getThriftPort() { return socket.getServerSocket().getLocalPort(); }
+	public int getBlobsPort() { return blob_server.getPort(); }
+	
+	public void start() {
+		blob_server.start();
+		new Thread(new Runnable() {
+			@Override public void run() { server.serve(); }
+		}, "Satori stand-in server").start();
+	}
+	public void stop() {
+		server.stop();
+		blob_server.stop();
+	}
+	
+	private static void usage() {
+		System.err.println(USAGE);
+		System.exit(2);
+	}
+	
+	public static void main(String[] args) throws Exception {
+		SStubFaults faults = new SStubFaults();
+		int thrift_port = 0, blobs_port = 0;
+		int suites = 1, tests = 20, blob_size = 1024;
+		long judge_time = -1;
+		try {
+			for (int pos = 0; pos < args.length; ++pos) {
+				String option = args[pos];
+				if (pos + 1 == args.length) usage();
+				String value = args[++pos];
+				if (option.equals("-thrift-port")) thrift_port = Integer.valueOf(value);
+				else if (option.equals("-blobs-port")) blobs_port = Integer.valueOf(value);
+				else if (option.equals("-suites")) suites = Integer.valueOf(value);
+				else if (option.equals("-tests")) tests = Integer.valueOf(value);
+				else if (option.equals("-blob-size")) blob_size = Integer.valueOf(value);
+				else if (option.equals("-judge-time")) judge_time = Long.valueOf(value);
+				else if (!faults.parseOption(option, value)) usage();
+			}
+		}
+		catch(NumberFormatException ex) { usage(); }
+		SStubServer server = new SStubServer(thrift_port, blobs_port, faults);
+		if (judge_time >= 0) server.getService().setJudgeTime(judge_time);
+		long problem = server.getService().addProblem("Stand-in problem");
+		for (int i = 0; i < suites; ++i) server.getService().addSuite(problem, "suite" + i, tests, blob_size);
+		server.start();
+		System.out.println("Stand-in server listening on Thrift port " + server.getThriftPort() + " and blobs port " + server.getBlobsPort() + ", without SSL");
+	}
+}
@@ -0,0 +1,302 @@
+package satori.stub;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+
+import satori.thrift.gen.AnonymousAttribute;
+import satori.thrift.gen.GlobalStruct;
+import satori.thrift.gen.ProblemStruct;
+import satori.thrift.gen.TemporarySubmitStruct;
+import satori.thrift.gen.TestStruct;
+import satori.thrift.gen.TestSuiteStruct;
+
+//in-memory state of the stand-in server
+//the methods are named after the Thrift methods they implement, SStubServer calls them by name
+//stored structures are replaced on modification, never changed, so they can be returned without copying
+public class SStubService {
+	private static final String JUDGE =
+			"#!/usr/bin/python\n" +
+			"#@<checker name=\"Stand-in judge\">\n" +
+			"#@  <input>\n" +
+			"#@    <param type=\"time\" name=\"time\" description=\"Time limit\" required=\"true\" default=\"10s\"/>\n" +
+			"#@    <param type=\"size\" name=\"memory\" description=\"Memory limit\" required=\"true\" default=\"256MB\"/>\n" +
+			"#@    <param type=\"blob\" name=\"input\" description=\"Input file\" required=\"true\"/>\n" +
+			"#@    <param type=\"blob\" name=\"hint\" description=\"Output/hint file\" required=\"false\"/>\n" +
+			"#@  </input>\n" +
+			"#@  <output>\n" +
+			"#@    <param type=\"text\" name=\"status\" description=\"Status\"/>\n" +
+			"#@    <param type=\"time\" name=\"execute_time_real\" description=\"Execution time\"/>\n" +
+			"#@  </output>\n" +
+			"#@</checker>\n";
+	private static final String DISPATCHER = "SerialDispatcher";
+	private static final String ACCUMULATOR = "StatusAccumulator";
+	private static final String REPORTER = "StatusReporter";
+	
+	private static class Submit {
+		private final long id;
+		private final long created = System.currentTimeMillis();
+		public Submit(long id) { this.id = id; }
+	}
+	
+	private final SStubBlobServer blob_server;
+	private final Random random = new Random(0);
+	private long next_id = 1;
+	private volatile long judge_time = 100;
+	private String judge_hash = null;
+	
+	private final Map<Long, ProblemStruct> problems = new LinkedHashMap<Long, ProblemStruct>();
+	private final Map<Long, TestStruct> tests = new LinkedHashMap<Long, TestStruct>();
+	private final Map<Long, Map<String, AnonymousAttribute>> test_data = new HashMap<Long, Map<String, AnonymousAttribute>>();
+	private final Map<Long, TestSuiteStruct> suites = new LinkedHashMap<Long, TestSuiteStruct>();
+	private final Map<Long, List<Long>> suite_tests = new HashMap<Long, List<Long>>();
+	private final Map<Long, Map<String, AnonymousAttribute>> suite_params = new HashMap<Long, Map<String, AnonymousAttribute>>();
+	private final Map<Long, Submit> submits = new LinkedHashMap<Long, Submit>();
+	private final Deque<Submit> pending = new ArrayDeque<Submit>(); //in creation order
+	
+	public SStubService(SStubBlobServer blob_server) { this.blob_server = blob_server; }
+	
+	//milliseconds between creating a temporary submit and its result
+	public void setJudgeTime(long millis) { judge_time = Math.max(millis, 0); }
+	
+	private static TException notFound(String kind, long id) {
+		return new TApplicationException("Cannot find " + kind + " " + id);
+	}
+	private static AnonymousAttribute createAttribute(String value) {
+		AnonymousAttribute result = new AnonymousAttribute();
+		result.setIs_blob(false);
+		result.setValue(value);
+		return result;
+	}
+	private static AnonymousAttribute createBlobAttribute(String name, String hash) {
+		AnonymousAttribute result = new AnonymousAttribute();
+		result.setIs_blob(true);
+		result.setFilename(name);
+		result.setValue(hash);
+		return result;
+	}
+	private synchronized String getJudgeHash() throws Exception {
+		if (judge_hash == null) judge_hash = blob_server.put(JUDGE.getBytes("UTF-8"));
+		return judge_hash;
+	}
+	private String putRandomBlob(int size) throws Exception {
+		byte[] data = new byte[size];
+		synchronized (random) { random.nextBytes(data); }
+		return blob_server.put(data);
+	}
+	
+	public synchronized long addProblem(String name) {
+		ProblemStruct problem = new ProblemStruct();
+		problem.setName(name);
+		problem.setDescription("");
+		return Problem_create("", problem).getId();
+	}
+	//creates the tests with input and hint blobs of the given size and a suite of all of them
+	public long addSuite(long problem, String name, int test_count, int blob_size) throws Exception {
+		List<Long> test_list = new ArrayList<Long>();
+		List<Map<String, AnonymousAttribute>> test_params = new ArrayList<Map<String, AnonymousAttribute>>();
+		for (int i = 0; i < test_count; ++i) {
+			TestStruct test = new TestStruct();
+			test.setProblem(problem);
+			test.setName(name + "." + i);
+			test.setDescription("");
+			Map<String, AnonymousAttribute> data = new HashMap<String, AnonymousAttribute>();
+			data.put("judge", createBlobAttribute("judge.py", getJudgeHash()));
+			data.put("time", createAttribute("10s"));
+			data.put("memory", createAttribute("256MB"));
+			data.put("input", createBlobAttribute(i + ".in", putRandomBlob(blob_size)));
+			data.put("hint", createBlobAttribute(i + ".out", putRandomBlob(blob_size)));
+			test_list.add(Test_create("", test, data).getId());
+			test_params.add(Collections.<String, AnonymousAttribute>emptyMap());
+		}
+		TestSuiteStruct suite = new TestSuiteStruct();
+		suite.setProblem(problem);
+		suite.setName(name);
+		suite.setDescription("");
+		suite.setDispatcher(DISPATCHER);
+		suite.setAccumulators(ACCUMULATOR);
+		suite.setReporter(REPORTER);
+		return TestSuite_create("", suite, new HashMap<String, AnonymousAttribute>(), test_list, test_params).getId();
+	}
+	
+	public String User_authenticate(String token, String username, String password) { return "stub-" + username; }
+	
+	public boolean Blob_exists(String token, String hash) { return blob_server.exists(hash); }
+	
+	public GlobalStruct Global_get_instance(String token) {
+		GlobalStruct result = new GlobalStruct();
+		result.setId(0);
+		return result;
+	}
+	public Map<String, AnonymousAttribute> Global_judges_get_map(String token, long id) throws Exception {
+		return Collections.singletonMap("judge.py", createBlobAttribute("judge.py", getJudgeHash()));
+	}
+	public Map<String, String> Global_get_dispatchers(String token) {
+		return Collections.singletonMap(DISPATCHER, "#@<dispatcher name=\"Serial dispatcher\"/>\n");
+	}
+	public Map<String, String> Global_get_accumulators(String token) {
+		return Collections.singletonMap(ACCUMULATOR, "#@<accumulator name=\"Status accumulator\"/>\n");
+	}
+	public Map<String, String> Global_get_reporters(String token) {
+		return Collections.singletonMap(REPORTER, "#@<reporter name=\"Status reporter\"/>\n");
+	}
+	
+	public synchronized ProblemStruct Problem_get_struct(String token, long id) throws TException {
+		ProblemStruct result = problems.get(id);
+		if (result == null) throw notFound("problem", id);
+		return result;
+	}
+	public synchronized ProblemStruct Problem_create(String token, ProblemStruct fields) {
+		ProblemStruct result = new ProblemStruct(fields);
+		result.setId(next_id++);
+		problems.put(result.getId(), result);
+		return result;
+	}
+	public synchronized ProblemStruct Problem_modify(String token, long id, ProblemStruct fields) throws TException {
+		ProblemStruct result = new ProblemStruct(Problem_get_struct(token, id));
+		if (fields.isSetName()) result.setName(fields.getName());
+		if (fields.isSetDescription()) result.setDescription(fields.getDescription());
+		problems.put(id, result);
+		return result;
+	}
+	public synchronized void Problem_delete(String token, long id) { problems.remove(id); }
+	public synchronized List<ProblemStruct> Problem_filter(String token, ProblemStruct filter) {
+		return new ArrayList<ProblemStruct>(problems.values());
+	}
+	
+	public synchronized TestStruct Test_get_struct(String token, long id) throws TException {
+		TestStruct result = tests.get(id);
+		if (result == null) throw notFound("test", id);
+		return result;
+	}
+	public synchronized Map<String, AnonymousAttribute> Test_data_get_map(String token, long id) throws TException {
+		Test_get_struct(token, id);
+		return test_data.get(id);
+	}
+	public synchronized TestStruct Test_create(String token, TestStruct fields, Map<String, AnonymousAttribute> data) {
+		TestStruct result = new TestStruct(fields);
+		result.setId(next_id++);
+		tests.put(result.getId(), result);
+		test_data.put(result.getId(), new HashMap<String, AnonymousAttribute>(data));
+		return result;
+	}
+	public synchronized TestStruct Test_modify(String token, long id, TestStruct fields) throws TException {
+		TestStruct result = new TestStruct(Test_get_struct(token, id));
+		if (fields.isSetName()) result.setName(fields.getName());
+		if (fields.isSetDescription()) result.setDescription(fields.getDescription());
+		tests.put(id, result);
+		return result;
+	}
+	public synchronized TestStruct Test_modify_full(String token, long id, TestStruct fields, Map<String, AnonymousAttribute> data) throws TException {
+		TestStruct result = Test_modify(token, id, fields);
+		test_data.put(id, new HashMap<String, AnonymousAttribute>(data));
+		return result;
+	}
+	public synchronized void Test_delete(String token, long id) {
+		tests.remove(id);
+		test_data.remove(id);
+	}
+	public synchronized List<TestStruct> Test_filter(String token, TestStruct filter) {
+		List<TestStruct> result = new ArrayList<TestStruct>();
+		for (TestStruct test : tests.values()) if (!filter.isSetProblem() || test.getProblem() == filter.getProblem()) result.add(test);
+		return result;
+	}
+	public void Test_rejudge(String token, long id) {}
+	
+	public synchronized TestSuiteStruct TestSuite_get_struct(String token, long id) throws TException {
+		TestSuiteStruct result = suites.get(id);
+		if (result == null) throw notFound("test suite", id);
+		return result;
+	}
+	public synchronized List<TestStruct> TestSuite_get_tests(String token, long id) throws TException {
+		TestSuite_get_struct(token, id);
+		List<TestStruct> result = new ArrayList<TestStruct>();
+		for (long test : suite_tests.get(id)) if (tests.containsKey(test)) result.add(tests.get(test));
+		return result;
+	}
+	public synchronized Map<String, AnonymousAttribute> TestSuite_params_get_map(String token, long id) throws TException {
+		TestSuite_get_struct(token, id);
+		return suite_params.get(id);
+	}
+	public synchronized TestSuiteStruct TestSuite_create(String token, TestSuiteStruct fields, Map<String, AnonymousAttribute> params, List<Long> test_list, List<Map<String, AnonymousAttribute>> test_params) {
+		TestSuiteStruct result = new TestSuiteStruct(fields);
+		result.setId(next_id++);
+		suites.put(result.getId(), result);
+		suite_tests.put(result.getId(), new ArrayList<Long>(test_list));
+		suite_params.put(result.getId(), new HashMap<String, AnonymousAttribute>(params));
+		return result;
+	}
+	public synchronized TestSuiteStruct TestSuite_modify(String token, long id, TestSuiteStruct fields) throws TException {
+		TestSuiteStruct result = new TestSuiteStruct(TestSuite_get_struct(token, id));
+		if (fields.isSetName()) result.setName(fields.getName());
+		if (fields.isSetDescription()) result.setDescription(fields.getDescription());
+		if (fields.isSetDispatcher()) result.setDispatcher(fields.getDispatcher());
+		if (fields.isSetAccumulators()) result.setAccumulators(fields.getAccumulators());
+		if (fields.isSetReporter()) result.setReporter(fields.getReporter());
+		suites.put(id, result);
+		return result;
+	}
+	public synchronized TestSuiteStruct TestSuite_modify_full(String token, long id, TestSuiteStruct fields, Map<String, AnonymousAttribute> params, List<Long> test_list, List<Map<String, AnonymousAttribute>> test_params) throws TException {
+		TestSuiteStruct result = TestSuite_modify(token, id, fields);
+		suite_tests.put(id, new ArrayList<Long>(test_list));
+		suite_params.put(id, new HashMap<String, AnonymousAttribute>(params));
+		return result;
+	}
+	public synchronized void TestSuite_delete(String token, long id) {
+		suites.remove(id);
+		suite_tests.remove(id);
+		suite_params.remove(id);
+	}
+	public synchronized List<TestSuiteStruct> TestSuite_filter(String token, TestSuiteStruct filter) {
+		List<TestSuiteStruct> result = new ArrayList<TestSuiteStruct>();
+		for (TestSuiteStruct suite : suites.values()) if (!filter.isSetProblem() || suite.getProblem() == filter.getProblem()) result.add(suite);
+		return result;
+	}
+	
+	private boolean isPending(Submit submit) { return System.currentTimeMillis() - submit.created < judge_time; }
+	private TemporarySubmitStruct createStruct(Submit submit) {
+		TemporarySubmitStruct result = new TemporarySubmitStruct();
+		result.setId(submit.id);
+		result.setPending(isPending(submit));
+		return result;
+	}
+	public synchronized TemporarySubmitStruct TemporarySubmit_create(String token, Map<String, AnonymousAttribute> test_data, Map<String, AnonymousAttribute> submit_data) {
+		Submit submit = new Submit(next_id++);
+		submits.put(submit.id, submit);
+		pending.addLast(submit);
+		return createStruct(submit);
+	}
+	public synchronized TemporarySubmitStruct TemporarySubmit_get_struct(String token, long id) throws TException {
+		Submit submit = submits.get(id);
+		if (submit == null) throw notFound("temporary submit", id);
+		return createStruct(submit);
+	}
+	public synchronized Map<String, AnonymousAttribute> TemporarySubmit_result_get_map(String token, long id) throws TException {
+		Submit submit = submits.get(id);
+		if (submit == null) throw notFound("temporary submit", id);
+		Map<String, AnonymousAttribute> result = new HashMap<String, AnonymousAttribute>();
+		if (isPending(submit)) return result;
+		result.put("status", createAttribute("OK"));
+		result.put("execute_time_real", createAttribute("0.01s"));
+		return result;
+	}
+	public synchronized List<TemporarySubmitStruct> TemporarySubmit_filter(String token, TemporarySubmitStruct filter) {
+		while (!pending.isEmpty() && !isPending(pending.peekFirst())) pending.removeFirst();
+		List<TemporarySubmitStruct> result = new ArrayList<TemporarySubmitStruct>();
+		for (Submit submit : filter.isSetPending() && filter.isPending() ? pending : submits.values()) {
+			TemporarySubmitStruct struct = createStruct(submit);
+			if (!filter.isSetPending() || struct.isPending() == filter.isPending()) result.add(struct);
+		}
+		return result;
+	}
+	public synchronized void TemporarySubmit_delete(String token, long id) { pending.remove(submits.remove(id)); }
+}